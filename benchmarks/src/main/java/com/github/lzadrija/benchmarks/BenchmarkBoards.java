@@ -0,0 +1,226 @@
+package com.github.lzadrija.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.github.lzadrija.dataProviders.SimulatedDataProvider;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.factories.ShipsFactory;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Boards and fleets shared by the benchmarks. Everything is generated from fixed seeds, so the same parameters always produce the
+ * same boards and the results of different releases can be compared.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public final class BenchmarkBoards {
+
+	public static final long SEED = 20140121L;
+
+	/**
+	 * One ship of every default type.
+	 */
+	public static final String DEFAULT_FLEET = "DEFAULT";
+
+	/**
+	 * Four ships of every default type.
+	 */
+	public static final String DEFAULT_X4_FLEET = "DEFAULT_X4";
+
+	/**
+	 * Forty ships of the default types and of custom shapes.
+	 */
+	public static final String MIXED_FLEET = "MIXED";
+
+	private static final String MIXED_FLEET_CONFIGURATION = "PETAR_KRESIMIR 8\nX\nX\nX\nX\n\n"
+															+ "X_WING 6\nX.X\n.X.\nX.X\n\n"
+															+ "Y_WING 6\nX.X\n.X.\n.X.\n\n"
+															+ "TIE_FIGHTER 8\nX.X\nXXX\nX.X\n\n"
+															+ "L_SHAPE 6\nX..\nX..\nXXX\n\n"
+															+ "BAR 4\nXXXXX\n\n"
+															+ "SQUARE 2\nXX\nXX\n";
+
+	private BenchmarkBoards() {
+
+	}
+
+	/**
+	 * Creates the fleet of the given composition.
+	 *
+	 * @param composition
+	 *            One of {@link #DEFAULT_FLEET}, {@link #DEFAULT_X4_FLEET} and {@link #MIXED_FLEET}.
+	 * @return List of hidden ships.
+	 * @throws IllegalArgumentException
+	 *             If the composition is unknown.
+	 */
+	public static List<Ship> createFleet(String composition) {
+
+		if (DEFAULT_FLEET.equals(composition)) {
+			return ShipsFactory.createFleet();
+		}
+		if (DEFAULT_X4_FLEET.equals(composition)) {
+			Map<ShipType, Integer> fleetConfiguration = new LinkedHashMap<>();
+			for (Iterator<ShipType> iterator = ShipType.values().iterator(); iterator.hasNext();) {
+				fleetConfiguration.put(iterator.next(), 4);
+			}
+			return ShipsFactory.createFleet(fleetConfiguration);
+		}
+		if (MIXED_FLEET.equals(composition)) {
+			try {
+				return ShipsFactory.createFleet(ShipsFactory.readFleetConfiguration(new StringReader(MIXED_FLEET_CONFIGURATION)));
+			} catch (IOException ioException) {
+				throw new IllegalStateException(ioException);
+			}
+		}
+		throw new IllegalArgumentException("Unknown fleet composition: " + composition);
+	}
+
+	/**
+	 * Creates the fleet of the given number of ships, the default types are taken in turn.
+	 *
+	 * @param nShips
+	 *            Number of ships.
+	 * @return List of hidden ships, ships of the same type next to each other.
+	 */
+	public static List<Ship> createFleet(int nShips) {
+
+		List<ShipType> shipTypes = ShipType.values();
+		Map<ShipType, Integer> fleetConfiguration = new LinkedHashMap<>();
+		for (int i = 0; i < shipTypes.size() && i < nShips; i++) {
+			fleetConfiguration.put(shipTypes.get(i), (nShips - i - 1) / shipTypes.size() + 1);
+		}
+		return ShipsFactory.createFleet(fleetConfiguration);
+	}
+
+	/**
+	 * Returns the cells of the ships packed side by side into one hit area, like the area of size 21 from the README. Ships are
+	 * placed largest first, each one at the first free upper left point in rows that are about as wide as the square root of
+	 * the number of cells of the fleet.
+	 *
+	 * @param fleet
+	 *            Ships to be packed, their positions are not set.
+	 * @return Cells of the packed ships.
+	 */
+	public static List<Point> createPackedHits(List<Ship> fleet) {
+
+		List<Ship> sortedFleet = new ArrayList<>(fleet);
+		Collections.sort(sortedFleet, Collections.reverseOrder());
+
+		int nCells = 0, maxShipsWidth = 1;
+		for (Iterator<Ship> iterator = sortedFleet.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+
+			nCells += ship.getStructureSize();
+			maxShipsWidth = Math.max(maxShipsWidth, ship.getWidth());
+		}
+		int width = Math.max(maxShipsWidth, (int) Math.ceil(Math.sqrt(nCells)));
+		Grid area = new Grid(nCells, width);
+
+		List<Point> hits = new ArrayList<>();
+		for (Iterator<Ship> iterator = sortedFleet.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+			StructureMask structureMask = ship.getStructureMask();
+
+			boolean isPlaced = false;
+			for (int j = 0; j + ship.getHeight() <= area.getHeight() && !isPlaced; j++) {
+				for (int k = 0; k + ship.getWidth() <= width && !isPlaced; k++) {
+					if (area.isGridPortionUndefined(k, j, structureMask)) {
+						for (int cell = 0; cell < structureMask.getCellsCount(); cell++) {
+							Point hit = new Point(k + structureMask.getXOffset(cell), j + structureMask.getYOffset(cell));
+							area.occupyCellAt(hit);
+							hits.add(hit);
+						}
+						isPlaced = true;
+					}
+				}
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the cells of the ships placed randomly on a square board with about three times as many cells as the fleet, so
+	 * that some ships touch each other and form hit areas of random shapes.
+	 *
+	 * @param fleet
+	 *            Ships to be placed, their positions are set.
+	 * @param seed
+	 *            Seed of the random number generator.
+	 * @return Cells of the placed ships.
+	 */
+	public static List<Point> createScatteredHits(List<Ship> fleet, long seed) {
+
+		int nCells = 0;
+		for (Iterator<Ship> iterator = fleet.iterator(); iterator.hasNext();) {
+			nCells += iterator.next().getStructureSize();
+		}
+		int size = (int) Math.ceil(Math.sqrt(3 * nCells));
+		SimulatedDataProvider seaMap = new SimulatedDataProvider(size, size, fleet, seed);
+
+		List<Point> hits = new ArrayList<>();
+		for (Iterator<Ship> iterator = seaMap.getPlacedShips().iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+
+			for (Iterator<Point> cellsIterator = ship.getStructure().iterator(); cellsIterator.hasNext();) {
+				hits.add(ship.getUpperLeftCoordinates().getPointRelativeToThis(cellsIterator.next()));
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Creates the ships repository with the fleet of the given composition, all ships hidden.
+	 *
+	 * @param composition
+	 *            Fleet composition, see {@link #createFleet(String)}.
+	 * @return Ships repository.
+	 */
+	public static ShipsRepository createShipsRepository(String composition) {
+
+		ShipsRepository shipsRepository = new ShipsRepository();
+		shipsRepository.addShips(createFleet(composition));
+		return shipsRepository;
+	}
+
+	/**
+	 * Creates the square grid with the given ratio of occupied cells (cells already fired at). Occupied cells are chosen
+	 * randomly with the given seed.
+	 *
+	 * @param size
+	 *            Height and width of the grid.
+	 * @param fillRatio
+	 *            Ratio of occupied cells, from 0 to 1.
+	 * @param seed
+	 *            Seed of the random number generator.
+	 * @return Grid.
+	 */
+	public static Grid createGrid(int size, double fillRatio, long seed) {
+
+		Grid grid = new Grid(size, size);
+		Random random = new Random(seed);
+
+		long nOccupiedCells = Math.round(fillRatio * size * size);
+		for (long n = 0; n < nOccupiedCells;) {
+			Point cell = new Point(random.nextInt(size), random.nextInt(size));
+
+			if (!grid.isCellOccupiedAt(cell)) {
+				grid.occupyCellAt(cell);
+				n++;
+			}
+		}
+		return grid;
+	}
+}
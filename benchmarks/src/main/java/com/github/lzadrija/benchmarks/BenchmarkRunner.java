@@ -0,0 +1,49 @@
+package com.github.lzadrija.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line options and always adds the GC profiler, so that every
+ * result reports the allocation rate next to the throughput.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		CommandLineOptions commandLineOptions;
+		try {
+			commandLineOptions = new CommandLineOptions(args);
+		} catch (CommandLineOptionException commandLineOptionException) {
+			System.err.println("Error parsing command line: " + commandLineOptionException.getMessage());
+			System.exit(1);
+			return;
+		}
+		if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList() || commandLineOptions.shouldListWithParams()
+			|| commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+
+		Options options = new OptionsBuilder().parent(commandLineOptions).addProfiler(GCProfiler.class).build();
+		try {
+			new Runner(options).run();
+		} catch (RunnerException runnerException) {
+			System.err.println("Benchmarks failed: " + runnerException.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.lzadrija.benchmarks.BenchmarkBoards;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Benchmarks of the Localization mode hot path: building the placement index (the sweep of the whole grid done on the first
+ * shot), finding the most likely target on the built index (every later shot) and finding the target as if a pending shot was
+ * a miss (the incremental update of the index). Boards are square, with the given ratio of cells already fired at. Indexes
+ * built by the benchmarks are never attached to the grid and the repository (see {@link PlacementIndex#attach()}), so no
+ * listener is left behind by an operation and nothing has to be detached.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ShipLocatorBenchmark {
+
+	@Param({ "10", "100", "500", "2000" })
+	public int boardSize;
+
+	@Param({ "0.0", "0.3", "0.6" })
+	public double fillRatio;
+
+	@Param({ BenchmarkBoards.DEFAULT_FLEET, BenchmarkBoards.DEFAULT_X4_FLEET, BenchmarkBoards.MIXED_FLEET })
+	public String fleet;
+
+	private Grid grid;
+	private ShipsRepository shipsRepository;
+	private ShipLocator locator;
+	private List<Point> pendingTargets;
+
+	@Setup
+	public void setUp() {
+
+		grid = BenchmarkBoards.createGrid(boardSize, fillRatio, BenchmarkBoards.SEED);
+		shipsRepository = BenchmarkBoards.createShipsRepository(fleet);
+
+		locator = new ShipLocator(null, 0, new Random(BenchmarkBoards.SEED));
+		Point firstTarget = locator.getNextObjective(grid, shipsRepository);
+		pendingTargets = (null == firstTarget) ? Collections.<Point>emptyList() : Collections.singletonList(firstTarget);
+	}
+
+	/**
+	 * Sweeps the whole grid with every hidden ship type in one thread.
+	 */
+	@Benchmark
+	public int[][] buildIndexSequentially() {
+
+		PlacementIndex index = new PlacementIndex(grid, shipsRepository, shipsRepository.getShipsCount());
+		return index.getLikelihoods();
+	}
+
+	/**
+	 * Sweeps the whole grid in the common pool, as the default locator does on large grids.
+	 */
+	@Benchmark
+	public int[][] buildIndexInParallel() {
+
+		PlacementIndex index = new PlacementIndex(grid, shipsRepository, shipsRepository.getShipsCount(), ForkJoinPool.commonPool(),
+												  ShipLocator.DEFAULT_PARALLEL_THRESHOLD);
+		return index.getLikelihoods();
+	}
+
+	/**
+	 * Finds the most likely target on the index built in the setup.
+	 */
+	@Benchmark
+	public Point findTarget() {
+		return locator.getNextObjective(grid, shipsRepository);
+	}
+
+	/**
+	 * Removes the placements through the first target from the index, finds the most likely target and restores the index.
+	 */
+	@Benchmark
+	public Point findTargetAssumingMiss() {
+		return locator.getNextObjectiveAssumingMisses(grid, shipsRepository, pendingTargets);
+	}
+}
@@ -0,0 +1,130 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.lzadrija.benchmarks.BenchmarkBoards;
+import com.github.lzadrija.dataProviders.SimulatedDataProvider;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.services.ShipsCombinationsComputer;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.repositories.ShipsRepository;
+import com.github.lzadrija.strategies.Executor;
+import com.github.lzadrija.strategies.IExecutor;
+
+/**
+ * Benchmarks of the identification of sunk ships, which is the worst case when one hit area holds several ships. The hit area
+ * holds the whole fleet, either packed side by side into one area (the adversarial case) or placed randomly on a small board,
+ * so that some ships touch and form areas of random shapes. Identification is measured as a whole (combinations of the hidden
+ * ships, exact cover of every cluster of the area, exposure of the ships), as well as the combination search and the exact
+ * cover alone. Every operation starts with a new repository and computer, so the combinations cache is always cold. The
+ * repository and the destroyer are created before every identification, outside of the measured time, and the destroyer shares
+ * one locator and executor that it never uses.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SunkShipsIdentifierBenchmark {
+
+	public static final String PACKED_LAYOUT = "PACKED";
+	public static final String SCATTERED_LAYOUT = "SCATTERED";
+
+	@Param({ "4", "8", "16", "24", "32", "40" })
+	public int fleetSize;
+
+	@Param({ PACKED_LAYOUT, SCATTERED_LAYOUT })
+	public String layout;
+
+	private List<Point> hits;
+	private List<Ship> sortedFleet;
+	private IExecutor executor;
+	private Grid grid;
+	private TargetFinder locator;
+
+	private ShipsRepository shipsRepository;
+	private DestroyerImpl destroyer;
+
+	@Setup
+	public void setUp() {
+
+		List<Ship> fleet = BenchmarkBoards.createFleet(fleetSize);
+		if (PACKED_LAYOUT.equals(layout)) {
+			hits = BenchmarkBoards.createPackedHits(fleet);
+		} else if (SCATTERED_LAYOUT.equals(layout)) {
+			hits = BenchmarkBoards.createScatteredHits(fleet, BenchmarkBoards.SEED);
+		} else {
+			throw new IllegalArgumentException("Unknown layout: " + layout);
+		}
+
+		sortedFleet = new ArrayList<>(BenchmarkBoards.createFleet(fleetSize));
+		Collections.sort(sortedFleet);
+
+		int size = 1;
+		for (int i = 0; i < hits.size(); i++) {
+			size = Math.max(size, Math.max(hits.get(i).getX(), hits.get(i).getY()) + 1);
+		}
+		grid = new Grid(size, size);
+		executor = new Executor(new SimulatedDataProvider(size, size, BenchmarkBoards.createFleet(fleetSize), BenchmarkBoards.SEED));
+		locator = new ShipLocator();
+	}
+
+	/**
+	 * Creates the repository of a new fleet and its destroyer, since identification exposes the ships of the repository.
+	 */
+	@Setup(Level.Invocation)
+	public void setUpDestroyer() {
+
+		shipsRepository = new ShipsRepository();
+		shipsRepository.addShips(BenchmarkBoards.createFleet(fleetSize));
+		destroyer = new DestroyerImpl(executor, grid, shipsRepository, locator, new Random(BenchmarkBoards.SEED));
+	}
+
+	/**
+	 * Identifies the ships of the hit area as the destroyer does when the area is sunk.
+	 */
+	@Benchmark
+	public ShipsRepository identifySunkShips() {
+
+		destroyer.identifySunkShips(hits);
+		return shipsRepository;
+	}
+
+	/**
+	 * Computes the combinations of the hidden ships whose size is equal to the size of the hit area.
+	 */
+	@Benchmark
+	public List<List<Ship>> getAllShipsSizeCombinations() {
+		return new ShipsCombinationsComputer().getAllShipsSizeCombinations(hits.size(), sortedFleet);
+	}
+
+	/**
+	 * Places the ships of the right combination (the whole fleet) over the hit area.
+	 */
+	@Benchmark
+	public List<Point> findShipsUpperLeftPoints() {
+		return new SunkShipsIdentifier(hits).findShipsUpperLeftPoints(sortedFleet);
+	}
+}
@@ -1,97 +1,224 @@
-package com.github.lzadrija;
-
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import com.github.lzadrija.dataProviders.DataProviderImpl;
-import com.github.lzadrija.dataProviders.DataProvider;
-import com.github.lzadrija.exceptions.DataNotAvailableException;
-import com.github.lzadrija.model.map.Grid;
-
-/**
- * 
- * Main class, used for initializing data and starting the game.
- * 
- * @author Lucija Zadrija
- *  
- */
-public class Game {
-
-	private static final Logger logger = Logger.getLogger(Game.class.getName());
-	private DataProvider dataProvider;
-	private Grid grid;
-	private Operation operation;
-
-	/**
-	 * Parses the input arguments in search of token.
-	 * 
-	 * @param args
-	 *            List of arguments.
-	 * @return Token or null if list of arguments is empty.
-	 */
-	private static String parseInputArguments(String[] args) {
-		return (0 != args.length ? args[0] : null);
-	}
-
-	/**
-	 * Creates data provider that provides information about sea map using web
-	 * service.
-	 * 
-	 * @param token
-	 *            Token to request data from service's access servers.
-	 * @throws DataNotAvailableException
-	 *             If token is null or cannot be retrieved.
-	 */
-	private void createDataProvider(String token) throws DataNotAvailableException {
-		if (null != token) {
-			dataProvider = new DataProviderImpl(token);
-		} else {
-			dataProvider = new DataProviderImpl();
-			dataProvider.retrieveToken();
-		}
-	}
-
-	/**
-	 * Initializes the grid representation of the sea map and handles it to new
-	 * operation object.
-	 * 
-	 * @throws DataNotAvailableException
-	 *             If number of rows or columns cannot be retrieved.
-	 */
-	private void initialize() throws DataNotAvailableException {
-
-		int gridHeight = dataProvider.retrieveNRows();
-		int gridWidth = dataProvider.retrieveNColumns();
-
-		grid = new Grid(gridHeight, gridWidth);
-		operation = new Operation(dataProvider, grid);
-	}
-
-	/**
-	 * Starts the game by starting the new operation.
-	 */
-	private void startGame() {
-		System.out.println(dataProvider.toString());
-		operation.startOperation();
-	}
-
-	/**
-	 * Main method.
-	 * 
-	 * @param args
-	 *            Command line arguments.
-	 */
-	public static void main(String[] args) {
-
-		String inputArgument = parseInputArguments(args);
-
-		Game newGame = new Game();
-		try {
-			newGame.createDataProvider(inputArgument);
-			newGame.initialize();
-			newGame.startGame();
-		} catch (DataNotAvailableException dataNotAvailableException) {
-			logger.log(Level.SEVERE, null, dataNotAvailableException);
-		}
-	}
-}
+package com.github.lzadrija;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.lzadrija.dataProviders.DataProviderImpl;
+import com.github.lzadrija.dataProviders.DataProvider;
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+import com.github.lzadrija.model.factories.ShipsFactory;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+import com.github.lzadrija.strategies.battle.TargetFinderType;
+
+/**
+ * 
+ * Main class, used for initializing data and starting the game.
+ * 
+ * @author Lucija Zadrija
+ *  
+ */
+public class Game {
+
+	private static final Logger logger = Logger.getLogger(Game.class.getName());
+	private static final String HUNT_PIPELINE_DEPTH_PROPERTY = "huntPipelineDepth";
+	private static final String ELIMINATION_BATCH_SIZE_PROPERTY = "eliminationBatchSize";
+	private static final String FLEET_PROPERTY = "fleet";
+	private static final String TARGET_FINDER_PROPERTY = "targetFinder";
+	private static final String ENDGAME_THRESHOLD_PROPERTY = "endgameThreshold";
+	private static final String MONTE_CARLO_SAMPLES_PROPERTY = "monteCarloSamples";
+	private static final String MONTE_CARLO_TIME_BUDGET_PROPERTY = "monteCarloTimeBudget";
+	private static final String FARM_ARGUMENT = "--farm";
+	private DataProvider dataProvider;
+	private Grid grid;
+	private Operation operation;
+
+	/**
+	 * Parses the input arguments in search of token.
+	 * 
+	 * @param args
+	 *            List of arguments.
+	 * @return Token or null if list of arguments is empty.
+	 */
+	private static String parseInputArguments(String[] args) {
+		return (0 != args.length ? args[0] : null);
+	}
+
+	/**
+	 * Creates data provider that provides information about sea map using web
+	 * service.
+	 * 
+	 * @param token
+	 *            Token to request data from service's access servers.
+	 * @throws DataNotAvailableException
+	 *             If token is null or cannot be retrieved.
+	 */
+	private void createDataProvider(String token) throws DataNotAvailableException {
+		if (null != token) {
+			dataProvider = new DataProviderImpl(token);
+		} else {
+			dataProvider = new DataProviderImpl();
+			dataProvider.retrieveToken();
+		}
+	}
+
+	/**
+	 * Initializes the grid representation of the sea map and handles it to new
+	 * operation object. As the sea map is retrieved from the web service, targets are fired at asynchronously. The other
+	 * settings of the operation are read from the system properties (see {@link #readOperationSettings()}). The fleet is read
+	 * from the file given by the "fleet" system property, or the default fleet is used.
+	 * 
+	 * @throws DataNotAvailableException
+	 *             If number of rows or columns cannot be retrieved.
+	 * @throws IOException
+	 *             If the fleet configuration cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the fleet configuration or the target finder type is invalid.
+	 */
+	private void initialize() throws DataNotAvailableException, IOException {
+
+		int gridHeight = dataProvider.retrieveNRows();
+		int gridWidth = dataProvider.retrieveNColumns();
+
+		grid = new Grid(gridHeight, gridWidth);
+		Map<ShipType, Integer> fleetConfiguration = readFleetConfiguration();
+		List<Ship> fleet = (null == fleetConfiguration) ? ShipsFactory.createFleet() : ShipsFactory.createFleet(fleetConfiguration);
+
+		OperationSettings settings = readOperationSettings();
+		settings.setAsynchronousFiring(true);
+		operation = new Operation(dataProvider, grid, fleet, settings);
+	}
+
+	/**
+	 * Reads the operation settings from the system properties: the hunt pipeline depth from "huntPipelineDepth", the elimination
+	 * batch size from "eliminationBatchSize", the target finder from "targetFinder", the endgame threshold from
+	 * "endgameThreshold", and the sample and time (in milliseconds) budgets of the Monte Carlo target finder from
+	 * "monteCarloSamples" and "monteCarloTimeBudget". Settings whose property is not set keep their default values (see
+	 * {@link OperationSettings}).
+	 * 
+	 * @return Operation settings.
+	 * @throws IllegalArgumentException
+	 *             If some setting is invalid.
+	 */
+	private static OperationSettings readOperationSettings() {
+
+		OperationSettings settings = new OperationSettings();
+		settings.setHuntPipelineDepth(Integer.getInteger(HUNT_PIPELINE_DEPTH_PROPERTY, settings.getHuntPipelineDepth()));
+		settings.setEliminationBatchSize(Integer.getInteger(ELIMINATION_BATCH_SIZE_PROPERTY, settings.getEliminationBatchSize()));
+		settings.setTargetFinderType(readTargetFinderType());
+		settings.setEndgameThreshold(Long.getLong(ENDGAME_THRESHOLD_PROPERTY, settings.getEndgameThreshold()));
+		settings.setMonteCarloSampleBudget(Integer.getInteger(MONTE_CARLO_SAMPLES_PROPERTY, settings.getMonteCarloSampleBudget()));
+		settings.setMonteCarloTimeBudgetMillis(Long.getLong(MONTE_CARLO_TIME_BUDGET_PROPERTY,
+															settings.getMonteCarloTimeBudgetMillis()));
+		return settings;
+	}
+
+	/**
+	 * Reads the fleet configuration from the file given by the "fleet" system property.
+	 * 
+	 * @return Number of ships of every type, or null if the property is not set.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the configuration is invalid.
+	 */
+	private static Map<ShipType, Integer> readFleetConfiguration() throws IOException {
+
+		String fleetPath = System.getProperty(FLEET_PROPERTY);
+		return (null != fleetPath) ? ShipsFactory.readFleetConfiguration(Paths.get(fleetPath)) : null;
+	}
+
+	/**
+	 * Reads the target finder type from the "targetFinder" system property, ignoring the case. The property can be LIKELIHOOD,
+	 * MONTE_CARLO or INFORMATION_GAIN.
+	 * 
+	 * @return Target finder type, {@link TargetFinderType#LIKELIHOOD} if the property is not set.
+	 * @throws IllegalArgumentException
+	 *             If the property does not name a target finder type.
+	 */
+	private static TargetFinderType readTargetFinderType() {
+
+		String targetFinderName = System.getProperty(TARGET_FINDER_PROPERTY);
+		return (null != targetFinderName) ? TargetFinderType.valueOf(targetFinderName.trim().toUpperCase(Locale.ROOT))
+				: TargetFinderType.LIKELIHOOD;
+	}
+
+	/**
+	 * Starts the game by starting the new operation. When the game is over, the number of shots and the average round-trip
+	 * time of the web service are printed.
+	 */
+	private void startGame() {
+		System.out.println(dataProvider.toString());
+		operation.startOperation();
+
+		if (dataProvider instanceof DataProviderImpl) {
+			DataProviderImpl webDataProvider = (DataProviderImpl) dataProvider;
+			System.out.println(String.format("Shots: %d, average round trip: %d ms", webDataProvider.getCellRequestsCount(),
+											 webDataProvider.getAverageCellRoundTripTime().toMillis()));
+		}
+	}
+
+	/**
+	 * Main method. Plays one game against the web service, using the token from the first argument if it is given. With
+	 * arguments "--farm games concurrency [rows columns [seed]]", plays many games against simulated sea maps instead (see
+	 * {@link GameFarm}). In both cases the fleet can be configured with the "fleet" system property, the target finder with the
+	 * "targetFinder" system property (LIKELIHOOD, MONTE_CARLO or INFORMATION_GAIN), the endgame threshold with the "endgameThreshold" system property, the budgets of the Monte
+	 * Carlo target finder with the "monteCarloSamples" and "monteCarloTimeBudget" system properties, and the hunt pipeline depth
+	 * and the elimination batch size with the "huntPipelineDepth" and "eliminationBatchSize" system properties.
+	 * 
+	 * @param args
+	 *            Command line arguments.
+	 */
+	public static void main(String[] args) {
+
+		if (0 != args.length && FARM_ARGUMENT.equals(args[0])) {
+			startFarm(args);
+			return;
+		}
+		String inputArgument = parseInputArguments(args);
+
+		Game newGame = new Game();
+		try {
+			newGame.createDataProvider(inputArgument);
+			newGame.initialize();
+			newGame.startGame();
+		} catch (DataNotAvailableException dataNotAvailableException) {
+			logger.log(Level.SEVERE, null, dataNotAvailableException);
+		} catch (IOException | IllegalArgumentException configurationException) {
+			logger.log(Level.SEVERE, "Configuration cannot be used", configurationException);
+		}
+	}
+
+	/**
+	 * Creates the game farm from the arguments that follow "--farm" and starts it.
+	 * 
+	 * @param args
+	 *            Command line arguments: --farm games concurrency [rows columns [seed]].
+	 */
+	private static void startFarm(String[] args) {
+
+		if (args.length < 3) {
+			System.out.println("Usage: --farm games concurrency [rows columns [seed]]");
+			return;
+		}
+		try {
+			int nGames = Integer.parseInt(args[1]);
+			int concurrency = Integer.parseInt(args[2]);
+			int nRows = (args.length > 4) ? Integer.parseInt(args[3]) : GameFarm.DEFAULT_N_ROWS;
+			int nColumns = (args.length > 4) ? Integer.parseInt(args[4]) : GameFarm.DEFAULT_N_COLUMNS;
+			long seed = (args.length > 5) ? Long.parseLong(args[5]) : 0;
+
+			GameFarm farm = new GameFarm(nGames, concurrency, nRows, nColumns, seed, readFleetConfiguration(), readOperationSettings());
+			farm.startFarm();
+			System.out.println(farm.toString());
+		} catch (IOException | IllegalArgumentException exception) {
+			logger.log(Level.SEVERE, null, exception);
+		}
+	}
+}
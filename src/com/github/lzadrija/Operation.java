@@ -1,67 +1,104 @@
-package com.github.lzadrija;
-
-import java.util.List;
-
-import com.github.lzadrija.dataProviders.DataProvider;
-import com.github.lzadrija.model.factories.ShipsFactory;
-import com.github.lzadrija.model.map.Grid;
-import com.github.lzadrija.model.ships.Ship;
-import com.github.lzadrija.repositories.ShipsRepository;
-import com.github.lzadrija.strategies.Executor;
-import com.github.lzadrija.strategies.IExecutor;
-import com.github.lzadrija.strategies.battle.DestroyerImpl;
-import com.github.lzadrija.strategies.battle.Destroyer;
-
-/**
- * This class initializes default group of ships and starts the process of their localization.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class Operation {
-
-	private final DataProvider dataProvider;
-
-	private final Grid grid;
-	private static ShipsRepository shipsRepository;
-
-	private final IExecutor executor;
-	private final Destroyer destroyer;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param dataProvider
-	 *            Data provider used for retrieving data about sea grid status.
-	 * @param grid
-	 *            Represents sea grid.
-	 * @throws NullPointerException
-	 *             If the parameters are null.
-	 */
-	public Operation(DataProvider dataProvider, Grid grid) {
-
-		this.dataProvider = dataProvider;
-		this.grid = grid;
-
-		shipsRepository = ShipsRepository.getInstance();
-		createFleet();
-
-		executor = new Executor(this.dataProvider);
-		destroyer = new DestroyerImpl(executor, this.grid);
-	}
-
-	/**
-	 * Used for initializing ships.
-	 */
-	private void createFleet() {
-		List<Ship> fleet = ShipsFactory.createFleet();
-		shipsRepository.addShips(fleet);
-	}
-
-	/**
-	 * Starts the ship localization process.
-	 */
-	public void startOperation() {
-		destroyer.sinkBattleShips();
-	}
-}
+package com.github.lzadrija;
+
+import java.util.List;
+import java.util.Random;
+
+import com.github.lzadrija.dataProviders.DataProvider;
+import com.github.lzadrija.model.factories.ShipsFactory;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.repositories.ShipsRepository;
+import com.github.lzadrija.strategies.Executor;
+import com.github.lzadrija.strategies.IExecutor;
+import com.github.lzadrija.strategies.battle.DestroyerImpl;
+
+/**
+ * This class initializes the group of ships (the default fleet unless another one is given) and starts the process of their localization. Every operation has its own fleet,
+ * grid and destroyer, so many operations can run concurrently in one process.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class Operation {
+
+	private final DataProvider dataProvider;
+
+	private final Grid grid;
+	private final ShipsRepository shipsRepository;
+
+	private final IExecutor executor;
+	private final DestroyerImpl destroyer;
+
+	/**
+	 * Constructor. The default fleet is located with the default settings (see {@link OperationSettings}).
+	 * 
+	 * @param dataProvider
+	 *            Data provider used for retrieving data about sea grid status.
+	 * @param grid
+	 *            Represents sea grid.
+	 * @throws NullPointerException
+	 *             If the parameters are null.
+	 */
+	public Operation(DataProvider dataProvider, Grid grid) {
+		this(dataProvider, grid, ShipsFactory.createFleet(), new OperationSettings());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dataProvider
+	 *            Data provider used for retrieving data about sea grid status.
+	 * @param grid
+	 *            Represents sea grid.
+	 * @param fleet
+	 *            Ships to be located, see {@link ShipsFactory#createFleet(java.util.Map)}.
+	 * @param settings
+	 *            Settings of the destroyer and the target finder, they are read only in the constructor.
+	 * @throws NullPointerException
+	 *             If the parameters are null.
+	 * @throws IllegalArgumentException
+	 *             If the fleet contains the same ship twice.
+	 */
+	public Operation(DataProvider dataProvider, Grid grid, List<Ship> fleet, OperationSettings settings) {
+
+		this.dataProvider = dataProvider;
+		this.grid = grid;
+
+		shipsRepository = new ShipsRepository();
+		shipsRepository.addShips(fleet);
+
+		executor = new Executor(this.dataProvider);
+		destroyer = new DestroyerImpl(executor, this.grid, shipsRepository, settings.getTargetFinderType()
+				.createTargetFinder(settings.getEndgameThreshold(), settings.getMonteCarloSampleBudget(),
+									settings.getMonteCarloTimeBudgetMillis()), new Random());
+		destroyer.setAsynchronousFiring(settings.isAsynchronousFiring());
+		destroyer.setHuntPipelineDepth(settings.getHuntPipelineDepth());
+		destroyer.setEliminationBatchSize(settings.getEliminationBatchSize());
+	}
+
+	/**
+	 * Starts the ship localization process.
+	 */
+	public void startOperation() {
+		destroyer.sinkBattleShips();
+	}
+
+	/**
+	 * Enables or disables printing of the operation's progress (enabled by default).
+	 * 
+	 * @param isVerbose
+	 *            True if the progress is printed.
+	 */
+	public void setVerbose(boolean isVerbose) {
+		destroyer.setVerbose(isVerbose);
+	}
+
+	/**
+	 * Returns the repository of the fleet of this operation.
+	 * 
+	 * @return Ships repository.
+	 */
+	public ShipsRepository getShipsRepository() {
+		return shipsRepository;
+	}
+}
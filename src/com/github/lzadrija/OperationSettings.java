@@ -0,0 +1,214 @@
+package com.github.lzadrija;
+
+import com.github.lzadrija.strategies.battle.MonteCarloTargetFinder;
+import com.github.lzadrija.strategies.battle.TargetFinderType;
+
+/**
+ * Settings of an operation, which are passed to its destroyer and target finder. Every setting has a default value, so only the
+ * settings that differ from the defaults need to be set. Settings are read when the operation is created, so one settings object
+ * can be used for creating many operations, as long as it is not changed while they are being created.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class OperationSettings {
+
+	private boolean isAsynchronousFiring;
+	private int huntPipelineDepth;
+	private int eliminationBatchSize;
+	private TargetFinderType targetFinderType;
+	private long endgameThreshold;
+	private int monteCarloSampleBudget;
+	private long monteCarloTimeBudgetMillis;
+
+	/**
+	 * Constructor. Targets are fired at synchronously, without hunt pipelining and elimination batching, and ships are located with
+	 * the likelihood target finder, without the endgame solver. The Monte Carlo target finder, if chosen, uses its default sample
+	 * and time budgets.
+	 */
+	public OperationSettings() {
+
+		isAsynchronousFiring = false;
+		huntPipelineDepth = 1;
+		eliminationBatchSize = 1;
+		targetFinderType = TargetFinderType.LIKELIHOOD;
+		endgameThreshold = 0;
+		monteCarloSampleBudget = MonteCarloTargetFinder.DEFAULT_SAMPLE_BUDGET;
+		monteCarloTimeBudgetMillis = MonteCarloTargetFinder.DEFAULT_TIME_BUDGET_MILLIS;
+	}
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param settings
+	 *            Settings that are copied.
+	 * @throws NullPointerException
+	 *             If the settings are null.
+	 */
+	public OperationSettings(OperationSettings settings) {
+
+		isAsynchronousFiring = settings.isAsynchronousFiring;
+		huntPipelineDepth = settings.huntPipelineDepth;
+		eliminationBatchSize = settings.eliminationBatchSize;
+		targetFinderType = settings.targetFinderType;
+		endgameThreshold = settings.endgameThreshold;
+		monteCarloSampleBudget = settings.monteCarloSampleBudget;
+		monteCarloTimeBudgetMillis = settings.monteCarloTimeBudgetMillis;
+	}
+
+	public boolean isAsynchronousFiring() {
+		return isAsynchronousFiring;
+	}
+
+	/**
+	 * Enables or disables asynchronous firing (disabled by default).
+	 *
+	 * @param isAsynchronousFiring
+	 *            True if the next target should be computed while the request for the current target is in flight.
+	 */
+	public void setAsynchronousFiring(boolean isAsynchronousFiring) {
+		this.isAsynchronousFiring = isAsynchronousFiring;
+	}
+
+	public int getHuntPipelineDepth() {
+		return huntPipelineDepth;
+	}
+
+	/**
+	 * Sets the maximal number of shots in flight while ships are being located (1 by default).
+	 *
+	 * @param huntPipelineDepth
+	 *            Maximal number of shots in flight, 1 disables pipelining.
+	 * @throws IllegalArgumentException
+	 *             If depth is less than 1.
+	 */
+	public void setHuntPipelineDepth(int huntPipelineDepth) {
+
+		if (huntPipelineDepth < 1) {
+			throw new IllegalArgumentException("Hunt pipeline depth must be positive: " + huntPipelineDepth);
+		}
+		this.huntPipelineDepth = huntPipelineDepth;
+	}
+
+	public int getEliminationBatchSize() {
+		return eliminationBatchSize;
+	}
+
+	/**
+	 * Sets the maximal number of cells fired at in one batch while ships are being eliminated (1 by default).
+	 *
+	 * @param eliminationBatchSize
+	 *            Maximal number of cells in one batch, 1 disables batching.
+	 * @throws IllegalArgumentException
+	 *             If batch size is less than 1.
+	 */
+	public void setEliminationBatchSize(int eliminationBatchSize) {
+
+		if (eliminationBatchSize < 1) {
+			throw new IllegalArgumentException("Elimination batch size must be positive: " + eliminationBatchSize);
+		}
+		this.eliminationBatchSize = eliminationBatchSize;
+	}
+
+	public TargetFinderType getTargetFinderType() {
+		return targetFinderType;
+	}
+
+	/**
+	 * Sets the target finder used while ships are being located ({@link TargetFinderType#LIKELIHOOD} by default).
+	 *
+	 * @param targetFinderType
+	 *            Target finder type.
+	 * @throws NullPointerException
+	 *             If the target finder type is null.
+	 */
+	public void setTargetFinderType(TargetFinderType targetFinderType) {
+
+		if (null == targetFinderType) {
+			throw new NullPointerException("Target finder type cannot be null");
+		}
+		this.targetFinderType = targetFinderType;
+	}
+
+	public long getEndgameThreshold() {
+		return endgameThreshold;
+	}
+
+	/**
+	 * Sets the number of placements of the hidden ships below which the next target is found by the exact endgame solver (0 by
+	 * default, see {@link com.github.lzadrija.strategies.battle.ShipLocator#setEndgameThreshold(long)}).
+	 *
+	 * @param endgameThreshold
+	 *            Number of placements, 0 disables the endgame solver.
+	 * @throws IllegalArgumentException
+	 *             If the threshold is negative.
+	 */
+	public void setEndgameThreshold(long endgameThreshold) {
+
+		if (endgameThreshold < 0) {
+			throw new IllegalArgumentException("Endgame threshold cannot be negative: " + endgameThreshold);
+		}
+		this.endgameThreshold = endgameThreshold;
+	}
+
+	public int getMonteCarloSampleBudget() {
+		return monteCarloSampleBudget;
+	}
+
+	/**
+	 * Sets the maximal number of configurations of the hidden fleet drawn for every target by the Monte Carlo target finder
+	 * ({@link MonteCarloTargetFinder#DEFAULT_SAMPLE_BUDGET} by default). Other target finders ignore it.
+	 *
+	 * @param monteCarloSampleBudget
+	 *            Maximal number of configurations.
+	 * @throws IllegalArgumentException
+	 *             If the budget is not positive.
+	 */
+	public void setMonteCarloSampleBudget(int monteCarloSampleBudget) {
+
+		if (monteCarloSampleBudget <= 0) {
+			throw new IllegalArgumentException("Sample budget must be positive: " + monteCarloSampleBudget);
+		}
+		this.monteCarloSampleBudget = monteCarloSampleBudget;
+	}
+
+	public long getMonteCarloTimeBudgetMillis() {
+		return monteCarloTimeBudgetMillis;
+	}
+
+	/**
+	 * Sets the maximal time that the Monte Carlo target finder may spend sampling for every target
+	 * ({@link MonteCarloTargetFinder#DEFAULT_TIME_BUDGET_MILLIS} by default). Other target finders ignore it.
+	 *
+	 * @param monteCarloTimeBudgetMillis
+	 *            Maximal time in milliseconds.
+	 * @throws IllegalArgumentException
+	 *             If the budget is not positive.
+	 */
+	public void setMonteCarloTimeBudgetMillis(long monteCarloTimeBudgetMillis) {
+
+		if (monteCarloTimeBudgetMillis <= 0) {
+			throw new IllegalArgumentException("Time budget must be positive: " + monteCarloTimeBudgetMillis);
+		}
+		this.monteCarloTimeBudgetMillis = monteCarloTimeBudgetMillis;
+	}
+
+	/**
+	 * Returns description of the settings that affect the shots fired. The exact details of the representation are subject to
+	 * change, but the following may be regarded as typical:
+	 *
+	 * MONTE_CARLO (10000 samples, 50 ms), endgame threshold 0, hunt pipeline depth 1, elimination batch size 1
+	 *
+	 * The budgets are shown only for the Monte Carlo target finder.
+	 */
+	@Override
+	public String toString() {
+
+		String targetFinder = targetFinderType.toString();
+		if (TargetFinderType.MONTE_CARLO == targetFinderType) {
+			targetFinder += String.format(" (%d samples, %d ms)", monteCarloSampleBudget, monteCarloTimeBudgetMillis);
+		}
+		return String.format("%s, endgame threshold %d, hunt pipeline depth %d, elimination batch size %d", targetFinder,
+							 endgameThreshold, huntPipelineDepth, eliminationBatchSize);
+	}
+}
@@ -1,67 +1,129 @@
-package com.github.lzadrija.dataProviders;
-
-import com.github.lzadrija.exceptions.DataNotAvailableException;
-
-/**
- * This interface provides methods for sea map data extraction, such as number of rows and columns and if ship is located at a certain
- * position on the map.
- *         
- * @author Lucija Zadrija
- *  
- */
-public interface DataProvider {
-
-	/**
-	 * Retrieves token.
-	 * 
-	 * @throws DataNotAvailableException
-	 *             If token is null or cannot be retrieved.
-	 */
-	void retrieveToken() throws DataNotAvailableException;
-
-	/**
-	 * Returns the number of rows of sea map.
-	 * 
-	 * @return Number of rows in a map.
-	 * @throws DataNotAvailableException
-	 *             If number of rows cannot be retrieved.
-	 */
-	int retrieveNRows() throws DataNotAvailableException;
-
-	/**
-	 * Returns the number of columns of sea map.
-	 * 
-	 * @return Number of columns in a map.
-	 * @throws DataNotAvailableException
-	 *             If number of columns cannot be retrieved.
-	 */
-	int retrieveNColumns() throws DataNotAvailableException;
-
-	/**
-	 * Retrieves the content of sea map in a certain position.
-	 * 
-	 * @param xCoordinate
-	 *            x coordinate
-	 * @param yCoordinate
-	 *            y coordinate
-	 * @return 1 - Ship is located in this position on the map 0 - There is no ship on this position on the map
-	 * @throws DataNotAvailableException
-	 *             If cell content cannot be retrieved.
-	 */
-	int getCellContent(int xCoordinate, int yCoordinate)
-			throws DataNotAvailableException;
-
-	/**
-	 * Returns the numerical representation of a HIT (if a ship is located at a certain position on the map). 1 is typically returned.
-	 * 
-	 * @return the numerical representation of a HIT
-	 */
-	int getHitCode();
-
-	/**
-	 * Returns the numerical representation of a MISS (if a ship is not located at a certain position on the map). 0 is typically returned.
-	 * 
-	 * @return the numerical representation of a MISS
-	 */
-	int getMissCode();
-}
+package com.github.lzadrija.dataProviders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+
+/**
+ * This interface provides methods for sea map data extraction, such as number of rows and columns and if ship is located at a certain
+ * position on the map.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public interface DataProvider {
+
+	/**
+	 * Retrieves token.
+	 * 
+	 * @throws DataNotAvailableException
+	 *             If token is null or cannot be retrieved.
+	 */
+	void retrieveToken() throws DataNotAvailableException;
+
+	/**
+	 * Returns the number of rows of sea map.
+	 * 
+	 * @return Number of rows in a map.
+	 * @throws DataNotAvailableException
+	 *             If number of rows cannot be retrieved.
+	 */
+	int retrieveNRows() throws DataNotAvailableException;
+
+	/**
+	 * Returns the number of columns of sea map.
+	 * 
+	 * @return Number of columns in a map.
+	 * @throws DataNotAvailableException
+	 *             If number of columns cannot be retrieved.
+	 */
+	int retrieveNColumns() throws DataNotAvailableException;
+
+	/**
+	 * Retrieves the content of sea map in a certain position.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate
+	 * @param yCoordinate
+	 *            y coordinate
+	 * @return 1 - Ship is located in this position on the map 0 - There is no ship on this position on the map
+	 * @throws DataNotAvailableException
+	 *             If cell content cannot be retrieved.
+	 */
+	int getCellContent(int xCoordinate, int yCoordinate)
+			throws DataNotAvailableException;
+
+	/**
+	 * Retrieves the content of sea map in several positions at once. Providers that cannot retrieve several cells in one request
+	 * use this default implementation, which requests all cells concurrently (one virtual thread per cell) and waits for all of
+	 * them.
+	 * 
+	 * @param xCoordinates
+	 *            x coordinates
+	 * @param yCoordinates
+	 *            y coordinates, of the same length as x coordinates
+	 * @return Content of each position, in the order of the given coordinates (see {@link #getCellContent(int, int)}).
+	 * @throws DataNotAvailableException
+	 *             If content of any cell cannot be retrieved.
+	 * @throws IllegalArgumentException
+	 *             If the coordinate arrays differ in length.
+	 */
+	default int[] getCellsContent(int[] xCoordinates, int[] yCoordinates) throws DataNotAvailableException {
+
+		if (xCoordinates.length != yCoordinates.length) {
+			throw new IllegalArgumentException("Coordinate arrays differ in length");
+		}
+		int[] cellsContent = new int[xCoordinates.length];
+		if (1 == cellsContent.length) {
+			cellsContent[0] = getCellContent(xCoordinates[0], yCoordinates[0]);
+			return cellsContent;
+		}
+
+		try (ExecutorService requestsExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<Integer>> cellsContentFutures = new ArrayList<>(cellsContent.length);
+			for (int i = 0; i < cellsContent.length; i++) {
+				final int xCoordinate = xCoordinates[i], yCoordinate = yCoordinates[i];
+
+				cellsContentFutures.add(requestsExecutor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws DataNotAvailableException {
+						return getCellContent(xCoordinate, yCoordinate);
+					}
+				}));
+			}
+			for (int i = 0; i < cellsContent.length; i++) {
+				cellsContent[i] = cellsContentFutures.get(i).get();
+			}
+		} catch (ExecutionException executionException) {
+			Throwable cause = executionException.getCause();
+			if (cause instanceof DataNotAvailableException) {
+				throw (DataNotAvailableException) cause;
+			}
+			throw new DataNotAvailableException(cause);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			throw new DataNotAvailableException(interruptedException);
+		}
+		return cellsContent;
+	}
+
+	/**
+	 * Returns the numerical representation of a HIT (if a ship is located at a certain position on the map). 1 is typically returned.
+	 * 
+	 * @return the numerical representation of a HIT
+	 */
+	int getHitCode();
+
+	/**
+	 * Returns the numerical representation of a MISS (if a ship is not located at a certain position on the map). 0 is typically returned.
+	 * 
+	 * @return the numerical representation of a MISS
+	 */
+	int getMissCode();
+}
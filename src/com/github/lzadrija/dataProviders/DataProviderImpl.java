@@ -1,213 +1,293 @@
-package com.github.lzadrija.dataProviders;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
-
-import com.github.lzadrija.exceptions.DataNotAvailableException;
-
-/**
- * This class provides information about sea map using web service. It uses token to request data from 
- * Google's service access servers.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class DataProviderImpl implements DataProvider {
-
-	private static String token;
-	private static int nColumns, nRows;
-
-	private static final int HIT_CODE = 1;
-	private static final int MISS_CODE = 0;
-	private static final String TOKEN_URL = "https://script.google.com/macros/s/"
-			+ "AKfycbzrtCcdp_GUx3rEypG6WgDZJ4lExmZy8IU-gxb2HwaYt_jPM2s/exec?method=GetToken";
-	private static final String URL_PREFIX = "https://script.google.com/macros/s/"
-			+ "AKfycbzrtCcdp_GUx3rEypG6WgDZJ4lExmZy8IU-gxb2HwaYt_jPM2s/exec?token=";
-	private static final String GET_NROWS_METHOD = "&method=GetRowCount";
-	private static final String GET_NCOLUMNS_METHOD = "&method=GetColumnCount";
-	private static final String GET_CELL_METHOD = "&method=GetCellAt";
-	private static final String CELL_ROW = "&row=";
-	private static final String CELL_COLUMN = "&col=";
-
-	/**
-	 * Constructor used when user provides token.
-	 * 
-	 * @param token
-	 *            Token to request data from Google's service access servers.
-	 * @throws NullPointerException
-	 *             If token is null.
-	 */
-	public DataProviderImpl(String token) {
-
-		if (null == token) {
-			throw new NullPointerException("Invalid token.");
-		}
-		DataProviderImpl.token = token;
-	}
-
-	/**
-	 * Default constructor.
-	 */
-	public DataProviderImpl() {
-
-	}
-
-	@Override
-	public void retrieveToken() throws DataNotAvailableException {
-		String token = getResult(TOKEN_URL);
-		DataProviderImpl.token = token;
-	}
-
-	@Override
-	public int getCellContent(int xCoordinate, int yCoordinate) throws DataNotAvailableException {
-
-		StringBuilder urlSb = new StringBuilder();
-		urlSb.append(URL_PREFIX).append(token).append(GET_CELL_METHOD).append(CELL_ROW).append(yCoordinate).append(CELL_COLUMN).append(xCoordinate);
-		String url = urlSb.toString();
-
-		String cellContentString = getResult(url);
-
-		int cellContent;
-		try {
-			cellContent = getNumericalResult(cellContentString);
-		} catch (NumberFormatException numberFormatException) {
-			throw new DataNotAvailableException(numberFormatException);
-		}
-		return cellContent;
-	}
-
-	/**
-	 * Retrieves result using the given URL
-	 * 
-	 * @param URLString
-	 *            URL.
-	 * @return String result retrieved using the given URL
-	 * @throws DataNotAvailableException. If
-	 *             connection cannot be established or I/O error occurs.
-	 */
-	private static String getResult(String URLString) throws DataNotAvailableException {
-
-		URLConnection connection = getConnection(URLString);
-
-		String inputLine = null;
-		String result = null;
-
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));) {
-			inputLine = in.readLine();
-			result = inputLine.trim();
-		} catch (IOException ioException) {
-			throw new DataNotAvailableException(ioException);
-		}
-		return result;
-	}
-
-	/**
-	 * Used for retrieving a connection to the remote object referred to by the
-	 * URL.
-	 * 
-	 * @param URLString
-	 *            String representing URL
-	 * @return URLConnection instance that represents a connection to the remote
-	 *         object referred to by the URL.
-	 * @throws DataNotAvailableException
-	 *             if an I/O exception occurs or when creating URL from String -
-	 *             if no protocol is specified, or an unknown protocol is found,
-	 *             or spec is null.
-	 */
-	private static URLConnection getConnection(String URLString) throws DataNotAvailableException {
-
-		URL url = null;
-		URLConnection connection = null;
-
-		try {
-			url = new URL(URLString);
-			connection = url.openConnection();
-		} catch (MalformedURLException malformedURLException) {
-			throw new DataNotAvailableException(malformedURLException);
-		} catch (IOException ioException) {
-			throw new DataNotAvailableException(ioException);
-		}
-
-		return connection;
-	}
-
-	@Override
-	public int retrieveNRows() throws DataNotAvailableException {
-
-		if (0 == nRows) {
-			StringBuilder urlSb = new StringBuilder();
-			urlSb.append(URL_PREFIX).append(token).append(GET_NROWS_METHOD);
-			String url = urlSb.toString();
-
-			String nRowsString = getResult(url);
-
-			try {
-				nRows = getNumericalResult(nRowsString);
-			} catch (NumberFormatException numberFormatException) {
-				throw new DataNotAvailableException(numberFormatException);
-			}
-		}
-		return nRows;
-	}
-
-	@Override
-	public int retrieveNColumns() throws DataNotAvailableException {
-
-		if (0 == nColumns) {
-			StringBuilder urlSb = new StringBuilder();
-			urlSb.append(URL_PREFIX).append(token).append(GET_NCOLUMNS_METHOD);
-			String url = urlSb.toString();
-
-			String nColumnsString = getResult(url);
-
-			try {
-				nColumns = getNumericalResult(nColumnsString);
-			} catch (NumberFormatException numberFormatException) {
-				throw new DataNotAvailableException(numberFormatException);
-			}
-		}
-		return nColumns;
-	}
-
-	/**
-	 * Parses string argument as a signed decimal integer and returns the
-	 * result.
-	 * 
-	 * @param resultString
-	 *            String containing the int representation to be parsed.
-	 * @return int representation of string.
-	 * @throws NumberFormatException
-	 *             If the string does not contain a parsable integer.
-	 */
-	private static int getNumericalResult(String resultString) {
-
-		int result = Integer.parseInt(resultString);
-
-		return result;
-	}
-
-	@Override
-	public int getHitCode() {
-		return HIT_CODE;
-	}
-
-	@Override
-	public int getMissCode() {
-		return MISS_CODE;
-	}
-
-	/**
-	 * Returns representation of point. The exact details of the representation
-	 * are subject to change, but the following may be regarded as typical:
-	 * 
-	 * Token: 867711
-	 */
-	@Override
-	public String toString() {
-		return String.format("Token: %s", token);
-	}
-}
+package com.github.lzadrija.dataProviders;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+
+/**
+ * This class provides information about sea map using web service. It uses token to request data from 
+ * Google's service access servers. All requests are sent through one HTTP client, so connections to the service are kept
+ * alive and reused between shots (HTTP/2 is used when the server supports it). The round-trip time of every cell request
+ * is measured.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class DataProviderImpl implements DataProvider {
+
+	private static final Logger logger = Logger.getLogger(DataProviderImpl.class.getName());
+
+	private String token;
+	private int nColumns, nRows;
+
+	private static final int HIT_CODE = 1;
+	private static final int MISS_CODE = 0;
+	private static final int HTTP_OK = 200;
+
+	/**
+	 * Address of the Google Apps Script service.
+	 */
+	public static final String SERVICE_URL = "https://script.google.com/macros/s/"
+			+ "AKfycbzrtCcdp_GUx3rEypG6WgDZJ4lExmZy8IU-gxb2HwaYt_jPM2s/exec";
+	public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+	public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+
+	private static final String GET_TOKEN_METHOD = "?method=GetToken";
+	private static final String TOKEN_PARAMETER = "?token=";
+	private static final String GET_NROWS_METHOD = "&method=GetRowCount";
+	private static final String GET_NCOLUMNS_METHOD = "&method=GetColumnCount";
+	private static final String GET_CELL_METHOD = "&method=GetCellAt";
+	private static final String CELL_ROW = "&row=";
+	private static final String CELL_COLUMN = "&col=";
+
+	private final String serviceUrl;
+	private final HttpClient httpClient;
+	private final HttpRequest.Builder requestTemplate;
+
+	private String cellUrlPrefix;
+
+	private long nCellRequests;
+	private long cellRoundTripNanos;
+
+	/**
+	 * Constructor used when user provides token.
+	 * 
+	 * @param token
+	 *            Token to request data from Google's service access servers.
+	 * @throws NullPointerException
+	 *             If token is null.
+	 */
+	public DataProviderImpl(String token) {
+
+		this(SERVICE_URL, token, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+
+		if (null == token) {
+			throw new NullPointerException("Invalid token.");
+		}
+	}
+
+	/**
+	 * Default constructor.
+	 */
+	public DataProviderImpl() {
+		this(SERVICE_URL, null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param serviceUrl
+	 *            Address of the service, without the query part.
+	 * @param token
+	 *            Token to request data from the service, or null if the token is retrieved later.
+	 * @param connectTimeout
+	 *            Maximal time for establishing a connection to the service.
+	 * @param readTimeout
+	 *            Maximal time for receiving the response to a request.
+	 * @throws NullPointerException
+	 *             If service URL or timeouts are null.
+	 */
+	public DataProviderImpl(String serviceUrl, String token, Duration connectTimeout, Duration readTimeout) {
+
+		if (null == serviceUrl) {
+			throw new NullPointerException("Service URL cannot be null");
+		}
+		if (null == connectTimeout || null == readTimeout) {
+			throw new NullPointerException("Timeouts cannot be null");
+		}
+
+		this.serviceUrl = serviceUrl;
+		httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(connectTimeout).build();
+		requestTemplate = HttpRequest.newBuilder().timeout(readTimeout).GET();
+
+		if (null != token) {
+			setToken(token);
+		}
+	}
+
+	/**
+	 * Sets the token and prepares the prefix of the cell requests' URL, so that only the coordinates are appended on every shot.
+	 *
+	 * @param token
+	 *            Token.
+	 */
+	private void setToken(String token) {
+		this.token = token;
+		cellUrlPrefix = serviceUrl + TOKEN_PARAMETER + token + GET_CELL_METHOD + CELL_ROW;
+	}
+
+	@Override
+	public void retrieveToken() throws DataNotAvailableException {
+		String token = getResult(serviceUrl + GET_TOKEN_METHOD);
+		setToken(token);
+	}
+
+	@Override
+	public int getCellContent(int xCoordinate, int yCoordinate) throws DataNotAvailableException {
+
+		if (null == cellUrlPrefix) {
+			setToken(token);
+		}
+		String url = cellUrlPrefix + yCoordinate + CELL_COLUMN + xCoordinate;
+
+		long startTime = System.nanoTime();
+		String cellContentString = getResult(url);
+		long roundTripNanos = System.nanoTime() - startTime;
+
+		recordCellRoundTrip(roundTripNanos);
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine(String.format("GetCellAt row = %d, col = %d: %.1f ms", yCoordinate, xCoordinate, roundTripNanos / 1e6));
+		}
+
+		int cellContent;
+		try {
+			cellContent = getNumericalResult(cellContentString);
+		} catch (NumberFormatException numberFormatException) {
+			throw new DataNotAvailableException(numberFormatException);
+		}
+		return cellContent;
+	}
+
+	/**
+	 * Retrieves result using the given URL. The first line of the response is returned.
+	 * 
+	 * @param URLString
+	 *            URL.
+	 * @return String result retrieved using the given URL
+	 * @throws DataNotAvailableException
+	 *             If URL is invalid, request fails, times out or the service responds with an error status.
+	 */
+	private String getResult(String URLString) throws DataNotAvailableException {
+
+		HttpResponse<String> response;
+		try {
+			HttpRequest request = requestTemplate.copy().uri(URI.create(URLString)).build();
+			response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		} catch (IllegalArgumentException illegalArgumentException) {
+			throw new DataNotAvailableException(illegalArgumentException);
+		} catch (IOException ioException) {
+			throw new DataNotAvailableException(ioException);
+		} catch (InterruptedException interruptedException) {
+			Thread.currentThread().interrupt();
+			throw new DataNotAvailableException(interruptedException);
+		}
+
+		if (HTTP_OK != response.statusCode()) {
+			throw new DataNotAvailableException("Unexpected response status: " + response.statusCode());
+		}
+		String body = response.body();
+		int lineEnd = body.indexOf('\n');
+		String result = (-1 == lineEnd) ? body.trim() : body.substring(0, lineEnd).trim();
+
+		return result;
+	}
+
+	/**
+	 * Adds the round-trip time of one cell request to the statistics.
+	 * 
+	 * @param roundTripNanos
+	 *            Round-trip time in nanoseconds.
+	 */
+	private synchronized void recordCellRoundTrip(long roundTripNanos) {
+		nCellRequests++;
+		cellRoundTripNanos += roundTripNanos;
+	}
+
+	@Override
+	public int retrieveNRows() throws DataNotAvailableException {
+
+		if (0 == nRows) {
+			String url = serviceUrl + TOKEN_PARAMETER + token + GET_NROWS_METHOD;
+
+			String nRowsString = getResult(url);
+
+			try {
+				nRows = getNumericalResult(nRowsString);
+			} catch (NumberFormatException numberFormatException) {
+				throw new DataNotAvailableException(numberFormatException);
+			}
+		}
+		return nRows;
+	}
+
+	@Override
+	public int retrieveNColumns() throws DataNotAvailableException {
+
+		if (0 == nColumns) {
+			String url = serviceUrl + TOKEN_PARAMETER + token + GET_NCOLUMNS_METHOD;
+
+			String nColumnsString = getResult(url);
+
+			try {
+				nColumns = getNumericalResult(nColumnsString);
+			} catch (NumberFormatException numberFormatException) {
+				throw new DataNotAvailableException(numberFormatException);
+			}
+		}
+		return nColumns;
+	}
+
+	/**
+	 * Parses string argument as a signed decimal integer and returns the
+	 * result.
+	 * 
+	 * @param resultString
+	 *            String containing the int representation to be parsed.
+	 * @return int representation of string.
+	 * @throws NumberFormatException
+	 *             If the string does not contain a parsable integer.
+	 */
+	private static int getNumericalResult(String resultString) {
+
+		int result = Integer.parseInt(resultString);
+
+		return result;
+	}
+
+	@Override
+	public int getHitCode() {
+		return HIT_CODE;
+	}
+
+	@Override
+	public int getMissCode() {
+		return MISS_CODE;
+	}
+
+	/**
+	 * Returns the number of cell requests sent so far (the number of shots fired at the sea map).
+	 *
+	 * @return Number of cell requests.
+	 */
+	public synchronized long getCellRequestsCount() {
+		return nCellRequests;
+	}
+
+	/**
+	 * Returns the average round-trip time of the cell requests sent so far.
+	 *
+	 * @return Average round-trip time, or zero if no cell request was sent.
+	 */
+	public synchronized Duration getAverageCellRoundTripTime() {
+		return (0 == nCellRequests) ? Duration.ZERO : Duration.ofNanos(cellRoundTripNanos / nCellRequests);
+	}
+
+	/**
+	 * Returns representation of point. The exact details of the representation
+	 * are subject to change, but the following may be regarded as typical:
+	 * 
+	 * Token: 867711
+	 */
+	@Override
+	public String toString() {
+		return String.format("Token: %s", token);
+	}
+}
@@ -0,0 +1,244 @@
+package com.github.lzadrija.dataProviders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.factories.ShipsFactory;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.ships.Ship;
+
+/**
+ * This class provides information about a sea map that is generated in memory, without the web service. Ships of the fleet are
+ * placed on random positions so that they do not overlap (they can be placed side by side). The same seed always produces the
+ * same sea map, which makes games repeatable when measuring the solver.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class SimulatedDataProvider implements DataProvider {
+
+	private static final int HIT_CODE = 1;
+	private static final int MISS_CODE = 0;
+	private static final int MAX_RANDOM_ATTEMPTS = 1000;
+
+	private final int nRows, nColumns;
+	private final long seed;
+
+	private final Grid seaMap;
+	private final List<Ship> placedShips;
+
+	private long nCellRequests;
+
+	/**
+	 * Constructor. Places the default fleet on the sea map.
+	 *
+	 * @param nRows
+	 *            Number of rows of the sea map.
+	 * @param nColumns
+	 *            Number of columns of the sea map.
+	 * @param seed
+	 *            Seed of the random number generator used for placing the ships.
+	 * @throws IndexOutOfBoundsException
+	 *             If number of rows or columns is zero or negative.
+	 * @throws IllegalArgumentException
+	 *             If the fleet cannot be placed on the sea map.
+	 */
+	public SimulatedDataProvider(int nRows, int nColumns, long seed) {
+		this(nRows, nColumns, ShipsFactory.createFleet(), seed);
+	}
+
+	/**
+	 * Constructor. Places the given fleet on the sea map, largest ships first.
+	 *
+	 * @param nRows
+	 *            Number of rows of the sea map.
+	 * @param nColumns
+	 *            Number of columns of the sea map.
+	 * @param fleet
+	 *            Ships that are placed on the sea map. Positions of the given ships are set.
+	 * @param seed
+	 *            Seed of the random number generator used for placing the ships.
+	 * @throws IndexOutOfBoundsException
+	 *             If number of rows or columns is zero or negative.
+	 * @throws IllegalArgumentException
+	 *             If the fleet cannot be placed on the sea map.
+	 */
+	public SimulatedDataProvider(int nRows, int nColumns, List<Ship> fleet, long seed) {
+
+		this.nRows = nRows;
+		this.nColumns = nColumns;
+		this.seed = seed;
+
+		seaMap = new Grid(nRows, nColumns);
+		placedShips = new ArrayList<>(fleet);
+		Collections.sort(placedShips, Collections.reverseOrder());
+
+		Random random = new Random(seed);
+		for (Iterator<Ship> iterator = placedShips.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+			placeShip(ship, random);
+		}
+	}
+
+	/**
+	 * Places the ship on a random position where it does not overlap with previously placed ships. Random positions are tried
+	 * first, and if none of them is free, a position is chosen randomly among all free positions.
+	 *
+	 * @param ship
+	 *            Ship to be placed.
+	 * @param random
+	 *            Random number generator.
+	 * @throws IllegalArgumentException
+	 *             If there is no free position for the ship.
+	 */
+	private void placeShip(Ship ship, Random random) {
+
+		int nUpperLeftRows = nRows - ship.getHeight() + 1;
+		int nUpperLeftColumns = nColumns - ship.getWidth() + 1;
+		if (nUpperLeftRows <= 0 || nUpperLeftColumns <= 0) {
+			throw new IllegalArgumentException("Ship does not fit on the sea map: " + ship.toString());
+		}
+
+		StructureMask structureMask = ship.getStructureMask();
+		Point upperLeftPoint = null;
+		for (int attempt = 0; attempt < MAX_RANDOM_ATTEMPTS && null == upperLeftPoint; attempt++) {
+			Point candidate = new Point(random.nextInt(nUpperLeftColumns), random.nextInt(nUpperLeftRows));
+
+			if (seaMap.isGridPortionUndefined(candidate, structureMask)) {
+				upperLeftPoint = candidate;
+			}
+		}
+
+		if (null == upperLeftPoint) {
+			List<Point> freePositions = new ArrayList<>();
+			for (int j = 0; j < nUpperLeftRows; j++) {
+				for (int k = 0; k < nUpperLeftColumns; k++) {
+					if (seaMap.isGridPortionUndefined(k, j, structureMask)) {
+						freePositions.add(new Point(k, j));
+					}
+				}
+			}
+			if (freePositions.isEmpty()) {
+				throw new IllegalArgumentException("No free position for ship: " + ship.toString());
+			}
+			upperLeftPoint = freePositions.get(random.nextInt(freePositions.size()));
+		}
+
+		ship.setPosition(upperLeftPoint);
+		for (Iterator<Point> iterator = ship.getStructure().iterator(); iterator.hasNext();) {
+			Point relativePosition = iterator.next();
+			seaMap.occupyCellAt(upperLeftPoint.getPointRelativeToThis(relativePosition));
+		}
+	}
+
+	/**
+	 * The simulated sea map does not require a token.
+	 */
+	@Override
+	public void retrieveToken() throws DataNotAvailableException {
+
+	}
+
+	@Override
+	public int retrieveNRows() throws DataNotAvailableException {
+		return nRows;
+	}
+
+	@Override
+	public int retrieveNColumns() throws DataNotAvailableException {
+		return nColumns;
+	}
+
+	/**
+	 * Retrieves the content of sea map in a certain position. As with the web service, coordinates start from 1.
+	 *
+	 * @throws DataNotAvailableException
+	 *             If coordinates are out of the sea map.
+	 */
+	@Override
+	public int getCellContent(int xCoordinate, int yCoordinate) throws DataNotAvailableException {
+
+		if (xCoordinate < 1 || xCoordinate > nColumns || yCoordinate < 1 || yCoordinate > nRows) {
+			throw new DataNotAvailableException(String.format("Cell out of the sea map: row = %d, col = %d", yCoordinate, xCoordinate));
+		}
+		synchronized (this) {
+			nCellRequests++;
+		}
+		boolean isShipHit = seaMap.isCellOccupiedAt(new Point(xCoordinate - 1, yCoordinate - 1));
+
+		return isShipHit ? HIT_CODE : MISS_CODE;
+	}
+
+	/**
+	 * Retrieves the content of sea map in several positions in one call. As with the web service, coordinates start from 1.
+	 *
+	 * @throws DataNotAvailableException
+	 *             If any of the coordinates are out of the sea map.
+	 */
+	@Override
+	public int[] getCellsContent(int[] xCoordinates, int[] yCoordinates) throws DataNotAvailableException {
+
+		if (xCoordinates.length != yCoordinates.length) {
+			throw new IllegalArgumentException("Coordinate arrays differ in length");
+		}
+		int[] cellsContent = new int[xCoordinates.length];
+		for (int i = 0; i < cellsContent.length; i++) {
+			int xCoordinate = xCoordinates[i], yCoordinate = yCoordinates[i];
+
+			if (xCoordinate < 1 || xCoordinate > nColumns || yCoordinate < 1 || yCoordinate > nRows) {
+				throw new DataNotAvailableException(String.format("Cell out of the sea map: row = %d, col = %d", yCoordinate, xCoordinate));
+			}
+			boolean isShipHit = seaMap.isCellOccupiedAt(new Point(xCoordinate - 1, yCoordinate - 1));
+			cellsContent[i] = isShipHit ? HIT_CODE : MISS_CODE;
+		}
+		synchronized (this) {
+			nCellRequests += cellsContent.length;
+		}
+		return cellsContent;
+	}
+
+	@Override
+	public int getHitCode() {
+		return HIT_CODE;
+	}
+
+	@Override
+	public int getMissCode() {
+		return MISS_CODE;
+	}
+
+	/**
+	 * Returns the number of cell content requests answered so far (the number of shots fired at the sea map).
+	 *
+	 * @return Number of cell content requests.
+	 */
+	public synchronized long getCellRequestsCount() {
+		return nCellRequests;
+	}
+
+	/**
+	 * Returns the ships placed on the sea map, with their positions set.
+	 *
+	 * @return List of placed ships.
+	 */
+	public List<Ship> getPlacedShips() {
+		return Collections.unmodifiableList(placedShips);
+	}
+
+	/**
+	 * Returns representation of the simulated sea map. The exact details of the representation are subject to change, but the
+	 * following may be regarded as typical:
+	 *
+	 * Simulated sea map: 40 x 23, seed = 867711
+	 */
+	@Override
+	public String toString() {
+		return String.format("Simulated sea map: %d x %d, seed = %d", nRows, nColumns, seed);
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.lzadrija.model.common;
+
+/**
+ * Static helpers for coordinates packed into one int, used instead of points where many coordinates are created or stored. The x
+ * coordinate is stored in the upper 16 bits and the y coordinate in the lower 16 bits, so packed coordinates are ordered as
+ * points are (by x, then by y). Both coordinates must be between 0 and {@link #MAX_COORDINATE}, which makes every packed value
+ * non-negative.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public final class Coordinates {
+
+	public static final int MAX_COORDINATE = Short.MAX_VALUE;
+
+	private static final int Y_BITS = 16;
+	private static final int Y_MASK = (1 << Y_BITS) - 1;
+
+	private Coordinates() {
+
+	}
+
+	/**
+	 * Packs the given coordinates into one int.
+	 *
+	 * @param x
+	 *            x coordinate.
+	 * @param y
+	 *            y coordinate.
+	 * @return Packed coordinates.
+	 * @throws IndexOutOfBoundsException
+	 *             If any of the coordinates is negative or greater than {@link #MAX_COORDINATE}.
+	 */
+	public static int encode(int x, int y) {
+
+		if (x < 0 || x > MAX_COORDINATE || y < 0 || y > MAX_COORDINATE) {
+			throw new IndexOutOfBoundsException(String.format("Coordinates cannot be packed: x = %d, y = %d", x, y));
+		}
+		return (x << Y_BITS) | y;
+	}
+
+	/**
+	 * Packs the coordinates of the given point into one int.
+	 *
+	 * @param point
+	 *            Point.
+	 * @return Packed coordinates.
+	 * @throws IndexOutOfBoundsException
+	 *             If any of the coordinates is negative or greater than {@link #MAX_COORDINATE}.
+	 */
+	public static int encode(Point point) {
+		return encode(point.getX(), point.getY());
+	}
+
+	/**
+	 * Returns the x coordinate of the packed coordinates.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return x coordinate.
+	 */
+	public static int getX(int coordinates) {
+		return coordinates >>> Y_BITS;
+	}
+
+	/**
+	 * Returns the y coordinate of the packed coordinates.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return y coordinate.
+	 */
+	public static int getY(int coordinates) {
+		return coordinates & Y_MASK;
+	}
+
+	/**
+	 * Unpacks the coordinates into a new point.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return Point with the unpacked coordinates.
+	 */
+	public static Point toPoint(int coordinates) {
+		return new Point(getX(coordinates), getY(coordinates));
+	}
+}
@@ -0,0 +1,185 @@
+package com.github.lzadrija.model.common;
+
+import java.util.Arrays;
+
+/**
+ * Map from packed coordinates (see {@link Coordinates}) to non-negative int values, stored in an open addressing hash table of
+ * ints, so putting and getting values creates no objects. The table is kept at most half full and grows when needed. Values
+ * cannot be removed one by one, only the whole map can be cleared.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class CoordinatesMap {
+
+	public static final int NO_VALUE = -1;
+
+	private static final int EMPTY = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+	private int[] keys;
+	private int[] values;
+	private int size;
+
+	/**
+	 * Default constructor.
+	 */
+	public CoordinatesMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param expectedSize
+	 *            Number of coordinates the map is expected to hold without growing.
+	 * @throws IllegalArgumentException
+	 *             If the expected size is negative.
+	 */
+	public CoordinatesMap(int expectedSize) {
+
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size cannot be negative: " + expectedSize);
+		}
+		keys = new int[getTableLength(expectedSize)];
+		values = new int[keys.length];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Associates the value with the coordinates.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @param value
+	 *            Value.
+	 * @return Previous value of the coordinates, or {@link #NO_VALUE} if the map did not contain the coordinates.
+	 * @throws IllegalArgumentException
+	 *             If the coordinates are negative (not packed) or the value is negative.
+	 */
+	public int put(int coordinates, int value) {
+
+		if (coordinates < 0) {
+			throw new IllegalArgumentException("Invalid packed coordinates: " + coordinates);
+		}
+		if (value < 0) {
+			throw new IllegalArgumentException("Value cannot be negative: " + value);
+		}
+		int slot = findSlot(coordinates);
+		if (EMPTY != keys[slot]) {
+			int previousValue = values[slot];
+			values[slot] = value;
+			return previousValue;
+		}
+		keys[slot] = coordinates;
+		values[slot] = value;
+		size++;
+
+		if (2 * size > keys.length) {
+			rehash(2 * keys.length);
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Returns the value associated with the coordinates.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return Value of the coordinates, or {@link #NO_VALUE} if the map does not contain the coordinates.
+	 */
+	public int get(int coordinates) {
+
+		if (coordinates < 0) {
+			return NO_VALUE;
+		}
+		int slot = findSlot(coordinates);
+
+		return (EMPTY != keys[slot]) ? values[slot] : NO_VALUE;
+	}
+
+	/**
+	 * Checks if the map contains the coordinates.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return True if the map contains the coordinates, false otherwise.
+	 */
+	public boolean containsKey(int coordinates) {
+		return coordinates >= 0 && EMPTY != keys[findSlot(coordinates)];
+	}
+
+	/**
+	 * Removes all coordinates from the map.
+	 */
+	public void clear() {
+
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return 0 == size;
+	}
+
+	/**
+	 * Returns the slot that holds the given coordinates, or the empty slot where they would be stored.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return Slot index.
+	 */
+	private int findSlot(int coordinates) {
+
+		int mask = keys.length - 1;
+		int slot = (coordinates * HASH_MULTIPLIER) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(keys.length));
+		while (EMPTY != keys[slot] && coordinates != keys[slot]) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Moves all entries to a new table of the given length.
+	 *
+	 * @param tableLength
+	 *            Length of the new table, a power of two.
+	 */
+	private void rehash(int tableLength) {
+
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[tableLength];
+		values = new int[tableLength];
+		Arrays.fill(keys, EMPTY);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (EMPTY != oldKeys[i]) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the smallest power of two table length that keeps the given number of coordinates at most half full.
+	 *
+	 * @param expectedSize
+	 *            Expected number of coordinates.
+	 * @return Table length.
+	 */
+	private static int getTableLength(int expectedSize) {
+
+		int tableLength = DEFAULT_CAPACITY;
+		while (tableLength < 2 * expectedSize) {
+			tableLength <<= 1;
+		}
+		return tableLength;
+	}
+}
@@ -0,0 +1,242 @@
+package com.github.lzadrija.model.common;
+
+import java.util.Arrays;
+
+/**
+ * Set of packed coordinates (see {@link Coordinates}) stored in an open addressing hash table of ints, so adding, removing and
+ * looking up coordinates creates no objects. The table is kept at most half full and grows when needed.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class CoordinatesSet {
+
+	private static final int EMPTY = -1;
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+	private int[] table;
+	private int size;
+
+	/**
+	 * Default constructor.
+	 */
+	public CoordinatesSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param expectedSize
+	 *            Number of coordinates the set is expected to hold without growing.
+	 * @throws IllegalArgumentException
+	 *             If the expected size is negative.
+	 */
+	public CoordinatesSet(int expectedSize) {
+
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size cannot be negative: " + expectedSize);
+		}
+		table = new int[getTableLength(expectedSize)];
+		Arrays.fill(table, EMPTY);
+	}
+
+	/**
+	 * Adds the coordinates to the set.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return True if the set did not contain the coordinates, false otherwise.
+	 * @throws IllegalArgumentException
+	 *             If the coordinates are negative (not packed).
+	 */
+	public boolean add(int coordinates) {
+
+		if (coordinates < 0) {
+			throw new IllegalArgumentException("Invalid packed coordinates: " + coordinates);
+		}
+		int slot = findSlot(coordinates);
+		if (EMPTY != table[slot]) {
+			return false;
+		}
+		table[slot] = coordinates;
+		size++;
+
+		if (2 * size > table.length) {
+			rehash(2 * table.length);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the set contains the coordinates.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return True if the set contains the coordinates, false otherwise.
+	 */
+	public boolean contains(int coordinates) {
+		return coordinates >= 0 && EMPTY != table[findSlot(coordinates)];
+	}
+
+	/**
+	 * Removes the coordinates from the set. Entries that follow the removed one in its probe sequence are moved back, so no
+	 * deleted markers are left in the table.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return True if the set contained the coordinates, false otherwise.
+	 */
+	public boolean remove(int coordinates) {
+
+		if (coordinates < 0) {
+			return false;
+		}
+		int slot = findSlot(coordinates);
+		if (EMPTY == table[slot]) {
+			return false;
+		}
+		table[slot] = EMPTY;
+		size--;
+
+		int mask = table.length - 1;
+		for (int next = (slot + 1) & mask; EMPTY != table[next]; next = (next + 1) & mask) {
+			int home = getHomeSlot(table[next]);
+
+			// the entry can fill the gap if its home slot is not cyclically between the gap and the entry
+			boolean canMove = (slot <= next) ? (home <= slot || home > next) : (home <= slot && home > next);
+			if (canMove) {
+				table[slot] = table[next];
+				table[next] = EMPTY;
+				slot = next;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes some coordinates from the set, the first ones found in the table. Unlike {@link #toArray()}, no array is created.
+	 *
+	 * @return Removed packed coordinates, or -1 if the set is empty.
+	 */
+	public int removeAny() {
+
+		for (int i = 0; i < table.length && 0 != size; i++) {
+			if (EMPTY != table[i]) {
+				int coordinates = table[i];
+				remove(coordinates);
+				return coordinates;
+			}
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Removes all coordinates from the set.
+	 */
+	public void clear() {
+
+		Arrays.fill(table, EMPTY);
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return 0 == size;
+	}
+
+	/**
+	 * Returns the coordinates in the set, in the order of packed values (the order of points).
+	 *
+	 * @return New array of packed coordinates.
+	 */
+	public int[] toArray() {
+
+		int[] coordinatesArray = new int[size];
+		int n = 0;
+		for (int i = 0; i < table.length; i++) {
+			if (EMPTY != table[i]) {
+				coordinatesArray[n++] = table[i];
+			}
+		}
+		Arrays.sort(coordinatesArray);
+		return coordinatesArray;
+	}
+
+	/**
+	 * Returns the slot that holds the given coordinates, or the empty slot where they would be stored.
+	 *
+	 * @param coordinates
+	 *            Packed coordinates.
+	 * @return Slot index.
+	 */
+	private int findSlot(int coordinates) {
+
+		int mask = table.length - 1;
+		int slot = getHomeSlot(coordinates);
+		while (EMPTY != table[slot] && coordinates != table[slot]) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int getHomeSlot(int coordinates) {
+		return (coordinates * HASH_MULTIPLIER) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(table.length));
+	}
+
+	/**
+	 * Moves all coordinates to a new table of the given length.
+	 *
+	 * @param tableLength
+	 *            Length of the new table, a power of two.
+	 */
+	private void rehash(int tableLength) {
+
+		int[] oldTable = table;
+		table = new int[tableLength];
+		Arrays.fill(table, EMPTY);
+
+		for (int i = 0; i < oldTable.length; i++) {
+			if (EMPTY != oldTable[i]) {
+				table[findSlot(oldTable[i])] = oldTable[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the smallest power of two table length that keeps the given number of coordinates at most half full.
+	 *
+	 * @param expectedSize
+	 *            Expected number of coordinates.
+	 * @return Table length.
+	 */
+	private static int getTableLength(int expectedSize) {
+
+		int tableLength = DEFAULT_CAPACITY;
+		while (tableLength < 2 * expectedSize) {
+			tableLength <<= 1;
+		}
+		return tableLength;
+	}
+
+	/**
+	 * Returns representation of the set. The exact details of the representation are subject to change, but the following may
+	 * be regarded as typical:
+	 *
+	 * [[x = 1, y = 2], [x = 3, y = 0]]
+	 */
+	@Override
+	public String toString() {
+
+		StringBuilder builder = new StringBuilder("[");
+		int[] coordinatesArray = toArray();
+		for (int i = 0; i < coordinatesArray.length; i++) {
+			builder.append((0 == i) ? "" : ", ").append(Coordinates.toPoint(coordinatesArray[i]).toString());
+		}
+		return builder.append("]").toString();
+	}
+}
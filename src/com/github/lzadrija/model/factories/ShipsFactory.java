@@ -1,31 +1,241 @@
-package com.github.lzadrija.model.factories;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import com.github.lzadrija.model.ships.Ship;
-import com.github.lzadrija.model.ships.ShipType;
-
-/**
- * Used for ships creation.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class ShipsFactory {
-
-	/**
-	 * Creates and returns fleet of ship objects.
-	 * 
-	 * @return List of of ship objects.
-	 */
-	public static List<Ship> createFleet() {
-		List<Ship> fleet = new ArrayList<>();
-
-		for (ShipType shipType : ShipType.values()) {
-			fleet.add(new Ship(shipType));
-		}
-
-		return fleet;
-	}
-}
+package com.github.lzadrija.model.factories;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+
+/**
+ * Used for ships creation. Besides the default fleet (one ship of every default type), fleets can be read from a configuration
+ * that lists ship types with their counts and shapes. A ship type starts with the line holding its name and the number of ships,
+ * followed by the rows of its shape, where 'X' marks a cell of the ship and '.' an empty cell. Empty lines and lines starting
+ * with '#' are ignored, for example:
+ *
+ * <pre>
+ * # name count
+ * PETAR_KRESIMIR 3
+ * X
+ * X
+ * X
+ * X
+ *
+ * X_WING 2
+ * X.X
+ * .X.
+ * X.X
+ * </pre>
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class ShipsFactory {
+
+	private static final char SHIP_CELL = 'X';
+	private static final char EMPTY_CELL = '.';
+	private static final String COMMENT_PREFIX = "#";
+
+	/**
+	 * Creates and returns fleet of ship objects.
+	 *
+	 * @return List of of ship objects.
+	 */
+	public static List<Ship> createFleet() {
+		List<Ship> fleet = new ArrayList<>();
+
+		for (ShipType shipType : ShipType.values()) {
+			fleet.add(new Ship(shipType));
+		}
+
+		return fleet;
+	}
+
+	/**
+	 * Creates and returns fleet of ship objects from the given configuration.
+	 *
+	 * @param fleetConfiguration
+	 *            Number of ships of every type.
+	 * @return List of ship objects, ships of the same type next to each other.
+	 */
+	public static List<Ship> createFleet(Map<ShipType, Integer> fleetConfiguration) {
+		List<Ship> fleet = new ArrayList<>();
+
+		for (Iterator<Map.Entry<ShipType, Integer>> iterator = fleetConfiguration.entrySet().iterator(); iterator.hasNext();) {
+			Map.Entry<ShipType, Integer> entry = iterator.next();
+
+			for (int i = 0; i < entry.getValue(); i++) {
+				fleet.add(new Ship(entry.getKey()));
+			}
+		}
+		return fleet;
+	}
+
+	/**
+	 * Reads the fleet configuration from the given file (UTF-8).
+	 *
+	 * @param path
+	 *            Path to the configuration file.
+	 * @return Number of ships of every type, in the order of the configuration.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the configuration is invalid.
+	 */
+	public static Map<ShipType, Integer> readFleetConfiguration(Path path) throws IOException {
+
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return readFleetConfiguration(reader);
+		}
+	}
+
+	/**
+	 * Reads the fleet configuration. Types with the same name are collapsed into one type, their counts are summed.
+	 *
+	 * @param reader
+	 *            Reader of the configuration.
+	 * @return Number of ships of every type, in the order of the configuration.
+	 * @throws IOException
+	 *             If the configuration cannot be read.
+	 * @throws IllegalArgumentException
+	 *             If the configuration is invalid: a header does not hold a name and a positive count, a shape is empty or
+	 *             contains other characters than 'X' and '.', or two types with the same name have different shapes.
+	 */
+	public static Map<ShipType, Integer> readFleetConfiguration(Reader reader) throws IOException {
+
+		BufferedReader bufferedReader = new BufferedReader(reader);
+		Map<String, ShipType> typesByName = new LinkedHashMap<>();
+		Map<ShipType, Integer> fleetConfiguration = new LinkedHashMap<>();
+
+		String name = null;
+		int count = 0;
+		List<String> shapeRows = new ArrayList<>();
+		int lineNumber = 0;
+		int headerLineNumber = 0;
+
+		for (String line = bufferedReader.readLine(); ; line = bufferedReader.readLine()) {
+			String trimmedLine = (null == line) ? "" : line.trim();
+			if (null != line) {
+				lineNumber++;
+			}
+			if (trimmedLine.startsWith(COMMENT_PREFIX)) {
+				continue;
+			}
+
+			if (null != name && (null == line || !isShapeRow(trimmedLine))) {
+				if (shapeRows.isEmpty()) {
+					throw new IllegalArgumentException(String.format("Line %d: ship type %s has no shape", headerLineNumber, name));
+				}
+				ShipType shipType = new ShipType(name, parseShape(shapeRows));
+				ShipType previousType = typesByName.get(name);
+
+				if (null == previousType) {
+					typesByName.put(name, shipType);
+					fleetConfiguration.put(shipType, count);
+				} else if (previousType.equals(shipType)) {
+					fleetConfiguration.put(previousType, fleetConfiguration.get(previousType) + count);
+				} else {
+					throw new IllegalArgumentException(String.format("Line %d: ship type %s redefined with a different shape",
+																	 headerLineNumber, name));
+				}
+				name = null;
+				shapeRows.clear();
+			}
+			if (null == line) {
+				break;
+			}
+			if (trimmedLine.isEmpty()) {
+				continue;
+			}
+
+			if (null == name) {
+				String[] header = trimmedLine.split("\\s+");
+				if (2 != header.length) {
+					throw new IllegalArgumentException(String.format("Line %d: expected ship type name and count", lineNumber));
+				}
+				try {
+					count = Integer.parseInt(header[1]);
+				} catch (NumberFormatException numberFormatException) {
+					throw new IllegalArgumentException(String.format("Line %d: invalid count %s", lineNumber, header[1]));
+				}
+				if (count <= 0) {
+					throw new IllegalArgumentException(String.format("Line %d: count must be positive", lineNumber));
+				}
+				name = header[0];
+				headerLineNumber = lineNumber;
+			} else {
+				shapeRows.add(trimmedLine);
+			}
+		}
+		return fleetConfiguration;
+	}
+
+	/**
+	 * Checks if the line is a row of a shape.
+	 *
+	 * @param line
+	 *            Trimmed line.
+	 * @return True if the line is not empty and contains only 'X' and '.', false otherwise.
+	 */
+	private static boolean isShapeRow(String line) {
+
+		if (line.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (SHIP_CELL != c && EMPTY_CELL != c) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Converts the rows of a shape to the structure, relative coordinates of the ship cells. Empty rows and columns before the
+	 * first ship cell are dropped, so that the structure starts at (0, 0).
+	 *
+	 * @param shapeRows
+	 *            Rows of the shape.
+	 * @return Ship's structure, ordered by rows from left to right.
+	 * @throws IllegalArgumentException
+	 *             If the shape has no ship cells.
+	 */
+	private static List<Point> parseShape(List<String> shapeRows) {
+
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		for (int j = 0; j < shapeRows.size(); j++) {
+			String row = shapeRows.get(j);
+
+			int x = row.indexOf(SHIP_CELL);
+			if (-1 != x) {
+				minX = Math.min(minX, x);
+				minY = Math.min(minY, j);
+			}
+		}
+		if (Integer.MAX_VALUE == minX) {
+			throw new IllegalArgumentException("Shape has no ship cells");
+		}
+
+		List<Point> structure = new ArrayList<>();
+		for (int j = minY; j < shapeRows.size(); j++) {
+			String row = shapeRows.get(j);
+
+			for (int k = minX; k < row.length(); k++) {
+				if (SHIP_CELL == row.charAt(k)) {
+					structure.add(new Point(k - minX, j - minY));
+				}
+			}
+		}
+		return structure;
+	}
+}
@@ -1,275 +1,622 @@
-package com.github.lzadrija.model.map;
-
-import java.util.Iterator;
-import java.util.List;
-
-import com.github.lzadrija.model.common.Point;
-
-/**
- * This class represents the (sea) map as a grid which has its height and its width. Every position on the grid, a cell, is either
- * occupied, meaning that it contains structure (ship) or nothing (water), or undefined - meaning that it is unknown what lays on this
- * position.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class Grid {
-
-	private final int height;
-	private final int width;
-
-	private Cell[][] grid;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param heigh
-	 *            Height.
-	 * @param width
-	 *            Width.
-	 * @throws IndexOutOfBoundsException
-	 *             If height or width are zero or negative.
-	 */
-	public Grid(int height, int width) {
-
-		boolean isHeightValid = isDimensionValid(height);
-		if (!isHeightValid) {
-			throw new IndexOutOfBoundsException("Grid height out of range: " + height);
-		}
-
-		boolean isWidthValid = isDimensionValid(width);
-		if (!isWidthValid) {
-			throw new IndexOutOfBoundsException("Grid weight out of range: " + width);
-		}
-		this.width = width;
-		this.height = height;
-
-		grid = new Cell[height][width];
-		initializeGrid();
-	}
-
-	/**
-	 * Initializes grid. When grid is created, all cells are set as undefined.
-	 */
-	private void initializeGrid() {
-
-		for (int j = 0; j < height; j++) {
-			for (int i = 0; i < width; i++) {
-				grid[j][i] = Cell.UNDEFINED_CELL;
-			}
-		}
-	}
-
-	/**
-	 * Checks if grid dimension is zero or negative.
-	 * 
-	 * @param dimension
-	 *            Dimension.
-	 * @return true if dimension is greater than zero, false otherwise.
-	 */
-	private boolean isDimensionValid(int dimension) {
-		return dimension > 0;
-	}
-
-	/**
-	 * Checks if the cell at the given position is occupied.
-	 * 
-	 * @param point
-	 *            position of the cell on the grid.
-	 * @return true if cell is occupied, false otherwise.
-	 * @throws IndexOutOfBoundsException
-	 *             If cell's coordinates are out of bounds.
-	 */
-	public boolean isCellOccupiedAt(Point point) {
-
-		if (!isCellPositionValid(point)) {
-			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + point.toString());
-		}
-
-		Cell cellType = grid[point.getY()][point.getX()];
-
-		boolean isCellOccupied = cellType.toString().equals(Cell.OCCUPIED_CELL.toString());
-
-		return isCellOccupied;
-	}
-
-	/**
-	 * Sets the cell at the given position to occupied.
-	 * 
-	 * @param point
-	 *            Cell's position.
-	 * @throws IndexOutOfBoundsException
-	 *             If cell's coordinates are out of bounds.
-	 */
-	public void occupyCellAt(Point point) {
-
-		if (!isCellPositionValid(point)) {
-			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + point.toString());
-		}
-		grid[point.getY()][point.getX()] = Cell.OCCUPIED_CELL;
-	}
-
-	/**
-	 * Sets the cells at the given positions on the grid to occupied.
-	 * 
-	 * @param area
-	 *            Grid area that needs to be occupied.
-	 * @throws IndexOutOfBoundsException
-	 *             If cell's coordinates are out of bounds.
-	 */
-	public void occupyArea(List<Point> area) {
-
-		for (Iterator<Point> iterator = area.iterator(); iterator.hasNext();) {
-			Point point = iterator.next();
-			occupyCellAt(point);
-		}
-	}
-
-	/**
-	 * Checks if the position is a valid point on the grid.
-	 * 
-	 * @param position
-	 *            Position to be checked
-	 * @return true if point's coordinates are valid
-	 */
-	private boolean isCellPositionValid(Point position) {
-		return (!isXCoordinateValid(position.getX()) || !isYCoordinateValid(position.getY())) ? false : true;	
-	}
-
-	/**
-	 * Checks if the given point has valid x coordinate.
-	 * 
-	 * @param xCoordinate
-	 *            x coordinate.
-	 * @return true if x coordinate is valid.
-	 */
-	private boolean isXCoordinateValid(int xCoordinate) {
-		return xCoordinate >= 0 && xCoordinate < width;
-	}
-
-	/**
-	 * Checks if the given point has valid y coordinate.
-	 * 
-	 * @param yCoordinate
-	 *            y coordinate.
-	 * @return true if y coordinate is valid.
-	 */
-	private boolean isYCoordinateValid(int yCoordinate) {
-		return yCoordinate >= 0 || yCoordinate < height;
-	}
-
-	/**
-	 * Check if the structure fits on the grid by checking its height.
-	 * 
-	 * @param structuresHeight
-	 *            Structure's height.
-	 * @param yCoordinate
-	 *            Structure's y coordinate on the grid.
-	 * @return true if structure fits on the grid by its height, or false
-	 *         otherwise.
-	 */
-	public boolean doesStructureFitInColumn(int structuresHeight, int yCoordinate) {
-		int structuresPositionInColumn = (structuresHeight - 1) + yCoordinate;
-		return structuresPositionInColumn <= (height - 1);
-	}
-
-	/**
-	 * Check if the structure fits on the grid by checking its width.
-	 * 
-	 * @param structuresWidth
-	 *            Structure's width.
-	 * @param xCoordinate
-	 *            Structure's x coordinate on the grid.
-	 * @return true if structure fits on the grid by its width, or false
-	 *         otherwise.
-	 */
-	public boolean doesStructureFitInRow(int structuresWidth, int xCoordinate) {
-		int structuresPositionInRow = (structuresWidth - 1) + xCoordinate;
-		return structuresPositionInRow <= (width - 1);
-	}
-
-	/**
-	 * Checks if the portion of the grid is occupied, in other words, if all cells at the given positions are occupied. 
-	 * Cell's positions are calculated using upper left coordinates on the grid and an array of offset points that are used to 
-	 * compute points relative to the given upper left point.
-	 * 
-	 * @param upperLeftPoint
-	 *            Upper left coordinates from the grid.
-	 * @param offsetsList
-	 *            List of offsets for computing grid portion coordinates.
-	 * @return true if the given grid portion is occupied, false otherwise.
-	 */
-	public boolean isGridPortionOccupied(Point upperLeftPoint,
-			List<Point> offsetsList) {
-
-		for (Iterator<Point> iterator = offsetsList.iterator(); iterator.hasNext();) {
-			Point relativeCellPosition = iterator.next();
-
-			Point newPoint = upperLeftPoint.getPointRelativeToThis(relativeCellPosition);
-
-			if (!isCellOccupiedAt(newPoint)) {
-				return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Checks if the portion of the grid is undefined, in other words, if all cells at the given positions are undefined. 
-	 * Cell's positions are calculated using upper left coordinates on the grid and an array of offset points that are used to 
-	 * compute points relative to the given upper left point.
-	 * 
-	 * @param upperLeftPoint
-	 *            Upper left coordinates from the grid.
-	 * @param offsetsList
-	 *            List of offsets for computing grid portion coordinates.
-	 * @return true if the given grid portion is undefined, false otherwise.
-	 */
-	public boolean isGridPortionUndefined(Point upperLeftPoint,
-			List<Point> offsetsList) {
-
-		for (Iterator<Point> iterator = offsetsList.iterator(); iterator.hasNext();) {
-			Point relativeCellPosition = iterator.next();
-
-			Point newPoint = upperLeftPoint.getPointRelativeToThis(relativeCellPosition);
-
-			if (isCellOccupiedAt(newPoint)) {
-				return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Returns representation of point. The exact details of the representation are subject to change, but the following may be 
-	 * regarded as typical:
-	 * 
-	 * 0 0 0 0 0 0 1 0 0 0 0 1 1 1 0 0 0 0 0 1 0 0 0 
-	 * 0 0 0 1 0 0 0 0 1 0 0 1 0 1 0 1 0 0 0 0 0 0 0 
-	 * 0 0 0 0 0 1 0 0 0 0 0 1 0 1 0 1 0 0 1 0 0 0 0 
-	 * 0 0 1 0 0 0 0 0 0 0 1 1 1 0 1 0 0 0 0 0 0 0 0 
-	 */
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		for (int i = 0; i < grid.length; i++) {
-			for (int j = 0; j < grid[i].length; j++) {
-				sb.append(grid[i][j].getCode()).append(" ");
-			}
-			sb.append("\n");
-		}
-		return sb.toString();
-	}
-
-	public Cell[][] getGrid() {
-		return grid;
-	}
-
-	public int getHeight() {
-		return height;
-	}
-
-	public int getWidth() {
-		return width;
-	}
-}
+package com.github.lzadrija.model.map;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.Point;
+
+/**
+ * This class represents the (sea) map as a grid which has its height and its width. Every position on the grid, a cell, is either
+ * occupied, meaning that it contains structure (ship) or nothing (water), or undefined - meaning that it is unknown what lays on this
+ * position. Cells are stored as bits, one row of the grid is stored in consecutive words, so that a whole row of a structure can
+ * be tested with a few bitwise operations. The grid also keeps a summed-area table of the occupied cells, so the number of occupied
+ * cells in any rectangle is known in constant time: a structure whose bounding box holds no occupied cell is undefined without
+ * testing its rows, and a structure whose bounding box holds fewer occupied cells than the structure is not occupied. The table
+ * is brought up to date lazily: occupying a cell only marks the rows of the table below it as stale, and structures reaching stale
+ * rows are tested row by row until that work adds up to the cost of rebuilding the stale rows, which are then rebuilt in one pass.
+ * The rebuild may run while the grid is read from several threads, but not while cells are occupied.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class Grid {
+
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = Long.SIZE - 1;
+
+	private final int height;
+	private final int width;
+
+	private final int wordsPerRow;
+	private final long[] occupiedCells;
+	private final int[] occupiedCellsSums;
+	private final Object sumsLock;
+	private volatile int nValidSumsRows;
+	private int nTestedRows;
+
+	private final List<GridListener> listeners;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param heigh
+	 *            Height.
+	 * @param width
+	 *            Width.
+	 * @throws IndexOutOfBoundsException
+	 *             If height or width are zero or negative.
+	 */
+	public Grid(int height, int width) {
+
+		boolean isHeightValid = isDimensionValid(height);
+		if (!isHeightValid) {
+			throw new IndexOutOfBoundsException("Grid height out of range: " + height);
+		}
+
+		boolean isWidthValid = isDimensionValid(width);
+		if (!isWidthValid) {
+			throw new IndexOutOfBoundsException("Grid weight out of range: " + width);
+		}
+		this.width = width;
+		this.height = height;
+
+		// when grid is created, all cells are undefined (all bits are cleared)
+		wordsPerRow = ((width - 1) >>> WORD_SHIFT) + 1;
+		occupiedCells = new long[height * wordsPerRow];
+		occupiedCellsSums = new int[(height + 1) * (width + 1)];
+		sumsLock = new Object();
+		nValidSumsRows = height + 1;
+
+		listeners = new ArrayList<>();
+	}
+
+	/**
+	 * Registers the listener that is notified every time an undefined cell becomes occupied.
+	 * 
+	 * @param listener
+	 *            Grid listener.
+	 * @throws NullPointerException
+	 *             If the listener is null.
+	 */
+	public void addGridListener(GridListener listener) {
+
+		if (null == listener) {
+			throw new NullPointerException("Listener cannot be null");
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes the previously registered listener.
+	 * 
+	 * @param listener
+	 *            Grid listener.
+	 */
+	public void removeGridListener(GridListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Checks if grid dimension is zero or negative.
+	 * 
+	 * @param dimension
+	 *            Dimension.
+	 * @return true if dimension is greater than zero, false otherwise.
+	 */
+	private boolean isDimensionValid(int dimension) {
+		return dimension > 0;
+	}
+
+	/**
+	 * Checks if the cell at the given position is occupied.
+	 * 
+	 * @param point
+	 *            position of the cell on the grid.
+	 * @return true if cell is occupied, false otherwise.
+	 * @throws IndexOutOfBoundsException
+	 *             If cell's coordinates are out of bounds.
+	 */
+	public boolean isCellOccupiedAt(Point point) {
+
+		if (!isCellPositionValid(point)) {
+			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + point.toString());
+		}
+
+		return isBitSet(point.getX(), point.getY());
+	}
+
+	/**
+	 * Checks if the cell at the given position is occupied.
+	 * 
+	 * @param coordinates
+	 *            Packed coordinates of the cell (see {@link Coordinates}).
+	 * @return true if cell is occupied, false otherwise.
+	 * @throws IndexOutOfBoundsException
+	 *             If cell's coordinates are out of bounds.
+	 */
+	public boolean isCellOccupiedAt(int coordinates) {
+
+		int x = Coordinates.getX(coordinates), y = Coordinates.getY(coordinates);
+		if (coordinates < 0 || !isXCoordinateValid(x) || !isYCoordinateValid(y)) {
+			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + Coordinates.toPoint(coordinates).toString());
+		}
+
+		return isBitSet(x, y);
+	}
+
+	/**
+	 * Sets the cell at the given position to occupied. If the cell was undefined, registered listeners are notified.
+	 * 
+	 * @param point
+	 *            Cell's position.
+	 * @throws IndexOutOfBoundsException
+	 *             If cell's coordinates are out of bounds.
+	 */
+	public void occupyCellAt(Point point) {
+
+		if (!isCellPositionValid(point)) {
+			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + point.toString());
+		}
+		occupyCell(point.getX(), point.getY());
+	}
+
+	/**
+	 * Sets the cell at the given position to occupied. If the cell was undefined, registered listeners are notified.
+	 * 
+	 * @param coordinates
+	 *            Packed coordinates of the cell (see {@link Coordinates}).
+	 * @throws IndexOutOfBoundsException
+	 *             If cell's coordinates are out of bounds.
+	 */
+	public void occupyCellAt(int coordinates) {
+
+		int x = Coordinates.getX(coordinates), y = Coordinates.getY(coordinates);
+		if (coordinates < 0 || !isXCoordinateValid(x) || !isYCoordinateValid(y)) {
+			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + Coordinates.toPoint(coordinates).toString());
+		}
+		occupyCell(x, y);
+	}
+
+	/**
+	 * Sets the bit of the cell with the given coordinates and notifies the listeners, unless the cell is already occupied.
+	 * Coordinates are not validated.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @param yCoordinate
+	 *            y coordinate.
+	 */
+	private void occupyCell(int xCoordinate, int yCoordinate) {
+
+		if (isBitSet(xCoordinate, yCoordinate)) {
+			return;
+		}
+		occupiedCells[getWordIndex(xCoordinate, yCoordinate)] |= 1L << (xCoordinate & WORD_MASK);
+		nValidSumsRows = Math.min(nValidSumsRows, yCoordinate + 1);
+
+		for (Iterator<GridListener> iterator = listeners.iterator(); iterator.hasNext();) {
+			GridListener listener = iterator.next();
+			listener.cellOccupied(xCoordinate, yCoordinate);
+		}
+	}
+
+	/**
+	 * Rebuilds the stale rows of the summed-area table if the rows tested one by one since the last rebuild cost about as much as
+	 * the rebuild. The count of tested rows may be updated from several threads without synchronization, which can only delay
+	 * the rebuild.
+	 * 
+	 * @param nRowsToTest
+	 *            Number of rows that are tested one by one if the table is not rebuilt.
+	 * @return true if the table is up to date, false otherwise.
+	 */
+	private boolean updateSums(int nRowsToTest) {
+
+		nTestedRows += nRowsToTest;
+		long nStaleSums = (long) (height + 1 - nValidSumsRows) * (width + 1);
+		if (nTestedRows < (nStaleSums >>> WORD_SHIFT)) {
+			return false;
+		}
+
+		synchronized (sumsLock) {
+			int sumsWidth = width + 1;
+			for (int j = nValidSumsRows; j <= height; j++) {
+				int rowStart = j * sumsWidth, previousRowStart = rowStart - sumsWidth;
+				int rowCount = 0;
+
+				for (int k = 1; k < sumsWidth; k++) {
+					rowCount += isBitSet(k - 1, j - 1) ? 1 : 0;
+					occupiedCellsSums[rowStart + k] = occupiedCellsSums[previousRowStart + k] + rowCount;
+				}
+			}
+			nTestedRows = 0;
+			nValidSumsRows = height + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of occupied cells in the rectangle, if the rows of the summed-area table it needs are up to date or have
+	 * just been rebuilt. Coordinates are not validated, the rectangle must lie on the grid.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate of the rectangle's upper left cell.
+	 * @param yCoordinate
+	 *            y coordinate of the rectangle's upper left cell.
+	 * @param rectangleWidth
+	 *            Rectangle's width.
+	 * @param rectangleHeight
+	 *            Rectangle's height.
+	 * @return Number of occupied cells, or -1 if the rectangle must be tested row by row.
+	 */
+	private int getOccupiedCellsCount(int xCoordinate, int yCoordinate, int rectangleWidth, int rectangleHeight) {
+
+		if (yCoordinate + rectangleHeight >= nValidSumsRows && !updateSums(rectangleHeight)) {
+			return -1;
+		}
+
+		int sumsWidth = width + 1;
+		int upperRow = yCoordinate * sumsWidth, lowerRow = (yCoordinate + rectangleHeight) * sumsWidth;
+		int right = xCoordinate + rectangleWidth;
+
+		return occupiedCellsSums[lowerRow + right] - occupiedCellsSums[lowerRow + xCoordinate] - occupiedCellsSums[upperRow + right]
+			   + occupiedCellsSums[upperRow + xCoordinate];
+	}
+
+	/**
+	 * Sets the cells at the given positions on the grid to occupied.
+	 * 
+	 * @param area
+	 *            Grid area that needs to be occupied.
+	 * @throws IndexOutOfBoundsException
+	 *             If cell's coordinates are out of bounds.
+	 */
+	public void occupyArea(List<Point> area) {
+
+		for (Iterator<Point> iterator = area.iterator(); iterator.hasNext();) {
+			Point point = iterator.next();
+			occupyCellAt(point);
+		}
+	}
+
+	/**
+	 * Returns the index of the word that contains the cell with the given coordinates.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @param yCoordinate
+	 *            y coordinate.
+	 * @return Word index.
+	 */
+	private int getWordIndex(int xCoordinate, int yCoordinate) {
+		return yCoordinate * wordsPerRow + (xCoordinate >>> WORD_SHIFT);
+	}
+
+	/**
+	 * Checks if the bit of the cell with the given coordinates is set. Coordinates are not validated.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @param yCoordinate
+	 *            y coordinate.
+	 * @return true if cell is occupied, false otherwise.
+	 */
+	private boolean isBitSet(int xCoordinate, int yCoordinate) {
+		return 0 != (occupiedCells[getWordIndex(xCoordinate, yCoordinate)] & (1L << (xCoordinate & WORD_MASK)));
+	}
+
+	/**
+	 * Checks if the position is a valid point on the grid.
+	 * 
+	 * @param position
+	 *            Position to be checked
+	 * @return true if point's coordinates are valid
+	 */
+	private boolean isCellPositionValid(Point position) {
+		return isXCoordinateValid(position.getX()) && isYCoordinateValid(position.getY());
+	}
+
+	/**
+	 * Checks if the given point has valid x coordinate.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @return true if x coordinate is valid.
+	 */
+	private boolean isXCoordinateValid(int xCoordinate) {
+		return xCoordinate >= 0 && xCoordinate < width;
+	}
+
+	/**
+	 * Checks if the given point has valid y coordinate.
+	 * 
+	 * @param yCoordinate
+	 *            y coordinate.
+	 * @return true if y coordinate is valid.
+	 */
+	private boolean isYCoordinateValid(int yCoordinate) {
+		return yCoordinate >= 0 && yCoordinate < height;
+	}
+
+	/**
+	 * Check if the structure fits on the grid by checking its height.
+	 * 
+	 * @param structuresHeight
+	 *            Structure's height.
+	 * @param yCoordinate
+	 *            Structure's y coordinate on the grid.
+	 * @return true if structure fits on the grid by its height, or false
+	 *         otherwise.
+	 */
+	public boolean doesStructureFitInColumn(int structuresHeight, int yCoordinate) {
+		int structuresPositionInColumn = (structuresHeight - 1) + yCoordinate;
+		return structuresPositionInColumn <= (height - 1);
+	}
+
+	/**
+	 * Check if the structure fits on the grid by checking its width.
+	 * 
+	 * @param structuresWidth
+	 *            Structure's width.
+	 * @param xCoordinate
+	 *            Structure's x coordinate on the grid.
+	 * @return true if structure fits on the grid by its width, or false
+	 *         otherwise.
+	 */
+	public boolean doesStructureFitInRow(int structuresWidth, int xCoordinate) {
+		int structuresPositionInRow = (structuresWidth - 1) + xCoordinate;
+		return structuresPositionInRow <= (width - 1);
+	}
+
+	/**
+	 * Checks if the portion of the grid is occupied, in other words, if all cells at the given positions are occupied. 
+	 * Cell's positions are calculated using upper left coordinates on the grid and an array of offset points that are used to 
+	 * compute points relative to the given upper left point.
+	 * 
+	 * @param upperLeftPoint
+	 *            Upper left coordinates from the grid.
+	 * @param offsetsList
+	 *            List of offsets for computing grid portion coordinates.
+	 * @return true if the given grid portion is occupied, false otherwise.
+	 */
+	public boolean isGridPortionOccupied(Point upperLeftPoint,
+			List<Point> offsetsList) {
+
+		for (Iterator<Point> iterator = offsetsList.iterator(); iterator.hasNext();) {
+			Point relativeCellPosition = iterator.next();
+
+			if (!isCellOccupiedAt(upperLeftPoint, relativeCellPosition)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the portion of the grid covered by the given structure is occupied. Unlike the offsets variant, every row of
+	 * the structure is tested at once, and the rows are not tested at all if the bounding box of the structure holds fewer
+	 * occupied cells than the structure. A structure that does not fit on the grid at the given upper left point is not considered
+	 * occupied.
+	 * 
+	 * @param upperLeftPoint
+	 *            Upper left coordinates from the grid.
+	 * @param structureMask
+	 *            Compiled structure.
+	 * @return true if the given grid portion fits on the grid and is occupied, false otherwise.
+	 */
+	public boolean isGridPortionOccupied(Point upperLeftPoint, StructureMask structureMask) {
+		return isGridPortionOccupied(upperLeftPoint.getX(), upperLeftPoint.getY(), structureMask);
+	}
+
+	/**
+	 * Checks if the portion of the grid covered by the given structure is occupied, see
+	 * {@link #isGridPortionOccupied(Point, StructureMask)}.
+	 * 
+	 * @param x
+	 *            x coordinate of the structure's upper left point.
+	 * @param y
+	 *            y coordinate of the structure's upper left point.
+	 * @param structureMask
+	 *            Compiled structure.
+	 * @return true if the given grid portion fits on the grid and is occupied, false otherwise.
+	 */
+	public boolean isGridPortionOccupied(int x, int y, StructureMask structureMask) {
+
+		if (!doesStructureFit(structureMask, x, y)) {
+			return false;
+		}
+		int nOccupiedCells = getOccupiedCellsCount(x, y, structureMask.getWidth(), structureMask.getHeight());
+		if (nOccupiedCells >= 0 && nOccupiedCells < structureMask.getCellsCount()) {
+			return false;
+		}
+
+		int shift = x & WORD_MASK;
+		for (int row = 0; row < structureMask.getHeight(); row++) {
+			long rowMask = structureMask.getRowMask(row);
+			int wordIndex = getWordIndex(x, y + row);
+
+			long lowMask = rowMask << shift;
+			if ((occupiedCells[wordIndex] & lowMask) != lowMask) {
+				return false;
+			}
+			long highMask = (0 == shift) ? 0 : rowMask >>> (Long.SIZE - shift);
+			if (0 != highMask && (occupiedCells[wordIndex + 1] & highMask) != highMask) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the portion of the grid is undefined, in other words, if all cells at the given positions are undefined. 
+	 * Cell's positions are calculated using upper left coordinates on the grid and an array of offset points that are used to 
+	 * compute points relative to the given upper left point.
+	 * 
+	 * @param upperLeftPoint
+	 *            Upper left coordinates from the grid.
+	 * @param offsetsList
+	 *            List of offsets for computing grid portion coordinates.
+	 * @return true if the given grid portion is undefined, false otherwise.
+	 */
+	public boolean isGridPortionUndefined(Point upperLeftPoint,
+			List<Point> offsetsList) {
+
+		for (Iterator<Point> iterator = offsetsList.iterator(); iterator.hasNext();) {
+			Point relativeCellPosition = iterator.next();
+
+			if (isCellOccupiedAt(upperLeftPoint, relativeCellPosition)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the portion of the grid covered by the given structure is undefined. Unlike the offsets variant, every row of
+	 * the structure is tested at once, and the rows are not tested at all if the bounding box of the structure holds no occupied
+	 * cell. A structure that does not fit on the grid at the given upper left point is not considered undefined.
+	 * 
+	 * @param upperLeftPoint
+	 *            Upper left coordinates from the grid.
+	 * @param structureMask
+	 *            Compiled structure.
+	 * @return true if the given grid portion fits on the grid and is undefined, false otherwise.
+	 */
+	public boolean isGridPortionUndefined(Point upperLeftPoint, StructureMask structureMask) {
+		return isGridPortionUndefined(upperLeftPoint.getX(), upperLeftPoint.getY(), structureMask);
+	}
+
+	/**
+	 * Checks if the portion of the grid covered by the given structure is undefined, see
+	 * {@link #isGridPortionUndefined(Point, StructureMask)}.
+	 * 
+	 * @param x
+	 *            x coordinate of the structure's upper left point.
+	 * @param y
+	 *            y coordinate of the structure's upper left point.
+	 * @param structureMask
+	 *            Compiled structure.
+	 * @return true if the given grid portion fits on the grid and is undefined, false otherwise.
+	 */
+	public boolean isGridPortionUndefined(int x, int y, StructureMask structureMask) {
+
+		if (!doesStructureFit(structureMask, x, y)) {
+			return false;
+		}
+		if (0 == getOccupiedCellsCount(x, y, structureMask.getWidth(), structureMask.getHeight())) {
+			return true;
+		}
+
+		int shift = x & WORD_MASK;
+		for (int row = 0; row < structureMask.getHeight(); row++) {
+			long rowMask = structureMask.getRowMask(row);
+			int wordIndex = getWordIndex(x, y + row);
+
+			if (0 != (occupiedCells[wordIndex] & (rowMask << shift))) {
+				return false;
+			}
+			long highMask = (0 == shift) ? 0 : rowMask >>> (Long.SIZE - shift);
+			if (0 != highMask && 0 != (occupiedCells[wordIndex + 1] & highMask)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the cell at the position relative to the given upper left point is occupied, without creating the relative point.
+	 * 
+	 * @param upperLeftPoint
+	 *            Upper left coordinates from the grid.
+	 * @param relativeCellPosition
+	 *            Offset of the cell.
+	 * @return true if cell is occupied, false otherwise.
+	 * @throws IndexOutOfBoundsException
+	 *             If cell's coordinates are out of bounds.
+	 */
+	private boolean isCellOccupiedAt(Point upperLeftPoint, Point relativeCellPosition) {
+
+		int x = upperLeftPoint.getX() + relativeCellPosition.getX();
+		int y = upperLeftPoint.getY() + relativeCellPosition.getY();
+		if (!isXCoordinateValid(x) || !isYCoordinateValid(y)) {
+			throw new IndexOutOfBoundsException("Wrong coordinate(s) format: " + upperLeftPoint.getPointRelativeToThis(relativeCellPosition));
+		}
+		return isBitSet(x, y);
+	}
+
+	/**
+	 * Checks if the whole structure fits on the grid when placed at the given upper left coordinates.
+	 * 
+	 * @param structureMask
+	 *            Compiled structure.
+	 * @param xCoordinate
+	 *            Structure's x coordinate on the grid.
+	 * @param yCoordinate
+	 *            Structure's y coordinate on the grid.
+	 * @return true if structure fits on the grid, false otherwise.
+	 */
+	private boolean doesStructureFit(StructureMask structureMask, int xCoordinate, int yCoordinate) {
+		return isXCoordinateValid(xCoordinate) && isYCoordinateValid(yCoordinate)
+			   && doesStructureFitInRow(structureMask.getWidth(), xCoordinate)
+			   && doesStructureFitInColumn(structureMask.getHeight(), yCoordinate);
+	}
+
+	/**
+	 * Returns representation of point. The exact details of the representation are subject to change, but the following may be 
+	 * regarded as typical:
+	 * 
+	 * 0 0 0 0 0 0 1 0 0 0 0 1 1 1 0 0 0 0 0 1 0 0 0 
+	 * 0 0 0 1 0 0 0 0 1 0 0 1 0 1 0 1 0 0 0 0 0 0 0 
+	 * 0 0 0 0 0 1 0 0 0 0 0 1 0 1 0 1 0 0 1 0 0 0 0 
+	 * 0 0 1 0 0 0 0 0 0 0 1 1 1 0 1 0 0 0 0 0 0 0 0 
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < height; i++) {
+			for (int j = 0; j < width; j++) {
+				sb.append(getCell(j, i).getCode()).append(" ");
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the cell type at the given coordinates.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @param yCoordinate
+	 *            y coordinate.
+	 * @return Occupied or undefined cell.
+	 */
+	private Cell getCell(int xCoordinate, int yCoordinate) {
+		return isBitSet(xCoordinate, yCoordinate) ? Cell.OCCUPIED_CELL : Cell.UNDEFINED_CELL;
+	}
+
+	/**
+	 * Returns the snapshot of the grid as a 2D array of cells. Changes of the returned array are not reflected on the grid.
+	 * 
+	 * @return 2D array of cells.
+	 */
+	public Cell[][] getGrid() {
+
+		Cell[][] cells = new Cell[height][width];
+		for (int i = 0; i < height; i++) {
+			for (int j = 0; j < width; j++) {
+				cells[i][j] = getCell(j, i);
+			}
+		}
+		return cells;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+}
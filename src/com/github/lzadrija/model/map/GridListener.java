@@ -0,0 +1,20 @@
+package com.github.lzadrija.model.map;
+
+/**
+ * Listener that is notified when the content of a grid cell is discovered.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public interface GridListener {
+
+	/**
+	 * Called after the undefined cell at the given position was set to occupied.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate of the cell.
+	 * @param yCoordinate
+	 *            y coordinate of the cell.
+	 */
+	void cellOccupied(int xCoordinate, int yCoordinate);
+}
@@ -0,0 +1,141 @@
+package com.github.lzadrija.model.map;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.github.lzadrija.model.common.Point;
+
+/**
+ * Compiled form of a structure (list of offsets relative to the upper left point) that can be tested against the grid a whole
+ * row at a time. Every row of the structure is stored as a bitmask, where bit i is set if the structure occupies the cell
+ * with offset (i, row). The offsets are also kept in two primitive tables, so that the cells of a placed structure can be
+ * visited without creating points. Structures can be at most 64 cells wide.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public final class StructureMask {
+
+	private static final int MAX_WIDTH = Long.SIZE;
+
+	private final long[] rowMasks;
+	private final int[] xOffsets, yOffsets;
+	private final int height, width;
+
+	/**
+	 * Constructor, compiles the given list of offsets into row bitmasks. Repeated offsets are kept only once.
+	 *
+	 * @param offsetsList
+	 *            List of offsets relative to the upper left point (0, 0).
+	 * @throws IllegalArgumentException
+	 *             If the list is empty, contains negative offsets or the structure is wider than 64 cells.
+	 */
+	public StructureMask(List<Point> offsetsList) {
+
+		if (offsetsList.isEmpty()) {
+			throw new IllegalArgumentException("Structure cannot be empty");
+		}
+
+		int maxX = 0, maxY = 0;
+		for (Iterator<Point> iterator = offsetsList.iterator(); iterator.hasNext();) {
+			Point offset = iterator.next();
+
+			if (offset.getX() < 0 || offset.getY() < 0) {
+				throw new IllegalArgumentException("Negative offset: " + offset.toString());
+			}
+			maxX = Math.max(maxX, offset.getX());
+			maxY = Math.max(maxY, offset.getY());
+		}
+		if (maxX >= MAX_WIDTH) {
+			throw new IllegalArgumentException("Structure too wide: " + (maxX + 1));
+		}
+		width = maxX + 1;
+		height = maxY + 1;
+
+		rowMasks = new long[height];
+		int[] xOffsetsList = new int[offsetsList.size()];
+		int[] yOffsetsList = new int[offsetsList.size()];
+		int nCells = 0;
+		for (Iterator<Point> iterator = offsetsList.iterator(); iterator.hasNext();) {
+			Point offset = iterator.next();
+
+			long cellBit = 1L << offset.getX();
+			if (0 != (rowMasks[offset.getY()] & cellBit)) {
+				continue;
+			}
+			rowMasks[offset.getY()] |= cellBit;
+			xOffsetsList[nCells] = offset.getX();
+			yOffsetsList[nCells++] = offset.getY();
+		}
+		xOffsets = Arrays.copyOf(xOffsetsList, nCells);
+		yOffsets = Arrays.copyOf(yOffsetsList, nCells);
+	}
+
+	/**
+	 * Returns the bitmask of the given structure row. Bit i is set if the structure occupies cell i of this row.
+	 *
+	 * @param row
+	 *            Row of the structure, relative to the upper left point.
+	 * @return Row bitmask.
+	 */
+	public long getRowMask(int row) {
+		return rowMasks[row];
+	}
+
+	/**
+	 * Checks if the structure occupies the cell with the given offset from the upper left point.
+	 *
+	 * @param xOffset
+	 *            x offset.
+	 * @param yOffset
+	 *            y offset.
+	 * @return true if the structure contains the given offset, false otherwise (also if the offset is out of the structure).
+	 */
+	public boolean containsOffset(int xOffset, int yOffset) {
+
+		if (xOffset < 0 || xOffset >= width || yOffset < 0 || yOffset >= height) {
+			return false;
+		}
+		return 0 != (rowMasks[yOffset] & (1L << xOffset));
+	}
+
+	/**
+	 * Returns the number of cells of the structure.
+	 *
+	 * @return Number of cells.
+	 */
+	public int getCellsCount() {
+		return xOffsets.length;
+	}
+
+	/**
+	 * Returns the x offset of the given cell, cells are numbered in the order of the list the structure was compiled from.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @return x offset.
+	 */
+	public int getXOffset(int cell) {
+		return xOffsets[cell];
+	}
+
+	/**
+	 * Returns the y offset of the given cell, cells are numbered in the order of the list the structure was compiled from.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @return y offset.
+	 */
+	public int getYOffset(int cell) {
+		return yOffsets[cell];
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+}
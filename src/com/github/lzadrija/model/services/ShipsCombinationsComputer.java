@@ -1,107 +1,240 @@
-package com.github.lzadrija.model.services;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-import com.github.lzadrija.model.ships.Ship;
-
-/**
- * This class represents a service that computes all combinations of the hidden ships' placements using the* number of hit 
- * cells on the grid.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class ShipsCombinationsComputer {
-
-	private static ShipsCombinationsComputer instance = new ShipsCombinationsComputer();
-
-	public static ShipsCombinationsComputer getInstance() {
-		return instance;
-	}
-
-	/**
-	 * Computes all combinations of the hidden ships' placements using the number of hit cells on the grid.
-	 * 
-	 * @param hitShipsGroupSize
-	 *            Number of hit cells on the grid (number of coordinates of the hit combinations of ships).
-	 * @param ships
-	 *            Ships list.
-	 * @return List of ships' placement combinations.
-	 */
-	public List<List<Ship>> getAllShipsSizeCombinations(int hitShipsGroupSize, List<Ship> ships) {
-
-		List<List<Ship>> shipsSizeCombinations = new ArrayList<>();
-
-		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
-			Ship ship = iterator.next();
-			iterator.remove();
-
-			List<Ship> rightListPart = new ArrayList<>(ships);
-			List<Ship> leftListPart = new ArrayList<>();
-			leftListPart.add(ship);
-
-			computeAllCombinationsWithOneShip(hitShipsGroupSize, leftListPart, rightListPart, shipsSizeCombinations);
-		}
-		return shipsSizeCombinations;
-	}
-
-	/**
-	 * Recursive method. List of ships that is divided in two, computes a tree of all possible combinations of ships based 
-	 * on their size. One ship from first (left) list is combined from one from the second (right) list. If
-	 * the sum of their sizes matches the number of hit cells from the grid, the combination of ships is than added to the 
-	 * list as a possible solution for the hit area on the grid, if not, the recursive search is then continued with changed 
-	 * (increased and decreased) lists.
-	 * 
-	 * @param shipsGroupSize
-	 *            Number of hit cells on the grid (number of coordinates of the hit combinations of ships).
-	 * @param leftListPart
-	 *            First part of the ship's list.
-	 * @param rightListPart
-	 *            Second part of the ship's list.
-	 * @param shipsSizeCombinations
-	 *            List of ships' placement combinations.
-	 */
-	private void computeAllCombinationsWithOneShip(int shipsGroupSize,
-			List<Ship> leftListPart, List<Ship> rightListPart,
-			List<List<Ship>> shipsSizeCombinations) {
-
-		int shipsCombinationSize = getShipsGroupSize(leftListPart);
-		if (shipsGroupSize == shipsCombinationSize) {
-			shipsSizeCombinations.add(leftListPart);
-
-		} else if (shipsCombinationSize < shipsGroupSize) {
-			for (Iterator<Ship> iterator = rightListPart.iterator(); iterator.hasNext();) {
-				Ship ship = iterator.next();
-				iterator.remove();
-
-				leftListPart.add(ship);
-				shipsCombinationSize = getShipsGroupSize(leftListPart);
-
-				if (shipsGroupSize >= shipsCombinationSize) {
-					computeAllCombinationsWithOneShip(shipsGroupSize, new ArrayList<>(leftListPart), 
-													  new ArrayList<>(rightListPart), shipsSizeCombinations);
-				}
-				leftListPart.remove(ship);
-			}
-		}
-	}
-
-	/**
-	 * Computes and returns the sum of the structure size of the given ships.
-	 * 
-	 * @param combination
-	 *            List of ships that make a combination.
-	 * @return Size of the given combination.
-	 */
-	private int getShipsGroupSize(List<Ship> combination) {
-
-		int size = 0;
-		for (Iterator<Ship> iterator = combination.iterator(); iterator.hasNext();) {
-			Ship ship = iterator.next();
-			size += ship.getStructureSize();
-		}
-		return size;
-	}
-}
+package com.github.lzadrija.model.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+
+/**
+ * This class represents a service that computes all combinations of the hidden ships' placements using the* number of hit 
+ * cells on the grid. Ships of the same type are interchangeable, so they are collapsed into one type with a count, and only
+ * one combination is returned for every multiset of types. A subset-sum table over the ships' structure sizes tells which sizes
+ * can still be reached, so the search never enters a branch without a combination. Combinations are cached per (hidden types
+ * and counts, number of hit cells).
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class ShipsCombinationsComputer {
+
+	private final Map<CombinationsKey, List<int[]>> combinationsCache;
+
+	/**
+	 * Hidden ship types with their counts and the number of hit cells, used as the cache key.
+	 */
+	private static final class CombinationsKey {
+
+		private final ShipType[] types;
+		private final int[] counts;
+		private final int hitShipsGroupSize;
+
+		private CombinationsKey(ShipType[] types, int[] counts, int hitShipsGroupSize) {
+			this.types = types;
+			this.counts = counts;
+			this.hitShipsGroupSize = hitShipsGroupSize;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(types) + Arrays.hashCode(counts)) + hitShipsGroupSize;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof CombinationsKey)) {
+				return false;
+			}
+			CombinationsKey key = (CombinationsKey) obj;
+			return hitShipsGroupSize == key.hitShipsGroupSize && Arrays.equals(types, key.types) && Arrays.equals(counts, key.counts);
+		}
+	}
+
+	/**
+	 * Default constructor.
+	 */
+	public ShipsCombinationsComputer() {
+		combinationsCache = new HashMap<>();
+	}
+
+	/**
+	 * Computes all combinations of the hidden ships' placements using the number of hit cells on the grid. Combinations are
+	 * ordered as if the ships were combined one by one in the order of the given list, and every combination lists its ships in
+	 * that order. The given list is not changed.
+	 * 
+	 * @param hitShipsGroupSize
+	 *            Number of hit cells on the grid (number of coordinates of the hit combinations of ships).
+	 * @param ships
+	 *            Ships list.
+	 * @return List of ships' placement combinations, one for every multiset of ship types.
+	 */
+	public List<List<Ship>> getAllShipsSizeCombinations(int hitShipsGroupSize, List<Ship> ships) {
+
+		List<ShipType> typesList = new ArrayList<>();
+		List<List<Ship>> shipsByType = new ArrayList<>();
+		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+
+			int typeIndex = typesList.indexOf(ship.getType());
+			if (-1 == typeIndex) {
+				typesList.add(ship.getType());
+				shipsByType.add(new ArrayList<Ship>());
+				typeIndex = typesList.size() - 1;
+			}
+			shipsByType.get(typeIndex).add(ship);
+		}
+
+		ShipType[] types = typesList.toArray(new ShipType[typesList.size()]);
+		int[] counts = new int[types.length];
+		int[] sizes = new int[types.length];
+		for (int i = 0; i < types.length; i++) {
+			counts[i] = shipsByType.get(i).size();
+			sizes[i] = shipsByType.get(i).get(0).getStructureSize();
+		}
+
+		CombinationsKey key = new CombinationsKey(types, counts, hitShipsGroupSize);
+		List<int[]> countsCombinations = combinationsCache.get(key);
+		if (null == countsCombinations) {
+			countsCombinations = computeCountsCombinations(hitShipsGroupSize, sizes, counts);
+			combinationsCache.put(key, countsCombinations);
+		}
+
+		List<List<Ship>> shipsSizeCombinations = new ArrayList<>(countsCombinations.size());
+		for (Iterator<int[]> iterator = countsCombinations.iterator(); iterator.hasNext();) {
+			int[] combinationCounts = iterator.next();
+
+			List<Ship> combination = new ArrayList<>();
+			for (int i = 0; i < combinationCounts.length; i++) {
+				combination.addAll(shipsByType.get(i).subList(0, combinationCounts[i]));
+			}
+			shipsSizeCombinations.add(combination);
+		}
+		return shipsSizeCombinations;
+	}
+
+	/**
+	 * Computes all combinations of ship types (how many ships of every type) whose sum of sizes is equal to the number of hit cells.
+	 * 
+	 * @param hitShipsGroupSize
+	 *            Number of hit cells on the grid.
+	 * @param sizes
+	 *            Structure size of every type.
+	 * @param counts
+	 *            Number of hidden ships of every type.
+	 * @return List of combinations, each one holding the number of ships of every type.
+	 */
+	private List<int[]> computeCountsCombinations(int hitShipsGroupSize, int[] sizes, int[] counts) {
+
+		List<int[]> countsCombinations = new ArrayList<>();
+		if (hitShipsGroupSize <= 0) {
+			return countsCombinations;
+		}
+
+		boolean[][] reachableSizes = computeReachableSizes(hitShipsGroupSize, sizes, counts);
+		computeCombinationsFromType(0, hitShipsGroupSize, sizes, counts, new int[sizes.length], reachableSizes, countsCombinations);
+
+		return countsCombinations;
+	}
+
+	/**
+	 * Computes the subset-sum table: element [i][s] is true if the size s can be composed of ships of types i and higher.
+	 *
+	 * @param hitShipsGroupSize
+	 *            Number of hit cells on the grid.
+	 * @param sizes
+	 *            Structure size of every type.
+	 * @param counts
+	 *            Number of hidden ships of every type.
+	 * @return Table of reachable sizes.
+	 */
+	private boolean[][] computeReachableSizes(int hitShipsGroupSize, int[] sizes, int[] counts) {
+
+		boolean[][] reachableSizes = new boolean[sizes.length + 1][hitShipsGroupSize + 1];
+		reachableSizes[sizes.length][0] = true;
+
+		for (int i = sizes.length - 1; i >= 0; i--) {
+			for (int size = 0; size <= hitShipsGroupSize; size++) {
+				for (int n = 0; n <= counts[i] && n * sizes[i] <= size && !reachableSizes[i][size]; n++) {
+					reachableSizes[i][size] = reachableSizes[i + 1][size - n * sizes[i]];
+				}
+			}
+		}
+		return reachableSizes;
+	}
+
+	/**
+	 * Recursive method. Adds one more ship of the given type or of a later type to the combination. If the sum of sizes matches
+	 * the number of hit cells, the combination is added to the list, otherwise the search is continued if the rest of the size
+	 * can still be composed of the remaining ships.
+	 *
+	 * @param firstType
+	 *            Index of the first type that can be added.
+	 * @param remainingSize
+	 *            Number of hit cells that are not covered by the combination.
+	 * @param sizes
+	 *            Structure size of every type.
+	 * @param counts
+	 *            Number of hidden ships of every type.
+	 * @param combinationCounts
+	 *            Number of ships of every type in the current combination.
+	 * @param reachableSizes
+	 *            Subset-sum table.
+	 * @param countsCombinations
+	 *            List of found combinations.
+	 */
+	private void computeCombinationsFromType(int firstType, int remainingSize, int[] sizes, int[] counts, int[] combinationCounts,
+											 boolean[][] reachableSizes, List<int[]> countsCombinations) {
+
+		for (int i = firstType; i < sizes.length; i++) {
+			if (combinationCounts[i] == counts[i] || sizes[i] > remainingSize) {
+				continue;
+			}
+
+			combinationCounts[i]++;
+			int newRemainingSize = remainingSize - sizes[i];
+			if (0 == newRemainingSize) {
+				countsCombinations.add(combinationCounts.clone());
+			} else if (isSizeReachable(i, newRemainingSize, sizes, counts, combinationCounts, reachableSizes)) {
+				computeCombinationsFromType(i, newRemainingSize, sizes, counts, combinationCounts, reachableSizes, countsCombinations);
+			}
+			combinationCounts[i]--;
+		}
+	}
+
+	/**
+	 * Checks if the given size can be composed of the ships of the given type that are not in the combination yet and of the
+	 * ships of later types.
+	 * 
+	 * @param type
+	 *            Index of the type.
+	 * @param size
+	 *            Size to compose.
+	 * @param sizes
+	 *            Structure size of every type.
+	 * @param counts
+	 *            Number of hidden ships of every type.
+	 * @param combinationCounts
+	 *            Number of ships of every type in the current combination.
+	 * @param reachableSizes
+	 *            Subset-sum table.
+	 * @return True if the size can be composed, false otherwise.
+	 */
+	private boolean isSizeReachable(int type, int size, int[] sizes, int[] counts, int[] combinationCounts,
+									boolean[][] reachableSizes) {
+
+		for (int n = 0; n <= counts[type] - combinationCounts[type] && n * sizes[type] <= size; n++) {
+			if (reachableSizes[type + 1][size - n * sizes[type]]) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
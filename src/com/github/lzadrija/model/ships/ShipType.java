@@ -1,97 +1,199 @@
-package com.github.lzadrija.model.ships;
-
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.List;
-
-import com.github.lzadrija.model.common.Point;
-
-/**
- * This class represents the four types of ships: Petar Kresimir, X Wing, Y Wing and TIE Fighter. Each type of ship has a unique
- * structure which is represented by the list of relative coordinates where is the upper left coordinate (0, 0) is the beginning of the
- * coordinate system, and all other relative coordinates are computed from this point from left to right.
- *         
- * @author Lucija Zadrija
- *  
- */
-public enum ShipType {
-
-	PETAR_KRESIMIR(Arrays.asList(new Point(0, 0), new Point(0, 1), new Point(0, 2), new Point(0, 3))),
-
-	X_WING(Arrays.asList(new Point(0, 0), new Point(2, 0), new Point(1, 1), new Point(0, 2), new Point(2, 2))),
-
-	Y_WING(Arrays.asList(new Point(0, 0), new Point(2, 0), new Point(0, 1), new Point(2, 1), new Point(1, 2))),
-
-	TIE_FIGHTER(Arrays.asList(new Point(0, 0), new Point(2, 0), new Point(0, 1), new Point(1, 1), new Point(2, 1), new Point(0, 2), 
-							  new Point(2, 2)));
-
-	private final List<Point> structure;
-	private final int structureSize;
-
-	private final int height, width;
-
-	/**
-	 * Constructor, sets the ship type's structure.
-	 * 
-	 * @param structure
-	 *            Ship type's structure.
-	 */
-	private ShipType(List<Point> structure) {
-
-		this.structure = structure;
-		structureSize = structure.size();
-
-		height = computeHeight();
-		width = computeWidth();
-	}
-
-	protected List<Point> getStructure() {
-		return structure;
-	}
-
-	protected int getStructureSize() {
-		return structureSize;
-	}
-
-	protected int getHeight() {
-		return height;
-	}
-
-	protected int getWidth() {
-		return width;
-	}
-
-	/**
-	 * Computes height of a ship of this type based on the structure.
-	 * 
-	 * @return Height.
-	 */
-	private int computeHeight() {
-
-		int height = 0;
-		for (Iterator<Point> iterator = structure.iterator(); iterator.hasNext();) {
-			Point point = iterator.next();
-
-			height = (point.getY() > height) ? point.getY() : height;
-		}
-		height++;
-		return height;
-	}
-
-	/**
-	 * Computes width of a ship of this type based on the structure.
-	 * 
-	 * @return Width.
-	 */
-	private int computeWidth() {
-
-		int width = 0;
-		for (Iterator<Point> iterator = structure.iterator(); iterator.hasNext();) {
-			Point point = iterator.next();
-
-			width = (point.getX() > width) ? point.getX() : width;
-		}
-		width++;
-		return width;
-	}
-}
+package com.github.lzadrija.model.ships;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.StructureMask;
+
+/**
+ * This class represents a type of ship. Each type of ship has a name and a unique structure which is represented by the list of
+ * relative coordinates where is the upper left coordinate (0, 0) is the beginning of the coordinate system, and all other relative
+ * coordinates are computed from this point from left to right. The structure is compiled when the type is created into its
+ * bitmask, which also holds the offsets as primitive tables and the bounding box, so placements can be tested and visited
+ * without creating points. The four default types are Petar Kresimir, X Wing, Y Wing and TIE Fighter, other types can be read
+ * from a fleet configuration.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public final class ShipType {
+
+	public static final ShipType PETAR_KRESIMIR = new ShipType("PETAR_KRESIMIR", Arrays.asList(new Point(0, 0), new Point(0, 1),
+																								 new Point(0, 2), new Point(0, 3)));
+
+	public static final ShipType X_WING = new ShipType("X_WING", Arrays.asList(new Point(0, 0), new Point(2, 0), new Point(1, 1),
+																				 new Point(0, 2), new Point(2, 2)));
+
+	public static final ShipType Y_WING = new ShipType("Y_WING", Arrays.asList(new Point(0, 0), new Point(2, 0), new Point(0, 1),
+																				 new Point(2, 1), new Point(1, 2)));
+
+	public static final ShipType TIE_FIGHTER = new ShipType("TIE_FIGHTER", Arrays.asList(new Point(0, 0), new Point(2, 0),
+																						   new Point(0, 1), new Point(1, 1),
+																						   new Point(2, 1), new Point(0, 2),
+																						   new Point(2, 2)));
+
+	private static final List<ShipType> DEFAULT_TYPES = Collections.unmodifiableList(Arrays.asList(PETAR_KRESIMIR, X_WING, Y_WING,
+																									 TIE_FIGHTER));
+
+	private final String name;
+	private final List<Point> structure;
+	private final StructureMask structureMask;
+	private final int structureSize;
+
+	private final int height, width;
+
+	/**
+	 * Constructor, sets the ship type's name and structure.
+	 * 
+	 * @param name
+	 *            Ship type's name.
+	 * @param structure
+	 *            Ship type's structure, relative coordinates of the cells. Both the smallest x and the smallest y coordinate
+	 *            must be zero.
+	 * @throws NullPointerException
+	 *             If name or structure is null.
+	 * @throws IllegalArgumentException
+	 *             If the structure is empty, wider than 64 cells, contains duplicate cells or does not start at (0, 0).
+	 */
+	public ShipType(String name, List<Point> structure) {
+
+		if (null == name || null == structure) {
+			throw new NullPointerException("Name and structure cannot be null");
+		}
+		if (new HashSet<>(structure).size() != structure.size()) {
+			throw new IllegalArgumentException("Duplicate cells in structure of " + name);
+		}
+
+		this.name = name;
+		this.structure = Collections.unmodifiableList(new ArrayList<>(structure));
+		structureMask = new StructureMask(this.structure);
+		structureSize = structure.size();
+
+		height = computeHeight();
+		width = computeWidth();
+
+		if (0 == structureMask.getRowMask(0) || !isFirstColumnOccupied()) {
+			throw new IllegalArgumentException("Structure of " + name + " does not start at (0, 0)");
+		}
+	}
+
+	/**
+	 * Returns the four default ship types.
+	 * 
+	 * @return Unmodifiable list of the default ship types.
+	 */
+	public static List<ShipType> values() {
+		return DEFAULT_TYPES;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	protected List<Point> getStructure() {
+		return structure;
+	}
+
+	protected StructureMask getStructureMask() {
+		return structureMask;
+	}
+
+	protected int getStructureSize() {
+		return structureSize;
+	}
+
+	protected int getHeight() {
+		return height;
+	}
+
+	protected int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Computes height of a ship of this type based on the structure.
+	 * 
+	 * @return Height.
+	 */
+	private int computeHeight() {
+
+		int height = 0;
+		for (Iterator<Point> iterator = structure.iterator(); iterator.hasNext();) {
+			Point point = iterator.next();
+
+			height = (point.getY() > height) ? point.getY() : height;
+		}
+		height++;
+		return height;
+	}
+
+	/**
+	 * Computes width of a ship of this type based on the structure.
+	 * 
+	 * @return Width.
+	 */
+	private int computeWidth() {
+
+		int width = 0;
+		for (Iterator<Point> iterator = structure.iterator(); iterator.hasNext();) {
+			Point point = iterator.next();
+
+			width = (point.getX() > width) ? point.getX() : width;
+		}
+		width++;
+		return width;
+	}
+
+	/**
+	 * Checks if the structure occupies some cell of its first column.
+	 * 
+	 * @return True if some cell has x coordinate zero, false otherwise.
+	 */
+	private boolean isFirstColumnOccupied() {
+
+		for (int row = 0; row < height; row++) {
+			if (structureMask.containsOffset(0, row)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the hash code computed from the name and the structure. It is not cached, since the points of the structure are
+	 * mutable and reachable through {@link Ship#getStructure()}.
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * name.hashCode() + structure.hashCode();
+	}
+
+	/**
+	 * Ship types are equal if they have the same name and the same structure.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ShipType)) {
+			return false;
+		}
+		ShipType shipType = (ShipType) obj;
+		return name.equals(shipType.name) && structure.equals(shipType.structure);
+	}
+
+	/**
+	 * Returns the name of this ship type.
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+}
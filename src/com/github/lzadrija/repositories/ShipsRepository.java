@@ -1,203 +1,441 @@
-package com.github.lzadrija.repositories;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-import com.github.lzadrija.model.common.Point;
-import com.github.lzadrija.model.services.ShipsCombinationsComputer;
-import com.github.lzadrija.model.ships.Ship;
-
-/**
- * Repository for the fleet of ships.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class ShipsRepository {
-
-	private List<Ship> ships;
-	private static ShipsRepository instance = new ShipsRepository();
-
-	/**
-	 * Default constructor.
-	 */
-	private ShipsRepository() {
-		ships = new ArrayList<>();
-	}
-
-	public static ShipsRepository getInstance() {
-		return instance;
-	}
-
-	public void addShip(Ship ship) {
-		ships.add(ship);
-	}
-
-	public void addShips(List<Ship> ships) {
-		this.ships.addAll(ships);
-	}
-
-	/**
-	 * Sets the position of the given ship.
-	 * 
-	 * @param ship
-	 *            Ship.
-	 * @param position
-	 *            Position (upper left point on the grid).
-	 * @throws IllegalArgumentException
-	 *             If this repository does not contain the given ship.
-	 */
-	public void exposeShip(Ship ship, Point position) {
-
-		if (!ships.contains(ship)) {
-			throw new IllegalArgumentException();
-		}
-
-		int index = ships.indexOf(ship);
-
-		ship.setPosition(position);
-		ships.set(index, ship);
-	}
-
-	/**
-	 * Retrieves the ships whose position on the grid is not yet discovered.
-	 * 
-	 * @return List of ships whose position on the grid is undiscovered.
-	 */
-	private List<Ship> getHiddenShips() {
-		List<Ship> hiddenShips = new ArrayList<>();
-
-		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
-			Ship ship = iterator.next();
-
-			if (ship.isShipHidden()) {
-				hiddenShips.add(ship);
-			}
-		}
-		return hiddenShips;
-	}
-
-	/**
-	 * Returns the indexes of the undiscovered ships.
-	 * 
-	 * @return List of indexes.
-	 */
-	public List<Integer> getHiddenShipsIndexes() {
-		List<Integer> hiddenShipsIndexes = new ArrayList<>();
-
-		for (int i = 0; i < ships.size(); i++) {
-			Ship ship = ships.get(i);
-			if (ship.isShipHidden()) {
-				hiddenShipsIndexes.add(i);
-			}
-		}
-		return hiddenShipsIndexes;
-	}
-
-	/**
-	 * Retrieves the height of the ship with the given index.
-	 * 
-	 * @param Index
-	 *            Ships index in the list of ships.
-	 * @return Ship's height.
-	 */
-	public int getShipsHeight(int index) {
-
-		Ship ship = ships.get(index);
-
-		return ship.getHeight();
-	}
-
-	/**
-	 * Retrieves the width of the ship with the given index.
-	 * 
-	 * @param index
-	 *            Ships index in the list of ships.
-	 * @return Ship's width.
-	 */
-	public int getShipsWidth(int index) {
-
-		Ship ship = ships.get(index);
-
-		return ship.getWidth();
-	}
-
-	/**
-	 * Returns the ship's structure.
-	 * 
-	 * @param index
-	 *            Ships index in the list of ships.
-	 * @return Ship's structure
-	 */
-	public List<Point> getShipsStructure(int index) {
-		Ship ship = ships.get(index);
-
-		return ship.getStructure();
-	}
-
-	/**
-	 * Returns all possible upper left coordinates of the ship with the given index on the grid based on the ship's structure.
-	 * 
-	 * @param index
-	 *            Ships index in the list of ships.
-	 * @param initialPoint
-	 *            Point on the grid that is the first upper left coordinate from which all other upper left coordinates are computed.
-	 * @return List of all possible upper left coordinates.
-	 */
-	public List<Point> getShipsAllPossibleUpperLeftCoordinates(int index, Point initialPoint) {
-		Ship ship = ships.get(index);
-		List<Point> coordinatesList = ship.getAllPossibleUpperLeftCoordinates(initialPoint);
-		return coordinatesList;
-	}
-
-	/**
-	 * Checks if all ships' positions were discovered.
-	 * 
-	 * @return true if all ships were sunk, false otherwise.
-	 */
-	public boolean isFleetSunk() {
-		return getHiddenShips().isEmpty();
-	}
-
-	/**
-	 * As ships can be placed right next to each other on the grid, when they are sunk, it must be determined which ship is at 
-	 * which position. In order to determine this, all combinations of the hidden ships' placements are computed using the number 
-	 * of hit cells on the grid.
-	 * 
-	 * @param hitShipsGroupSize
-	 *            Number of hit cells on the grid (number of coordinates of the hit combinations of ships).
-	 * @return List of ships' placement combinations.
-	 */
-	public List<List<Ship>> getAllHiddenShipsSizeCombinations(int hitShipsGroupSize) {
-
-		List<Ship> hiddenShips = getHiddenShips();
-
-		List<List<Ship>> shipsSizeCombinations = ShipsCombinationsComputer.getInstance().getAllShipsSizeCombinations(hitShipsGroupSize,
-																													 hiddenShips);
-		return shipsSizeCombinations;
-	}
-
-	/**
-	 * Returns representation of ships repository. The exact details of the representation are subject to change, but the 
-	 * following may be regarded as typical:
-	 * 
-	 * Type = PETAR_KRESIMIR, position = [x = 16, y = 33]
-	 * 
-	 * Type = X_WING, position = unknown
-	 * 
-	 * Type = Y_WING, position = [x = 11, y = 7]
-	 * 
-	 * Type = TIE_FIGHTER, position = unknown
-	 */
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
-			Ship ship = iterator.next();
-
-			sb.append(ship.toString()).append("\n");
-		}
-		return sb.toString();
-	}
+package com.github.lzadrija.repositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.services.ShipsCombinationsComputer;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+
+/**
+ * Repository for the fleet of ships. The index of every ship and the number of hidden ships of every type are kept up to date,
+ * so that large fleets with many ships of the same type can be handled per type instead of per ship.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class ShipsRepository {
+
+	private List<Ship> ships;
+	private List<ShipsRepositoryListener> listeners;
+	private final ShipsCombinationsComputer combinationsComputer;
+
+	private final Map<Ship, Integer> shipsIndexes;
+	private final Map<ShipType, Integer> hiddenShipsCounts;
+	private int nHiddenShips;
+
+	/**
+	 * Default constructor. Every game has its own repository.
+	 */
+	public ShipsRepository() {
+		ships = new ArrayList<>();
+		listeners = new ArrayList<>();
+		combinationsComputer = new ShipsCombinationsComputer();
+		shipsIndexes = new IdentityHashMap<>();
+		hiddenShipsCounts = new HashMap<>();
+	}
+
+	/**
+	 * Adds the ship to the repository.
+	 * 
+	 * @param ship
+	 *            Ship.
+	 * @throws IllegalArgumentException
+	 *             If the repository already contains the given ship.
+	 */
+	public void addShip(Ship ship) {
+
+		if (shipsIndexes.containsKey(ship)) {
+			throw new IllegalArgumentException("Ship already added: " + ship.toString());
+		}
+		shipsIndexes.put(ship, ships.size());
+		ships.add(ship);
+
+		if (ship.isShipHidden()) {
+			changeHiddenShipsCount(ship.getType(), 1);
+		}
+	}
+
+	public void addShips(List<Ship> ships) {
+		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
+			addShip(iterator.next());
+		}
+	}
+
+	/**
+	 * Changes the number of hidden ships of the given type.
+	 * 
+	 * @param shipType
+	 *            Ship's type.
+	 * @param delta
+	 *            Change of the number.
+	 */
+	private void changeHiddenShipsCount(ShipType shipType, int delta) {
+
+		Integer count = hiddenShipsCounts.get(shipType);
+		int newCount = ((null == count) ? 0 : count) + delta;
+		if (0 == newCount) {
+			hiddenShipsCounts.remove(shipType);
+		} else {
+			hiddenShipsCounts.put(shipType, newCount);
+		}
+		nHiddenShips += delta;
+	}
+
+	/**
+	 * Registers the listener that is notified every time a ship is exposed.
+	 * 
+	 * @param listener
+	 *            Ships repository listener.
+	 * @throws NullPointerException
+	 *             If the listener is null.
+	 */
+	public void addShipsRepositoryListener(ShipsRepositoryListener listener) {
+
+		if (null == listener) {
+			throw new NullPointerException("Listener cannot be null");
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes the previously registered listener.
+	 * 
+	 * @param listener
+	 *            Ships repository listener.
+	 */
+	public void removeShipsRepositoryListener(ShipsRepositoryListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Sets the position of the given ship. Registered listeners are notified.
+	 * 
+	 * @param ship
+	 *            Ship.
+	 * @param position
+	 *            Position (upper left point on the grid).
+	 * @throws IllegalArgumentException
+	 *             If this repository does not contain the given ship.
+	 */
+	public void exposeShip(Ship ship, Point position) {
+
+		Integer shipsIndex = shipsIndexes.get(ship);
+		if (null == shipsIndex) {
+			throw new IllegalArgumentException();
+		}
+
+		int index = shipsIndex;
+		if (ship.isShipHidden()) {
+			changeHiddenShipsCount(ship.getType(), -1);
+		}
+		ship.setPosition(position);
+
+		for (Iterator<ShipsRepositoryListener> iterator = listeners.iterator(); iterator.hasNext();) {
+			ShipsRepositoryListener listener = iterator.next();
+			listener.shipExposed(index);
+		}
+	}
+
+	/**
+	 * Sets the position of the given ship, see {@link #exposeShip(Ship, Point)}.
+	 * 
+	 * @param ship
+	 *            Ship.
+	 * @param upperLeftCoordinates
+	 *            Packed coordinates of the ship's upper left point on the grid (see {@link Coordinates}).
+	 * @throws IllegalArgumentException
+	 *             If this repository does not contain the given ship.
+	 */
+	public void exposeShip(Ship ship, int upperLeftCoordinates) {
+		exposeShip(ship, Coordinates.toPoint(upperLeftCoordinates));
+	}
+
+	/**
+	 * Clears the position of the given ship, so that it is hidden again. Used when the sunk ships are identified again. Registered
+	 * listeners are notified.
+	 * 
+	 * @param ship
+	 *            Ship.
+	 * @throws IllegalArgumentException
+	 *             If this repository does not contain the given ship.
+	 */
+	public void hideShip(Ship ship) {
+
+		Integer shipsIndex = shipsIndexes.get(ship);
+		if (null == shipsIndex) {
+			throw new IllegalArgumentException();
+		}
+		if (ship.isShipHidden()) {
+			return;
+		}
+
+		int index = shipsIndex;
+		changeHiddenShipsCount(ship.getType(), 1);
+		ship.setPosition(null);
+
+		for (Iterator<ShipsRepositoryListener> iterator = listeners.iterator(); iterator.hasNext();) {
+			ShipsRepositoryListener listener = iterator.next();
+			listener.shipHidden(index);
+		}
+	}
+
+	/**
+	 * Retrieves the ships whose position on the grid is not yet discovered.
+	 * 
+	 * @return List of ships whose position on the grid is undiscovered.
+	 */
+	private List<Ship> getHiddenShips() {
+		List<Ship> hiddenShips = new ArrayList<>();
+
+		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+
+			if (ship.isShipHidden()) {
+				hiddenShips.add(ship);
+			}
+		}
+		return hiddenShips;
+	}
+
+	/**
+	 * Returns the indexes of the undiscovered ships.
+	 * 
+	 * @return List of indexes.
+	 */
+	public List<Integer> getHiddenShipsIndexes() {
+		List<Integer> hiddenShipsIndexes = new ArrayList<>();
+
+		for (int i = 0; i < ships.size(); i++) {
+			Ship ship = ships.get(i);
+			if (ship.isShipHidden()) {
+				hiddenShipsIndexes.add(i);
+			}
+		}
+		return hiddenShipsIndexes;
+	}
+
+	/**
+	 * Returns the index of one hidden ship of every type that has hidden ships, the first one in the list of ships.
+	 * 
+	 * @return List of indexes, one for every hidden type.
+	 */
+	public List<Integer> getHiddenShipTypesIndexes() {
+
+		Map<ShipType, Integer> typesIndexes = new LinkedHashMap<>();
+		for (int i = 0; i < ships.size() && typesIndexes.size() < hiddenShipsCounts.size(); i++) {
+			Ship ship = ships.get(i);
+			if (ship.isShipHidden() && !typesIndexes.containsKey(ship.getType())) {
+				typesIndexes.put(ship.getType(), i);
+			}
+		}
+		return new ArrayList<>(typesIndexes.values());
+	}
+
+	/**
+	 * Returns the number of hidden ships of the same type as the ship with the given index.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @return Number of hidden ships of the type.
+	 */
+	public int getHiddenShipsCountOfType(int index) {
+
+		Integer count = hiddenShipsCounts.get(ships.get(index).getType());
+
+		return (null == count) ? 0 : count;
+	}
+
+	/**
+	 * Returns the type of the ship with the given index.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @return Ship's type.
+	 */
+	public ShipType getShipsType(int index) {
+		return ships.get(index).getType();
+	}
+
+	/**
+	 * Returns the number of ships in this repository, hidden and exposed.
+	 * 
+	 * @return Number of ships.
+	 */
+	public int getShipsCount() {
+		return ships.size();
+	}
+
+	/**
+	 * Retrieves the height of the ship with the given index.
+	 * 
+	 * @param Index
+	 *            Ships index in the list of ships.
+	 * @return Ship's height.
+	 */
+	public int getShipsHeight(int index) {
+
+		Ship ship = ships.get(index);
+
+		return ship.getHeight();
+	}
+
+	/**
+	 * Retrieves the width of the ship with the given index.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @return Ship's width.
+	 */
+	public int getShipsWidth(int index) {
+
+		Ship ship = ships.get(index);
+
+		return ship.getWidth();
+	}
+
+	/**
+	 * Returns the ship's structure.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @return Ship's structure
+	 */
+	public List<Point> getShipsStructure(int index) {
+		Ship ship = ships.get(index);
+
+		return ship.getStructure();
+	}
+
+	/**
+	 * Returns the ship's structure compiled into row bitmasks.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @return Ship's compiled structure.
+	 */
+	public StructureMask getShipsStructureMask(int index) {
+		Ship ship = ships.get(index);
+
+		return ship.getStructureMask();
+	}
+
+	/**
+	 * Returns all possible upper left coordinates of the ship with the given index on the grid based on the ship's structure.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @param initialPoint
+	 *            Point on the grid that is the first upper left coordinate from which all other upper left coordinates are computed.
+	 * @return List of all possible upper left coordinates.
+	 */
+	public List<Point> getShipsAllPossibleUpperLeftCoordinates(int index, Point initialPoint) {
+		Ship ship = ships.get(index);
+		List<Point> coordinatesList = ship.getAllPossibleUpperLeftCoordinates(initialPoint);
+		return coordinatesList;
+	}
+
+	/**
+	 * Returns the possible upper left coordinates of the ship with the given index, see
+	 * {@link #getShipsAllPossibleUpperLeftCoordinates(int, Point)}. Upper left points with a negative coordinate are left out,
+	 * as they cannot be packed (and they are off the grid anyway).
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @param initialCoordinates
+	 *            Packed coordinates of the point on the grid from which the upper left coordinates are computed.
+	 * @return Packed upper left coordinates, in the order of the ship's structure.
+	 */
+	public int[] getShipsAllPossibleUpperLeftCoordinates(int index, int initialCoordinates) {
+
+		StructureMask structureMask = ships.get(index).getStructureMask();
+		int x = Coordinates.getX(initialCoordinates), y = Coordinates.getY(initialCoordinates);
+
+		int[] upperLeftCoordinates = new int[structureMask.getCellsCount()];
+		int n = 0;
+		for (int cell = 0; cell < structureMask.getCellsCount(); cell++) {
+			int upperLeftX = x - structureMask.getXOffset(cell), upperLeftY = y - structureMask.getYOffset(cell);
+
+			if (upperLeftX >= 0 && upperLeftY >= 0) {
+				upperLeftCoordinates[n++] = Coordinates.encode(upperLeftX, upperLeftY);
+			}
+		}
+		return (n == upperLeftCoordinates.length) ? upperLeftCoordinates : Arrays.copyOf(upperLeftCoordinates, n);
+	}
+
+	/**
+	 * Checks if all ships' positions were discovered.
+	 * 
+	 * @return true if all ships were sunk, false otherwise.
+	 */
+	public boolean isFleetSunk() {
+		return 0 == nHiddenShips;
+	}
+
+	/**
+	 * As ships can be placed right next to each other on the grid, when they are sunk, it must be determined which ship is at 
+	 * which position. In order to determine this, all combinations of the hidden ships' placements are computed using the number 
+	 * of hit cells on the grid.
+	 * 
+	 * @param hitShipsGroupSize
+	 *            Number of hit cells on the grid (number of coordinates of the hit combinations of ships).
+	 * @return List of ships' placement combinations.
+	 */
+	public List<List<Ship>> getAllHiddenShipsSizeCombinations(int hitShipsGroupSize) {
+		return getAllHiddenShipsSizeCombinations(hitShipsGroupSize, Collections.<Ship>emptyList());
+	}
+
+	/**
+	 * Computes all combinations of the hidden ships' placements using the number of hit cells on the grid, leaving out the given
+	 * ships. Used when several hit areas are identified together, so that a ship already assigned to one area is not assigned
+	 * to another.
+	 * 
+	 * @param hitShipsGroupSize
+	 *            Number of hit cells on the grid (number of coordinates of the hit combinations of ships).
+	 * @param reservedShips
+	 *            Hidden ships that are left out of the combinations.
+	 * @return List of ships' placement combinations.
+	 */
+	public List<List<Ship>> getAllHiddenShipsSizeCombinations(int hitShipsGroupSize, Collection<Ship> reservedShips) {
+
+		List<Ship> hiddenShips = getHiddenShips();
+		hiddenShips.removeAll(reservedShips);
+
+		List<List<Ship>> shipsSizeCombinations = combinationsComputer.getAllShipsSizeCombinations(hitShipsGroupSize, hiddenShips);
+		return shipsSizeCombinations;
+	}
+
+	/**
+	 * Returns representation of ships repository. The exact details of the representation are subject to change, but the 
+	 * following may be regarded as typical:
+	 * 
+	 * Type = PETAR_KRESIMIR, position = [x = 16, y = 33]
+	 * 
+	 * Type = X_WING, position = unknown
+	 * 
+	 * Type = Y_WING, position = [x = 11, y = 7]
+	 * 
+	 * Type = TIE_FIGHTER, position = unknown
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Iterator<Ship> iterator = ships.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+
+			sb.append(ship.toString()).append("\n");
+		}
+		return sb.toString();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.github.lzadrija.repositories;
+
+/**
+ * Listener that is notified when the position of a hidden ship from the ships repository is discovered, or when the position of
+ * an exposed ship is cleared again.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public interface ShipsRepositoryListener {
+
+	/**
+	 * Called after the position of the ship with the given index was set.
+	 *
+	 * @param index
+	 *            Ships index in the list of ships.
+	 */
+	void shipExposed(int index);
+
+	/**
+	 * Called after the position of the ship with the given index was cleared, so that the ship is hidden again.
+	 *
+	 * @param index
+	 *            Ships index in the list of ships.
+	 */
+	void shipHidden(int index);
+}
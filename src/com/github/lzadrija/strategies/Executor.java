@@ -1,62 +1,138 @@
-package com.github.lzadrija.strategies;
-
-import java.util.HashMap;
-import java.util.Map;
-
-import com.github.lzadrija.dataProviders.DataProvider;
-import com.github.lzadrija.exceptions.DataNotAvailableException;
-import com.github.lzadrija.model.common.Point;
-
-/**
- * This class is used for providing information about the cell content on the given position on the map (grid).
- *         
- * @author Lucija Zadrija
- *  
- */
-public class Executor implements IExecutor {
-
-	private final DataProvider dataProvider;
-	private Map<Integer, FireResult> resultCodes;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param dataProvider
-	 *            Data provider used for retrieving data about sea grid status.
-	 * @throws NullPointerException
-	 *             If the data provider is null.
-	 */
-	public Executor(DataProvider dataProvider) {
-
-		if (null == dataProvider) {
-			throw new NullPointerException();
-		}
-
-		this.dataProvider = dataProvider;
-		this.resultCodes = new HashMap<>();
-
-		fillResultCodesMap();
-	}
-
-	@Override
-	public FireResult fire(Point point) throws DataNotAvailableException {
-
-		Integer result = null;
-
-		result = dataProvider.getCellContent(point.getX() + 1, point.getY() + 1);
-
-		FireResult fireResult = resultCodes.get(result);
-
-		return fireResult;
-	}
-
-	/**
-	 * If the sea map contains one (1) it is marked as a HIT, also if the sea map contains zero (0) it is marked as a MISS. 
-	 * This method stores this information in a map.
-	 */
-	private void fillResultCodesMap() {
-
-		resultCodes.put(dataProvider.getHitCode(), FireResult.HIT);
-		resultCodes.put(dataProvider.getMissCode(), FireResult.MISS);
-	}
-}
+package com.github.lzadrija.strategies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import com.github.lzadrija.dataProviders.DataProvider;
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.Point;
+
+/**
+ * This class is used for providing information about the cell content on the given position on the map (grid). Asynchronous requests
+ * are sent from virtual threads, one thread per request.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class Executor implements IExecutor {
+
+	private static final ExecutorService requestsExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final DataProvider dataProvider;
+	private Map<Integer, FireResult> resultCodes;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param dataProvider
+	 *            Data provider used for retrieving data about sea grid status.
+	 * @throws NullPointerException
+	 *             If the data provider is null.
+	 */
+	public Executor(DataProvider dataProvider) {
+
+		if (null == dataProvider) {
+			throw new NullPointerException();
+		}
+
+		this.dataProvider = dataProvider;
+		this.resultCodes = new HashMap<>();
+
+		fillResultCodesMap();
+	}
+
+	@Override
+	public FireResult fire(Point point) throws DataNotAvailableException {
+		return fire(point.getX(), point.getY());
+	}
+
+	@Override
+	public FireResult fire(int coordinates) throws DataNotAvailableException {
+		return fire(Coordinates.getX(coordinates), Coordinates.getY(coordinates));
+	}
+
+	/**
+	 * Discovers the grid content on the given position.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate on the grid.
+	 * @param yCoordinate
+	 *            y coordinate on the grid.
+	 * @return HIT or MISS.
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved.
+	 */
+	private FireResult fire(int xCoordinate, int yCoordinate) throws DataNotAvailableException {
+
+		Integer result = null;
+
+		result = dataProvider.getCellContent(xCoordinate + 1, yCoordinate + 1);
+
+		FireResult fireResult = resultCodes.get(result);
+
+		return fireResult;
+	}
+
+	@Override
+	public CompletableFuture<FireResult> fireAsync(Point point) {
+		return fireAsync(Coordinates.encode(point));
+	}
+
+	@Override
+	public CompletableFuture<FireResult> fireAsync(final int coordinates) {
+
+		CompletableFuture<FireResult> fireResultFuture = CompletableFuture.supplyAsync(new Supplier<FireResult>() {
+			@Override
+			public FireResult get() {
+				return fire(coordinates);
+			}
+		}, requestsExecutor);
+		return fireResultFuture;
+	}
+
+	@Override
+	public List<FireResult> fireBatch(List<Point> points) throws DataNotAvailableException {
+
+		int[] coordinates = new int[points.size()];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = Coordinates.encode(points.get(i));
+		}
+		return fireBatch(coordinates);
+	}
+
+	@Override
+	public List<FireResult> fireBatch(int[] coordinates) throws DataNotAvailableException {
+
+		int[] xCoordinates = new int[coordinates.length];
+		int[] yCoordinates = new int[coordinates.length];
+		for (int i = 0; i < xCoordinates.length; i++) {
+			xCoordinates[i] = Coordinates.getX(coordinates[i]) + 1;
+			yCoordinates[i] = Coordinates.getY(coordinates[i]) + 1;
+		}
+
+		int[] results = (0 == xCoordinates.length) ? xCoordinates : dataProvider.getCellsContent(xCoordinates, yCoordinates);
+
+		List<FireResult> fireResults = new ArrayList<>(results.length);
+		for (int i = 0; i < results.length; i++) {
+			fireResults.add(resultCodes.get(results[i]));
+		}
+		return fireResults;
+	}
+
+	/**
+	 * If the sea map contains one (1) it is marked as a HIT, also if the sea map contains zero (0) it is marked as a MISS. 
+	 * This method stores this information in a map.
+	 */
+	private void fillResultCodesMap() {
+
+		resultCodes.put(dataProvider.getHitCode(), FireResult.HIT);
+		resultCodes.put(dataProvider.getMissCode(), FireResult.MISS);
+	}
+}
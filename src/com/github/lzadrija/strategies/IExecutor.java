@@ -1,25 +1,96 @@
-package com.github.lzadrija.strategies;
-
-import com.github.lzadrija.exceptions.DataNotAvailableException;
-import com.github.lzadrija.model.common.Point;
-
-/**
- * This interface is used for discovering grid content on the specified position.
- *         
- * @author Lucija Zadrija
- *  
- */
-public interface IExecutor {
-
-	/**
-	 * Discovers the grid content on the given position. Returns HIT if this position contains part of the ship, or MISS 
-	 * if the water was hit (there is no ship on the given position).
-	 * 
-	 * @param point
-	 *            Position on the grid.
-	 * @return HIT if this position contains part of the ship, or MISS if the water was hit (there is no ship on the given position).
-	 * @throws DataNotAvailableException
-	 *             If data could not be retrieved.
-	 */
-	public FireResult fire(Point point) throws DataNotAvailableException;
-}
+package com.github.lzadrija.strategies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.Point;
+
+/**
+ * This interface is used for discovering grid content on the specified position. Positions can be given as points or as packed
+ * coordinates (see {@link Coordinates}); by default the packed variants convert the coordinates to points, implementations that
+ * work with coordinates directly should override them.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public interface IExecutor {
+
+	/**
+	 * Discovers the grid content on the given position. Returns HIT if this position contains part of the ship, or MISS 
+	 * if the water was hit (there is no ship on the given position).
+	 * 
+	 * @param point
+	 *            Position on the grid.
+	 * @return HIT if this position contains part of the ship, or MISS if the water was hit (there is no ship on the given position).
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved.
+	 */
+	public FireResult fire(Point point) throws DataNotAvailableException;
+
+	/**
+	 * Discovers the grid content on the given position without blocking the caller. The returned future is completed with HIT
+	 * or MISS, or completed exceptionally with DataNotAvailableException if data could not be retrieved.
+	 * 
+	 * @param point
+	 *            Position on the grid.
+	 * @return Future result of firing at the given position.
+	 */
+	public CompletableFuture<FireResult> fireAsync(Point point);
+
+	/**
+	 * Discovers the grid content on all given positions in one call, so that the requests for the positions are sent
+	 * together instead of one after another.
+	 * 
+	 * @param points
+	 *            Positions on the grid.
+	 * @return HIT or MISS for every position, in the order of the given positions.
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved for any of the positions.
+	 */
+	public List<FireResult> fireBatch(List<Point> points) throws DataNotAvailableException;
+
+	/**
+	 * Discovers the grid content on the given position, see {@link #fire(Point)}.
+	 * 
+	 * @param coordinates
+	 *            Packed coordinates of the position on the grid.
+	 * @return HIT if this position contains part of the ship, or MISS if the water was hit (there is no ship on the given position).
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved.
+	 */
+	public default FireResult fire(int coordinates) throws DataNotAvailableException {
+		return fire(Coordinates.toPoint(coordinates));
+	}
+
+	/**
+	 * Discovers the grid content on the given position without blocking the caller, see {@link #fireAsync(Point)}.
+	 * 
+	 * @param coordinates
+	 *            Packed coordinates of the position on the grid.
+	 * @return Future result of firing at the given position.
+	 */
+	public default CompletableFuture<FireResult> fireAsync(int coordinates) {
+		return fireAsync(Coordinates.toPoint(coordinates));
+	}
+
+	/**
+	 * Discovers the grid content on all given positions in one call, see {@link #fireBatch(List)}.
+	 * 
+	 * @param coordinates
+	 *            Packed coordinates of the positions on the grid.
+	 * @return HIT or MISS for every position, in the order of the given positions.
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved for any of the positions.
+	 */
+	public default List<FireResult> fireBatch(int[] coordinates) throws DataNotAvailableException {
+
+		List<Point> points = new ArrayList<>(coordinates.length);
+		for (int i = 0; i < coordinates.length; i++) {
+			points.add(Coordinates.toPoint(coordinates[i]));
+		}
+		return fireBatch(points);
+	}
+}
@@ -0,0 +1,116 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.lzadrija.model.common.Point;
+
+/**
+ * Scores a range of candidate targets by the expected information gained by firing at them. Every hidden ship is assumed to be at
+ * any of its possible placements with the same probability, independently of the other ships (as the ship locator assumes when
+ * it counts placements). A miss at a cell removes the placements passing through it, so the space of fleet placements shrinks to
+ * the product of the ratios of the remaining placements of every ship, which is the probability of a miss. A hit keeps the rest of
+ * the space. The expected information of the shot is therefore the binary entropy of its outcome, in bits:
+ *
+ * <pre>
+ * P(miss) = product over hidden ships of (n - h) / n
+ * I = -P(miss) * log2(P(miss)) - P(hit) * log2(P(hit))
+ * </pre>
+ *
+ * where n is the number of the ship's placements and h the number of them passing through the cell. Evaluations of different
+ * ranges only read the placement index and write to different elements of the scores, so they can run in parallel as long as each
+ * one has its own scratch buffer.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+@SuppressWarnings("serial")
+public class CandidatesEvaluation extends RecursiveAction {
+
+	private final PlacementIndex placementIndex;
+	private final int[] typesPlacementsCounts;
+	private final List<Point> candidates;
+	private final int fromCandidate, toCandidate;
+	private final double[] missProbabilities;
+	private final double[] scores;
+
+	private final int[] typesPlacementsThrough;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param placementIndex
+	 *            Placement index that is up to date with the grid.
+	 * @param typesPlacementsCounts
+	 *            Number of placements of every ship type in the index.
+	 * @param candidates
+	 *            Candidate targets.
+	 * @param fromCandidate
+	 *            Index of the first evaluated candidate (inclusive).
+	 * @param toCandidate
+	 *            Index of the last evaluated candidate (exclusive).
+	 * @param missProbabilities
+	 *            Array in which the probability of a miss at every candidate is stored.
+	 * @param scores
+	 *            Array in which the expected information of every candidate is stored.
+	 */
+	public CandidatesEvaluation(PlacementIndex placementIndex, int[] typesPlacementsCounts, List<Point> candidates, int fromCandidate,
+								int toCandidate, double[] missProbabilities, double[] scores) {
+
+		this.placementIndex = placementIndex;
+		this.typesPlacementsCounts = typesPlacementsCounts;
+		this.candidates = candidates;
+		this.fromCandidate = fromCandidate;
+		this.toCandidate = toCandidate;
+		this.missProbabilities = missProbabilities;
+		this.scores = scores;
+
+		typesPlacementsThrough = new int[typesPlacementsCounts.length];
+	}
+
+	@Override
+	protected void compute() {
+
+		for (int i = fromCandidate; i < toCandidate; i++) {
+			Point candidate = candidates.get(i);
+
+			for (int t = 0; t < typesPlacementsThrough.length; t++) {
+				typesPlacementsThrough[t] = placementIndex.getPlacementsCountThrough(t, candidate.getX(), candidate.getY());
+			}
+			double missProbability = getMissProbability();
+
+			missProbabilities[i] = missProbability;
+			scores[i] = getEntropy(missProbability) + getEntropy(1 - missProbability);
+		}
+	}
+
+	/**
+	 * Returns the probability that no hidden ship passes through the candidate, from the placements counted in the scratch buffer.
+	 *
+	 * @return Probability of a miss.
+	 */
+	private double getMissProbability() {
+
+		double missProbability = 1;
+		for (int t = 0; t < typesPlacementsThrough.length; t++) {
+			int nPlacements = typesPlacementsCounts[t];
+			if (0 == nPlacements) {
+				continue;
+			}
+			double shipsMissProbability = (double) (nPlacements - typesPlacementsThrough[t]) / nPlacements;
+			missProbability *= Math.pow(shipsMissProbability, placementIndex.getHiddenShipsCountOfType(t));
+		}
+		return missProbability;
+	}
+
+	/**
+	 * Returns one term of the binary entropy.
+	 *
+	 * @param probability
+	 *            Probability of the outcome.
+	 * @return -p * log2(p), zero if the probability is zero.
+	 */
+	private static double getEntropy(double probability) {
+		return (probability <= 0) ? 0 : -probability * Math.log(probability) / Math.log(2);
+	}
+}
@@ -1,15 +1,15 @@
-package com.github.lzadrija.strategies.battle;
-
-/**
- * This interface encapsulates the algorithms for ship's detection and recognition.
- *         
- * @author Lucija Zadrija
- *  
- */
-public interface Destroyer {
-
-	/**
-	 * Used for location and recognition of ships on the map.
-	 */
-	public void sinkBattleShips();
-}
+package com.github.lzadrija.strategies.battle;
+
+/**
+ * This interface encapsulates the algorithms for ship's detection and recognition.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public interface Destroyer {
+
+	/**
+	 * Used for location and recognition of ships on the map.
+	 */
+	public void sinkBattleShips();
+}
@@ -1,258 +1,909 @@
-package com.github.lzadrija.strategies.battle;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import com.github.lzadrija.exceptions.DataNotAvailableException;
-import com.github.lzadrija.model.common.Point;
-import com.github.lzadrija.model.map.Grid;
-import com.github.lzadrija.model.ships.Ship;
-import com.github.lzadrija.repositories.ShipsRepository;
-import com.github.lzadrija.strategies.FireResult;
-import com.github.lzadrija.strategies.IExecutor;
-
-/**
- * This service implements algorithms for ship's localization and recognition. The first algorithm is used for finding the ship's
- * location on the grid by targeting points on the grid he that are most likely to contain ships (Localization mode). The second algorithm
- * (Elimination mode), starts if the ship is hit. Based on the ability of the hidden ships to be positioned on the grid through a hit, most
- * probable cells around a hit are targeted until no more ships can be positioned trough the hit area. All possible combinations of ships
- * that can be positioned over found hit area are computed in order to find out how many ships are located on the hit area and what are
- *  their upper left coordinates.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class DestroyerImpl implements Destroyer {
-
-	private static final Logger logger = Logger.getLogger(DestroyerImpl.class.getName());
-	private final IExecutor executor;
-	private final Grid grid;
-
-	private static TargetFinder locator;
-	private static ShipsRepository shipsRepository;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param executor
-	 *            Used for discovering grid content on the specified position.
-	 * @param grid
-	 *            Representation of the (sea) map.
-	 * @throws NullPointerException
-	 *             If executor or grid are null.
-	 */
-	public DestroyerImpl(IExecutor executor, Grid grid) {
-
-		if (null == executor) {
-			throw new NullPointerException("Executor cannot be null");
-		}
-		if (null == grid) {
-			throw new NullPointerException("Grid can not be null");
-		}
-
-		this.executor = executor;
-		this.grid = grid;
-
-		locator = ShipLocator.getInstance();
-		shipsRepository = ShipsRepository.getInstance();
-	}
-
-	@Override
-	public void sinkBattleShips() {
-
-		while (!shipsRepository.isFleetSunk()) {
-
-			Point shipPosition = locateShips();
-
-			eliminateShipsAroundPoint(shipPosition);
-
-			System.out.println(shipsRepository.toString());
-		}
-		System.out.println(grid.toString());
-	}
-
-	/**
-	 * Used for finding ship's location on the grid. The grid is targeted and fired at until a cell that contains a ship is found.
-	 * 
-	 * @return Coordinates of the cell on the grid that contains a ship.
-	 */
-	private Point locateShips() {
-
-		Point targetPosition = null;
-		FireResult fireResult = FireResult.MISS;
-
-		while (true) {
-			targetPosition = locator.getNextObjective(grid, shipsRepository);
-			try {
-				fireResult = executor.fire(targetPosition);
-			} catch (DataNotAvailableException dataNotAvailableException) {
-				logger.log(Level.SEVERE, null, dataNotAvailableException);
-				continue;
-			}
-			if (fireResult.toString().equals(FireResult.HIT.toString())) {
-				break;
-			}
-			grid.occupyCellAt(targetPosition);
-		}
-		return targetPosition;
-	}
-
-	/**
-	 * Used for finding the size of the hit area after the ship was located on the grid. The area around the given hit is being targeted 
-	 * as long as there are hidden ships that can be placed trough found hits. When the size of the hit area is found, the process of 
-	 * identifying ships on that area is started.
-	 * 
-	 * @param shipsPosition
-	 *            Hit point on the grid that contains ship.
-	 */
-	private void eliminateShipsAroundPoint(Point shipsPosition) {
-		
-		ShipEliminator eliminator = new ShipEliminator(shipsPosition);
-		Point targetPosition = null;
-		FireResult fireResult = FireResult.MISS;
-
-		while (true) {
-			targetPosition = eliminator.getNextObjective(grid, shipsRepository);
-			boolean areShipsEliminated = eliminator.areAllShipsAtThisAreaEliminated(targetPosition);
-			if (areShipsEliminated) {
-				break;
-			}
-			try {
-				fireResult = executor.fire(targetPosition);
-			} catch (DataNotAvailableException dataNotAvailableException) {
-				logger.log(Level.SEVERE, null, dataNotAvailableException);
-				continue;
-			}
-			if (fireResult.toString().equals(FireResult.HIT.toString())) {
-				eliminator.addHit(targetPosition);
-			} else {
-				grid.occupyCellAt(targetPosition);
-			}
-		}
-		grid.occupyArea(eliminator.getHitsCoordinatesList());
-		identifySunkShips(eliminator.getHitsCoordinatesList());
-	}
-
-	/**
-	 * Checks which combination of hidden ships fits best the found hit area. For this to be achieved, all combinations of hidden 
-	 * ships based on their size are computed. Every combination is examined and the right one is found.
-	 * 
-	 * @param hitsPointsList
-	 *            List of points from the grid that contain ship(s).
-	 */
-	public void identifySunkShips(List<Point> hitsPointsList) {
-
-		int hitAreaSize = hitsPointsList.size();
-		List<List<Ship>> shipsSizeCombinations = shipsRepository.getAllHiddenShipsSizeCombinations(hitAreaSize);
-
-		for (Iterator<List<Ship>> iterator = shipsSizeCombinations.iterator(); iterator.hasNext();) {
-			List<Ship> combination = iterator.next();
-
-			Collections.sort(combination);
-
-			Collections.sort(hitsPointsList);
-			boolean match = findSunkShipsPositionsOnGrid(hitsPointsList, combination);
-
-			if (match) {
-				break;
-			}
-		}
-	}
-
-	/**
-	 * Recursive method. Based on the given combination of ships whose sum of sizes is equal to the size of the hit area, the combination 
-	 * that fits the hit area best is found. Ships are sequentially being placed on the points from the hit area, largest first.
-	 * All other ships are positioned next to it in order to find out if they fit in the hit area. When the perfect match is found, 
-	 * algorithm is stopped and ships positions revealed.
-	 * 
-	 * @param hitsPointsList
-	 *            List of points from the grid that contain ship(s).
-	 * @param shipsCombination
-	 *            List of ships whose sum of sizes is equal to the size of the hit area.
-	 * @return True if all ships from the combination fit into the hit area.
-	 * @throws IllegalArgumentException
-	 *             If this repository does not contain ship from the given combination.
-	 */
-	private boolean findSunkShipsPositionsOnGrid(List<Point> hitsPointsList,
-			List<Ship> shipsCombination) {
-
-		Ship largestShip = shipsCombination.get(shipsCombination.size() - 1);
-
-		List<Ship> tempShipsCombination = new ArrayList<>(shipsCombination);
-		tempShipsCombination.remove(largestShip);
-
-		for (Iterator<Point> iterator2 = hitsPointsList.iterator(); iterator2.hasNext();) {
-			Point hitPoint = iterator2.next();
-			List<Point> tempHitsPointsList = new ArrayList<>(hitsPointsList);
-
-			boolean largestShipFits = isShipInModifiedHitArea(hitsPointsList, hitPoint, largestShip.getStructure());
-			if (largestShipFits) {
-				removeShipsFromHitsArea(tempHitsPointsList, hitPoint, largestShip.getStructure());
-				if (tempHitsPointsList.isEmpty()) {
-					shipsRepository.exposeShip(largestShip, hitPoint);
-					return true;
-				} 
-				boolean match = findSunkShipsPositionsOnGrid(tempHitsPointsList, tempShipsCombination);
-				if (true == match) {
-					shipsRepository.exposeShip(largestShip, hitPoint);
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Removes points that are possible coordinates of the given ship for the given upper left point from the list of hit points.
-	 * 
-	 * @param hitsPointsList
-	 *            List of points from the grid that contain ship(s).
-	 * @param upperLeftHit
-	 *            Upper left coordinate that is potential upper left coordinate of a ship from the hit area on the grid.
-	 * @param shipsStructure
-	 *            Ship's structure.
-	 */
-	private void removeShipsFromHitsArea(List<Point> hitsPointsList, Point upperLeftHit, List<Point> shipsStructure) {
-
-		for (Iterator<Point> iterator = shipsStructure.iterator(); iterator.hasNext();) {
-			Point relativePosition = iterator.next();
-
-			Point hitCoordinate = upperLeftHit.getPointRelativeToThis(relativePosition);
-
-			if (hitsPointsList.contains(hitCoordinate)) {
-				hitsPointsList.remove(hitCoordinate);
-			}
-		}
-	}
-
-	/**
-	 * Checks if the ship fits in the given hit area. This is called after some points (that other ships fit into) from the 
-	 * hit area were removed.
-	 * 
-	 * @param hitsPointsList
-	 *            List of points from the grid that contain ship(s).
-	 * @param upperLeftHit
-	 *            Upper left coordinate that is potential upper left coordinate of a ship from the hit area on the grid.
-	 * @param shipsStructure
-	 *            Ship's structure.
-	 * @return True if the ship fits, false otherwise.
-	 */
-	private boolean isShipInModifiedHitArea(List<Point> hitsPointsList,
-			Point upperLeftHit, List<Point> shipsStructure) {
-
-		for (Iterator<Point> iterator = shipsStructure.iterator(); iterator.hasNext();) {
-			Point relativePosition = iterator.next();
-
-			Point hitCoordinate = upperLeftHit.getPointRelativeToThis(relativePosition);
-
-			if (!hitsPointsList.contains(hitCoordinate)) {
-				return false;
-			}
-		}
-		return true;
-	}
-}
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.github.lzadrija.exceptions.DataNotAvailableException;
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.CoordinatesSet;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+import com.github.lzadrija.repositories.ShipsRepository;
+import com.github.lzadrija.strategies.FireResult;
+import com.github.lzadrija.strategies.IExecutor;
+
+/**
+ * This service implements algorithms for ship's localization and recognition. The first algorithm is used for finding the ship's
+ * location on the grid by targeting points on the grid he that are most likely to contain ships (Localization mode). The second algorithm
+ * (Elimination mode), starts if the ship is hit. Based on the ability of the hidden ships to be positioned on the grid through a hit, most
+ * probable cells around a hit are targeted until no more ships can be positioned trough the hit area. All possible combinations of ships
+ * that can be positioned over found hit area are computed in order to find out how many ships are located on the hit area and what are
+ *  their upper left coordinates. In asynchronous mode, the next target is computed while the request for the current target is in
+ *  flight. With hunt pipeline depth greater than one, Localization mode keeps several shots in flight at once, each one computed
+ *  as if the shots before it were misses. With elimination batch size greater than one, Elimination mode fires at several of the
+ *  most likely cells around the hits in one batch. Hits of the area are grouped into clusters that no ship can span, and ships of
+ *  every cluster are identified separately. The first combination that covers an area is chosen, which may turn out wrong later
+ *  (for example, ships of the same shape as a larger ship can cover its hits): if some area cannot be identified, or the hidden
+ *  ships no longer fit on the grid, the ships of all sunk areas are identified again, together. If they cannot be identified
+ *  differently either, the undefined cells are fired at one by one until the rest of the fleet is found.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class DestroyerImpl implements Destroyer {
+
+	private static final Logger logger = Logger.getLogger(DestroyerImpl.class.getName());
+	private static final int MAX_REVISED_COMBINATIONS = 10000;
+	private final IExecutor executor;
+	private final Grid grid;
+	private final Random random;
+
+	private final ShipsRepository shipsRepository;
+	private final TargetFinder locator;
+	private ShipEliminator eliminator;
+	private final HitClusters hitClusters;
+
+	private boolean isAsynchronousFiring;
+	private Point nextObjectiveIfMiss;
+	private boolean isNextObjectiveIfMissComputed;
+
+	private int huntPipelineDepth = 1;
+	private int eliminationBatchSize = 1;
+	private boolean isVerbose = true;
+	private final CoordinatesSet knownHits;
+	private final List<Point> sunkHits;
+	private final List<Ship> sunkShips;
+	private int nRevisedCombinations;
+
+	private long nHuntShots, nHuntShotsAfterHit, nHuntShotsDiscarded;
+	private long huntNanos;
+
+	/**
+	 * Constructor. Ships are located with a new ship locator that sweeps large grids in parallel in the common pool.
+	 * 
+	 * @param executor
+	 *            Used for discovering grid content on the specified position.
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Repository of the fleet that is being sunk.
+	 * @throws NullPointerException
+	 *             If executor, grid or ships repository are null.
+	 */
+	public DestroyerImpl(IExecutor executor, Grid grid, ShipsRepository shipsRepository) {
+		this(executor, grid, shipsRepository, new ShipLocator(ForkJoinPool.commonPool(), ShipLocator.DEFAULT_PARALLEL_THRESHOLD),
+			 new Random());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param executor
+	 *            Used for discovering grid content on the specified position.
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Repository of the fleet that is being sunk.
+	 * @param locator
+	 *            Target finder used in Localization mode. It must not be shared with other games.
+	 * @param random
+	 *            Random number generator used in Elimination mode for breaking ties between the most likely targets.
+	 * @throws NullPointerException
+	 *             If any of the parameters is null.
+	 */
+	public DestroyerImpl(IExecutor executor, Grid grid, ShipsRepository shipsRepository, TargetFinder locator, Random random) {
+
+		if (null == executor) {
+			throw new NullPointerException("Executor cannot be null");
+		}
+		if (null == grid) {
+			throw new NullPointerException("Grid can not be null");
+		}
+		if (null == shipsRepository) {
+			throw new NullPointerException("Ships repository can not be null");
+		}
+		if (null == locator) {
+			throw new NullPointerException("Locator can not be null");
+		}
+		if (null == random) {
+			throw new NullPointerException("Random number generator can not be null");
+		}
+
+		this.executor = executor;
+		this.grid = grid;
+		this.shipsRepository = shipsRepository;
+		this.locator = locator;
+		this.random = random;
+		knownHits = new CoordinatesSet();
+		hitClusters = new HitClusters(shipsRepository);
+		sunkHits = new ArrayList<>();
+		sunkShips = new ArrayList<>();
+	}
+
+	/**
+	 * Used for location and recognition of ships on the map.
+	 * 
+	 * @throws IllegalStateException
+	 *             If every cell of the grid is fired at, but some ships are still hidden (the hits of the sunk areas cannot be
+	 *             covered by the ships of the fleet).
+	 */
+	@Override
+	public void sinkBattleShips() {
+
+		boolean areSunkShipsRevised = false;
+		while (!shipsRepository.isFleetSunk()) {
+
+			Point shipPosition = locateShips();
+			if (null == shipPosition && !areSunkShipsRevised && reviseSunkShips()) {
+				areSunkShipsRevised = true;
+				continue;
+			}
+			areSunkShipsRevised = false;
+
+			if (null == shipPosition) {
+				shipPosition = huntUndefinedCells();
+			}
+			if (null == shipPosition) {
+				throw new IllegalStateException(String.format("No undefined cell is left on the grid, but %d ships are still hidden",
+															  shipsRepository.getHiddenShipsIndexes().size()));
+			}
+
+			eliminateShipsAroundPoint(shipPosition);
+
+			if (isVerbose) {
+				System.out.println(shipsRepository.toString());
+			}
+		}
+		if (!isVerbose) {
+			return;
+		}
+		System.out.println(grid.toString());
+
+		if (logger.isLoggable(Level.INFO) && 0 != nHuntShots) {
+			logger.info(String.format("Hunt pipeline depth %d: %d shots (%d in flight when a ship was found, %d discarded as redundant), "
+					+ "%.1f ms, %.2f ms per shot", huntPipelineDepth, nHuntShots, nHuntShotsAfterHit, nHuntShotsDiscarded, huntNanos / 1e6,
+					huntNanos / 1e6 / nHuntShots));
+		}
+	}
+
+	/**
+	 * Used for finding ship's location on the grid. The grid is targeted and fired at until a cell that contains a ship is found.
+	 * 
+	 * @return Coordinates of the cell on the grid that contains a ship, or null if no hidden ship can be placed on the grid.
+	 */
+	private Point locateShips() {
+
+		while (!knownHits.isEmpty()) {
+			int knownHit = knownHits.removeAny();
+			if (!grid.isCellOccupiedAt(knownHit)) {
+				return Coordinates.toPoint(knownHit);
+			}
+		}
+
+		long startTime = System.nanoTime();
+		Point shipsPosition = (huntPipelineDepth > 1) ? locateShipsPipelined() : locateShipsOneByOne();
+		huntNanos += System.nanoTime() - startTime;
+
+		return shipsPosition;
+	}
+
+	/**
+	 * Fires at the most likely targets one at a time, until a cell that contains a ship is found.
+	 * 
+	 * @return Coordinates of the cell on the grid that contains a ship, or null if no hidden ship can be placed on the grid.
+	 */
+	private Point locateShipsOneByOne() {
+
+		Point targetPosition = locator.getNextObjective(grid, shipsRepository);
+		FireResult fireResult = FireResult.MISS;
+
+		while (null != targetPosition) {
+			try {
+				fireResult = fire(targetPosition, locator);
+				nHuntShots++;
+			} catch (DataNotAvailableException dataNotAvailableException) {
+				logger.log(Level.SEVERE, null, dataNotAvailableException);
+				targetPosition = locator.getNextObjective(grid, shipsRepository);
+				continue;
+			}
+			if (fireResult.toString().equals(FireResult.HIT.toString())) {
+				break;
+			}
+			grid.occupyCellAt(targetPosition);
+			targetPosition = getNextObjectiveAfterMiss(locator);
+		}
+		return targetPosition;
+	}
+
+	/**
+	 * Fires at the undefined cells of the grid one by one, row by row, until a cell that contains a ship is found. Used when no
+	 * hidden ship can be placed on the grid and the sunk ships cannot be identified differently, so the likelihoods cannot tell
+	 * where the rest of the fleet is.
+	 * 
+	 * @return Coordinates of the cell on the grid that contains a ship, or null if no undefined cell is left.
+	 */
+	private Point huntUndefinedCells() {
+
+		for (int j = 0; j < grid.getHeight(); j++) {
+			for (int k = 0; k < grid.getWidth(); k++) {
+				Point targetPosition = new Point(k, j);
+				if (grid.isCellOccupiedAt(targetPosition)) {
+					continue;
+				}
+
+				FireResult fireResult;
+				try {
+					fireResult = executor.fire(Coordinates.encode(targetPosition));
+					nHuntShots++;
+				} catch (DataNotAvailableException dataNotAvailableException) {
+					logger.log(Level.SEVERE, null, dataNotAvailableException);
+					continue;
+				}
+				if (fireResult.toString().equals(FireResult.HIT.toString())) {
+					return targetPosition;
+				}
+				grid.occupyCellAt(targetPosition);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Keeps up to hunt pipeline depth shots in flight, until a cell that contains a ship is found. Every new target is the most
+	 * likely one if all shots in flight turn out to be misses. Results are applied in order of arrival: after every miss, shots
+	 * in flight at targets that can no longer contain a ship are cancelled, and the pipeline is refilled. When a ship is found,
+	 * the remaining shots are awaited: misses are applied to the grid and hits are remembered, so they are not fired at again.
+	 * <p>
+	 * Cancelling a shot does not recall the request that was already sent, it only discards its result.
+	 * 
+	 * @return Coordinates of the cell on the grid that contains a ship, or null if no hidden ship can be placed on the grid.
+	 */
+	private Point locateShipsPipelined() {
+
+		Map<Point, CompletableFuture<FireResult>> shotsInFlight = new LinkedHashMap<>();
+		Point shipsPosition = null;
+
+		while (null == shipsPosition) {
+			fillHuntPipeline(shotsInFlight);
+			if (shotsInFlight.isEmpty()) {
+				return locateShipsOneByOne();
+			}
+
+			CompletableFuture.anyOf(shotsInFlight.values().toArray(new CompletableFuture<?>[shotsInFlight.size()])).exceptionally(
+					new Function<Throwable, Object>() {
+						@Override
+						public Object apply(Throwable throwable) {
+							return null;
+						}
+					}).join();
+
+			for (Iterator<Map.Entry<Point, CompletableFuture<FireResult>>> iterator = shotsInFlight.entrySet().iterator(); iterator
+					.hasNext();) {
+				Map.Entry<Point, CompletableFuture<FireResult>> shot = iterator.next();
+				if (!shot.getValue().isDone()) {
+					continue;
+				}
+				iterator.remove();
+
+				FireResult fireResult = getFireResult(shot.getKey(), shot.getValue());
+				if (null == fireResult) {
+					continue;
+				}
+				if (fireResult.toString().equals(FireResult.HIT.toString())) {
+					if (null == shipsPosition) {
+						shipsPosition = shot.getKey();
+					} else {
+						knownHits.add(Coordinates.encode(shot.getKey()));
+					}
+				} else {
+					grid.occupyCellAt(shot.getKey());
+				}
+			}
+			if (null == shipsPosition) {
+				cancelRedundantShots(shotsInFlight);
+			}
+		}
+
+		nHuntShotsAfterHit += shotsInFlight.size();
+		for (Iterator<Map.Entry<Point, CompletableFuture<FireResult>>> iterator = shotsInFlight.entrySet().iterator(); iterator
+				.hasNext();) {
+			Map.Entry<Point, CompletableFuture<FireResult>> shot = iterator.next();
+
+			FireResult fireResult = getFireResult(shot.getKey(), shot.getValue());
+			if (null == fireResult) {
+				continue;
+			}
+			if (fireResult.toString().equals(FireResult.HIT.toString())) {
+				knownHits.add(Coordinates.encode(shot.getKey()));
+			} else {
+				grid.occupyCellAt(shot.getKey());
+			}
+		}
+		return shipsPosition;
+	}
+
+	/**
+	 * Fires at new targets until the given number of shots is in flight, or until no new target can be found.
+	 * 
+	 * @param shotsInFlight
+	 *            Targets fired at whose results have not been applied yet, mapped to the results.
+	 */
+	private void fillHuntPipeline(Map<Point, CompletableFuture<FireResult>> shotsInFlight) {
+
+		while (shotsInFlight.size() < huntPipelineDepth) {
+			List<Point> pendingTargets = new ArrayList<>(shotsInFlight.keySet());
+			Point targetPosition = locator.getNextObjectiveAssumingMisses(grid, shipsRepository, pendingTargets);
+
+			if (null == targetPosition || shotsInFlight.containsKey(targetPosition)) {
+				break;
+			}
+			shotsInFlight.put(targetPosition, executor.fireAsync(Coordinates.encode(targetPosition)));
+			nHuntShots++;
+		}
+	}
+
+	/**
+	 * Cancels shots in flight at targets that cannot contain a ship any more, according to the current state of the grid.
+	 * 
+	 * @param shotsInFlight
+	 *            Targets fired at whose results have not been applied yet, mapped to the results.
+	 */
+	private void cancelRedundantShots(Map<Point, CompletableFuture<FireResult>> shotsInFlight) {
+
+		for (Iterator<Map.Entry<Point, CompletableFuture<FireResult>>> iterator = shotsInFlight.entrySet().iterator(); iterator
+				.hasNext();) {
+			Map.Entry<Point, CompletableFuture<FireResult>> shot = iterator.next();
+
+			if (locator.isTargetRedundant(grid, shipsRepository, shot.getKey())) {
+				shot.getValue().cancel(false);
+				iterator.remove();
+				nHuntShotsDiscarded++;
+			}
+		}
+	}
+
+	/**
+	 * Waits for the result of the shot at the given target. If the result could not be retrieved, the error is logged.
+	 * 
+	 * @param targetPosition
+	 *            Position on the grid.
+	 * @param fireResultFuture
+	 *            Result of the shot.
+	 * @return HIT or MISS, or null if data could not be retrieved.
+	 */
+	private FireResult getFireResult(Point targetPosition, CompletableFuture<FireResult> fireResultFuture) {
+
+		try {
+			return join(fireResultFuture);
+		} catch (DataNotAvailableException dataNotAvailableException) {
+			logger.log(Level.SEVERE, "Shot at " + targetPosition.toString() + " failed", dataNotAvailableException);
+			return null;
+		}
+	}
+
+	/**
+	 * Used for finding the size of the hit area after the ship was located on the grid. The area around the given hit is being targeted 
+	 * as long as there are hidden ships that can be placed trough found hits. When the size of the hit area is found, the process of 
+	 * identifying ships on that area is started.
+	 * 
+	 * @param shipsPosition
+	 *            Hit point on the grid that contains ship.
+	 */
+	private void eliminateShipsAroundPoint(Point shipsPosition) {
+		
+		if (null == eliminator) {
+			eliminator = new ShipEliminator(shipsPosition, random);
+		} else {
+			eliminator.reset(shipsPosition);
+		}
+		hitClusters.clear();
+		hitClusters.add(shipsPosition);
+		if (eliminationBatchSize > 1) {
+			eliminateInBatches();
+		} else {
+			eliminateOneByOne();
+		}
+		grid.occupyArea(eliminator.getHitsCoordinatesList());
+		identifySunkShipsByClusters(hitClusters.getClusters(), eliminator.getHitsCoordinatesList());
+	}
+
+	/**
+	 * Fires at the most likely cell around the hits one at a time, until no hidden ship can be placed through the hits.
+	 */
+	private void eliminateOneByOne() {
+
+		Point targetPosition = eliminator.getNextObjective(grid, shipsRepository);
+		FireResult fireResult = FireResult.MISS;
+
+		while (true) {
+			boolean areShipsEliminated = eliminator.areAllShipsAtThisAreaEliminated(targetPosition);
+			if (areShipsEliminated) {
+				break;
+			}
+			try {
+				fireResult = fire(targetPosition, eliminator);
+			} catch (DataNotAvailableException dataNotAvailableException) {
+				logger.log(Level.SEVERE, null, dataNotAvailableException);
+				targetPosition = eliminator.getNextObjective(grid, shipsRepository);
+				continue;
+			}
+			if (fireResult.toString().equals(FireResult.HIT.toString())) {
+				eliminator.addHit(targetPosition);
+				hitClusters.add(targetPosition);
+				targetPosition = eliminator.getNextObjective(grid, shipsRepository);
+			} else {
+				grid.occupyCellAt(targetPosition);
+				targetPosition = getNextObjectiveAfterMiss(eliminator);
+			}
+		}
+	}
+
+	/**
+	 * Fires at batches of the most likely cells around the hits, until no hidden ship can be placed through the hits. Each
+	 * batch costs one round-trip.
+	 */
+	private void eliminateInBatches() {
+
+		while (true) {
+			List<Point> targetPositions = eliminator.getNextObjectives(grid, shipsRepository, eliminationBatchSize);
+			if (targetPositions.isEmpty()) {
+				break;
+			}
+			List<FireResult> fireResults;
+			try {
+				fireResults = fireBatch(targetPositions);
+			} catch (DataNotAvailableException dataNotAvailableException) {
+				logger.log(Level.SEVERE, null, dataNotAvailableException);
+				continue;
+			}
+			for (int i = 0; i < targetPositions.size(); i++) {
+				Point targetPosition = targetPositions.get(i);
+
+				if (fireResults.get(i).toString().equals(FireResult.HIT.toString())) {
+					eliminator.addHit(targetPosition);
+					hitClusters.add(targetPosition);
+				} else {
+					grid.occupyCellAt(targetPosition);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fires at the given targets in one batch. Targets already known to be hits are not fired at again.
+	 * 
+	 * @param targetPositions
+	 *            Positions on the grid.
+	 * @return HIT or MISS for every target, in the order of the given targets.
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved.
+	 */
+	private List<FireResult> fireBatch(List<Point> targetPositions) throws DataNotAvailableException {
+
+		int[] targetsCoordinates = new int[targetPositions.size()];
+		int nUnknownTargets = 0;
+		for (int i = 0; i < targetsCoordinates.length; i++) {
+			targetsCoordinates[i] = Coordinates.encode(targetPositions.get(i));
+			nUnknownTargets += knownHits.contains(targetsCoordinates[i]) ? 0 : 1;
+		}
+
+		int[] unknownTargets = new int[nUnknownTargets];
+		for (int i = 0, n = 0; i < targetsCoordinates.length; i++) {
+			if (!knownHits.contains(targetsCoordinates[i])) {
+				unknownTargets[n++] = targetsCoordinates[i];
+			}
+		}
+		Iterator<FireResult> unknownTargetsResults = executor.fireBatch(unknownTargets).iterator();
+
+		List<FireResult> fireResults = new ArrayList<>(targetsCoordinates.length);
+		for (int i = 0; i < targetsCoordinates.length; i++) {
+			fireResults.add(knownHits.remove(targetsCoordinates[i]) ? FireResult.HIT : unknownTargetsResults.next());
+		}
+		return fireResults;
+	}
+
+	/**
+	 * Fires at the given target. In asynchronous mode, while the request is in flight, the next target is computed by the given
+	 * target finder as if this target was a miss, so that it is ready when the miss is confirmed.
+	 * 
+	 * @param targetPosition
+	 *            Position on the grid.
+	 * @param targetFinder
+	 *            Target finder that produced the given target.
+	 * @return HIT if this position contains part of the ship, or MISS otherwise.
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved.
+	 */
+	private FireResult fire(Point targetPosition, TargetFinder targetFinder) throws DataNotAvailableException {
+
+		nextObjectiveIfMiss = null;
+		isNextObjectiveIfMissComputed = false;
+
+		int targetCoordinates = Coordinates.encode(targetPosition);
+		if (knownHits.remove(targetCoordinates)) {
+			return FireResult.HIT;
+		}
+		if (!isAsynchronousFiring) {
+			return executor.fire(targetCoordinates);
+		}
+
+		CompletableFuture<FireResult> fireResultFuture = executor.fireAsync(targetCoordinates);
+		nextObjectiveIfMiss = targetFinder.getNextObjectiveAssumingMisses(grid, shipsRepository, Collections.singletonList(
+				targetPosition));
+		isNextObjectiveIfMissComputed = true;
+		return join(fireResultFuture);
+	}
+
+	/**
+	 * Waits for the result of the shot.
+	 * 
+	 * @param fireResultFuture
+	 *            Result of the shot.
+	 * @return HIT if the target contains part of the ship, or MISS otherwise.
+	 * @throws DataNotAvailableException
+	 *             If data could not be retrieved or the shot was cancelled.
+	 */
+	private static FireResult join(CompletableFuture<FireResult> fireResultFuture) throws DataNotAvailableException {
+
+		try {
+			return fireResultFuture.join();
+		} catch (CompletionException completionException) {
+			Throwable cause = completionException.getCause();
+			if (cause instanceof DataNotAvailableException) {
+				throw (DataNotAvailableException) cause;
+			}
+			throw new DataNotAvailableException(cause);
+		} catch (CancellationException cancellationException) {
+			throw new DataNotAvailableException(cancellationException);
+		}
+	}
+
+	/**
+	 * Returns the next target after the last target was confirmed to be a miss (and its cell was occupied). If the target was
+	 * computed while the last request was in flight it is returned, otherwise it is computed now.
+	 * 
+	 * @param targetFinder
+	 *            Target finder that produced the last target.
+	 * @return Position of the next target on the grid.
+	 */
+	private Point getNextObjectiveAfterMiss(TargetFinder targetFinder) {
+		return isNextObjectiveIfMissComputed ? nextObjectiveIfMiss : targetFinder.getNextObjective(grid, shipsRepository);
+	}
+
+	/**
+	 * Enables or disables asynchronous firing. When enabled, computing the next target overlaps with the request for the current
+	 * target, which pays off when the data provider is remote.
+	 * 
+	 * @param isAsynchronousFiring
+	 *            True if targets are fired at asynchronously.
+	 */
+	public void setAsynchronousFiring(boolean isAsynchronousFiring) {
+		this.isAsynchronousFiring = isAsynchronousFiring;
+	}
+
+	/**
+	 * Sets the maximal number of shots in flight in Localization mode. Deeper pipeline hides more of the service latency, but
+	 * some of the shots are fired at targets that would not be fired at one by one (the statistics are logged when the fleet is
+	 * sunk).
+	 * 
+	 * @param huntPipelineDepth
+	 *            Maximal number of shots in flight, 1 disables pipelining.
+	 * @throws IllegalArgumentException
+	 *             If depth is less than 1.
+	 */
+	public void setHuntPipelineDepth(int huntPipelineDepth) {
+
+		if (huntPipelineDepth < 1) {
+			throw new IllegalArgumentException("Hunt pipeline depth must be positive: " + huntPipelineDepth);
+		}
+		this.huntPipelineDepth = huntPipelineDepth;
+	}
+
+	/**
+	 * Enables or disables printing of the ships repository after every sunk hit area, and of the grid and hunt statistics when
+	 * the fleet is sunk. Enabled by default.
+	 * 
+	 * @param isVerbose
+	 *            True if the progress is printed.
+	 */
+	public void setVerbose(boolean isVerbose) {
+		this.isVerbose = isVerbose;
+	}
+
+	/**
+	 * Sets the maximal number of cells fired at in one batch in Elimination mode. Bigger batches need fewer round-trips to sink
+	 * a ship, but the cells of a batch are chosen without knowing the results of each other, so more shots are fired.
+	 * 
+	 * @param eliminationBatchSize
+	 *            Maximal number of cells in one batch, 1 disables batching.
+	 * @throws IllegalArgumentException
+	 *             If batch size is less than 1.
+	 */
+	public void setEliminationBatchSize(int eliminationBatchSize) {
+
+		if (eliminationBatchSize < 1) {
+			throw new IllegalArgumentException("Elimination batch size must be positive: " + eliminationBatchSize);
+		}
+		this.eliminationBatchSize = eliminationBatchSize;
+	}
+
+	/**
+	 * Checks which combination of hidden ships fits best the found hit area. For this to be achieved, all combinations of hidden 
+	 * ships based on their size are computed. Every combination is examined and the right one is found, and the positions of
+	 * its ships are revealed. The hit area is split into clusters first, see {@link #identifySunkShipsByClusters(List, List)}.
+	 * 
+	 * @param hitsPointsList
+	 *            List of points from the grid that contain ship(s).
+	 */
+	public void identifySunkShips(List<Point> hitsPointsList) {
+
+		HitClusters areaClusters = new HitClusters(shipsRepository);
+		for (Iterator<Point> iterator = hitsPointsList.iterator(); iterator.hasNext();) {
+			areaClusters.add(iterator.next());
+		}
+		identifySunkShipsByClusters(areaClusters.getClusters(), hitsPointsList);
+	}
+
+	/**
+	 * Identifies the ships of every cluster of the hit area separately, the ships assigned to one cluster are left out of the
+	 * combinations of the next ones. Ships are exposed only when all clusters are identified. If some cluster cannot be
+	 * identified with the ships left by the clusters before it, the whole hit area is identified at once, and if that fails too,
+	 * the ships of all sunk areas are identified again (see {@link #reviseSunkShips()}).
+	 * 
+	 * @param clusters
+	 *            Clusters of the hit area.
+	 * @param hitsPointsList
+	 *            List of all points of the hit area.
+	 */
+	private void identifySunkShipsByClusters(List<List<Point>> clusters, List<Point> hitsPointsList) {
+
+		sunkHits.addAll(hitsPointsList);
+		List<Ship> identifiedShips = new ArrayList<>();
+		List<Point> upperLeftPoints = new ArrayList<>();
+
+		boolean areClustersIdentified = true;
+		for (int i = 0; i < clusters.size() && areClustersIdentified; i++) {
+			areClustersIdentified = findSunkShips(clusters.get(i), identifiedShips, upperLeftPoints);
+		}
+		if (!areClustersIdentified && clusters.size() > 1) {
+			identifiedShips.clear();
+			upperLeftPoints.clear();
+			areClustersIdentified = findSunkShips(hitsPointsList, identifiedShips, upperLeftPoints);
+		}
+		if (!areClustersIdentified) {
+			reviseSunkShips();
+			return;
+		}
+
+		for (int i = 0; i < identifiedShips.size(); i++) {
+			shipsRepository.exposeShip(identifiedShips.get(i), upperLeftPoints.get(i));
+		}
+		sunkShips.addAll(identifiedShips);
+	}
+
+	/**
+	 * Identifies the ships of all sunk hit areas again, together. Each area is identified on its own, with the first combination
+	 * of the hidden ships that covers it, and that choice is never tested against the ships that are still hidden. Ships of the
+	 * same shape can cover the hits of a larger ship (six single cell ships cover a vertical ship of size six, for example), and
+	 * the larger ship is then left hidden with no place to go. The mistake shows only later, when an area cannot be covered by
+	 * the ships that are left, or when no hidden ship can be placed on the grid. This method then undoes all identifications:
+	 * <ol>
+	 * <li>All sunk ships are hidden again (the placement index of the ship locator is rebuilt, see
+	 * {@link ShipsRepository#hideShip(Ship)}).</li>
+	 * <li>The hits of all sunk areas are grouped into clusters again, since the clusters of different areas may now be linked by
+	 * the ships that are hidden again.</li>
+	 * <li>Clusters are identified in order, with backtracking: for every combination of the hidden ships (not yet assigned to the
+	 * clusters before it) whose size matches the cluster and which covers it, the next cluster is identified, and the
+	 * combination is dropped if the next clusters cannot be identified.</li>
+	 * <li>When all clusters are covered, every type of the ships that are left hidden must have at least one placement over the
+	 * undefined cells of the grid, otherwise the search backtracks further.</li>
+	 * </ol>
+	 * The number of examined combinations grows exponentially with the number of clusters, so the search gives up after
+	 * {@link #MAX_REVISED_COMBINATIONS} combinations. If it gives up or finds nothing, the sunk ships are exposed where they were,
+	 * and the ships of the area that could not be identified stay hidden. The next revision (when no hidden ship can be placed
+	 * again) includes that area too, and in the meantime the undefined cells are hunted one by one (see
+	 * {@link #huntUndefinedCells()}).
+	 * 
+	 * @return True if the sunk ships were identified again, false if they were left where they were.
+	 */
+	private boolean reviseSunkShips() {
+
+		List<Ship> previousShips = new ArrayList<>(sunkShips);
+		List<Point> previousUpperLeftPoints = new ArrayList<>(previousShips.size());
+		for (Iterator<Ship> iterator = previousShips.iterator(); iterator.hasNext();) {
+			Ship ship = iterator.next();
+
+			previousUpperLeftPoints.add(ship.getUpperLeftCoordinates());
+			shipsRepository.hideShip(ship);
+		}
+		sunkShips.clear();
+
+		HitClusters sunkClusters = new HitClusters(shipsRepository);
+		for (Iterator<Point> iterator = sunkHits.iterator(); iterator.hasNext();) {
+			sunkClusters.add(iterator.next());
+		}
+		List<List<Point>> clusters = sunkClusters.getClusters();
+		List<SunkShipsIdentifier> identifiers = new ArrayList<>(clusters.size());
+		for (Iterator<List<Point>> iterator = clusters.iterator(); iterator.hasNext();) {
+			identifiers.add(new SunkShipsIdentifier(iterator.next()));
+		}
+
+		List<Ship> identifiedShips = new ArrayList<>();
+		List<Point> upperLeftPoints = new ArrayList<>();
+		nRevisedCombinations = 0;
+		boolean areShipsRevised = reviseSunkShips(clusters, identifiers, 0, identifiedShips, upperLeftPoints,
+												  new HashMap<ShipType, Boolean>());
+		if (!areShipsRevised) {
+			identifiedShips = previousShips;
+			upperLeftPoints = previousUpperLeftPoints;
+		}
+
+		for (int i = 0; i < identifiedShips.size(); i++) {
+			shipsRepository.exposeShip(identifiedShips.get(i), upperLeftPoints.get(i));
+		}
+		sunkShips.addAll(identifiedShips);
+
+		if (nRevisedCombinations > MAX_REVISED_COMBINATIONS) {
+			logger.warning(String.format("Identification of the sunk ships gave up after %d combinations", MAX_REVISED_COMBINATIONS));
+		} else {
+			logger.fine(areShipsRevised ? "Sunk ships identified again" : "Sunk ships cannot be identified differently");
+		}
+		return areShipsRevised;
+	}
+
+	/**
+	 * Recursive method. Identifies the ships of the cluster with the given index with every combination of the ships left by
+	 * the clusters before it, and continues with the next cluster.
+	 * 
+	 * @param clusters
+	 *            Clusters of all sunk hits.
+	 * @param identifiers
+	 *            Sunk ships identifier of every cluster.
+	 * @param clusterIndex
+	 *            Index of the identified cluster.
+	 * @param identifiedShips
+	 *            Ships assigned to the clusters before the given one. Ships of the found combinations are added to the list.
+	 * @param upperLeftPoints
+	 *            Upper left points of the identified ships, the points of the found combinations are added to the list.
+	 * @param placeableTypes
+	 *            Ship types known to fit (or not) on the undefined cells of the grid.
+	 * @return True if all clusters are identified and the ships that are left can be placed on the grid, false otherwise.
+	 */
+	private boolean reviseSunkShips(List<List<Point>> clusters, List<SunkShipsIdentifier> identifiers, int clusterIndex,
+									List<Ship> identifiedShips, List<Point> upperLeftPoints, Map<ShipType, Boolean> placeableTypes) {
+
+		if (clusterIndex == clusters.size()) {
+			return canShipsBePlaced(identifiedShips, placeableTypes);
+		}
+
+		int clusterSize = clusters.get(clusterIndex).size();
+		List<List<Ship>> shipsSizeCombinations = shipsRepository.getAllHiddenShipsSizeCombinations(clusterSize, identifiedShips);
+		for (Iterator<List<Ship>> iterator = shipsSizeCombinations.iterator(); iterator.hasNext();) {
+			if (++nRevisedCombinations > MAX_REVISED_COMBINATIONS) {
+				return false;
+			}
+			List<Ship> combination = iterator.next();
+
+			Collections.sort(combination);
+			List<Point> combinationUpperLeftPoints = identifiers.get(clusterIndex).findShipsUpperLeftPoints(combination);
+			if (null == combinationUpperLeftPoints) {
+				continue;
+			}
+
+			identifiedShips.addAll(combination);
+			upperLeftPoints.addAll(combinationUpperLeftPoints);
+			if (reviseSunkShips(clusters, identifiers, clusterIndex + 1, identifiedShips, upperLeftPoints, placeableTypes)) {
+				return true;
+			}
+			identifiedShips.subList(identifiedShips.size() - combination.size(), identifiedShips.size()).clear();
+			upperLeftPoints.subList(upperLeftPoints.size() - combination.size(), upperLeftPoints.size()).clear();
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if every type of the hidden ships that are not among the given ships has some placement over the undefined cells
+	 * of the grid.
+	 * 
+	 * @param reservedShips
+	 *            Hidden ships that are assigned to the sunk hits.
+	 * @param placeableTypes
+	 *            Ship types known to fit (or not) on the undefined cells of the grid, the checked types are added.
+	 * @return True if the rest of the hidden ships can be placed, false otherwise.
+	 */
+	private boolean canShipsBePlaced(List<Ship> reservedShips, Map<ShipType, Boolean> placeableTypes) {
+
+		List<Integer> hiddenTypesIndexes = shipsRepository.getHiddenShipTypesIndexes();
+		for (Iterator<Integer> iterator = hiddenTypesIndexes.iterator(); iterator.hasNext();) {
+			int i = iterator.next();
+			ShipType shipsType = shipsRepository.getShipsType(i);
+
+			int nReservedShips = 0;
+			for (Iterator<Ship> shipsIterator = reservedShips.iterator(); shipsIterator.hasNext();) {
+				nReservedShips += shipsType.equals(shipsIterator.next().getType()) ? 1 : 0;
+			}
+			if (nReservedShips == shipsRepository.getHiddenShipsCountOfType(i)) {
+				continue;
+			}
+
+			Boolean isPlaceable = placeableTypes.get(shipsType);
+			if (null == isPlaceable) {
+				isPlaceable = canShipBePlaced(i);
+				placeableTypes.put(shipsType, isPlaceable);
+			}
+			if (!isPlaceable) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the ship with the given index can be placed over the undefined cells of the grid.
+	 * 
+	 * @param index
+	 *            Ships index in the list of ships.
+	 * @return True if the ship has some placement, false otherwise.
+	 */
+	private boolean canShipBePlaced(int index) {
+
+		StructureMask shipsStructureMask = shipsRepository.getShipsStructureMask(index);
+		for (int j = 0; j + shipsRepository.getShipsHeight(index) <= grid.getHeight(); j++) {
+			for (int k = 0; k + shipsRepository.getShipsWidth(index) <= grid.getWidth(); k++) {
+				if (grid.isGridPortionUndefined(k, j, shipsStructureMask)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the first combination of hidden ships that covers exactly the given hits.
+	 * 
+	 * @param hitsPointsList
+	 *            List of points from the grid that contain ship(s).
+	 * @param identifiedShips
+	 *            Ships already assigned to other hits, they are left out of the combinations. Ships of the found combination are
+	 *            added to the list.
+	 * @param upperLeftPoints
+	 *            Upper left points of the identified ships, the points of the found combination are added to the list.
+	 * @return True if a combination was found, false otherwise.
+	 */
+	private boolean findSunkShips(List<Point> hitsPointsList, List<Ship> identifiedShips, List<Point> upperLeftPoints) {
+
+		int hitAreaSize = hitsPointsList.size();
+		List<List<Ship>> shipsSizeCombinations = shipsRepository.getAllHiddenShipsSizeCombinations(hitAreaSize, identifiedShips);
+		SunkShipsIdentifier sunkShipsIdentifier = new SunkShipsIdentifier(hitsPointsList);
+
+		for (Iterator<List<Ship>> iterator = shipsSizeCombinations.iterator(); iterator.hasNext();) {
+			List<Ship> combination = iterator.next();
+
+			Collections.sort(combination);
+			List<Point> combinationUpperLeftPoints = sunkShipsIdentifier.findShipsUpperLeftPoints(combination);
+
+			if (null != combinationUpperLeftPoints) {
+				identifiedShips.addAll(combination);
+				upperLeftPoints.addAll(combinationUpperLeftPoints);
+				return true;
+			}
+		}
+		return false;
+	}
+}
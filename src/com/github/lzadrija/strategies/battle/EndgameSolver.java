@@ -0,0 +1,367 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.CoordinatesMap;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.StructureMask;
+
+/**
+ * Finds the optimal next target when few placements of the hidden ships remain. All configurations of the hidden fleet in which no
+ * ships overlap are enumerated from the placement index (every configuration is equally likely), and the target is the cell that
+ * minimizes the expected number of shots until the next hit, which is what Localization mode is measured by. The expected number
+ * of shots for a set of configurations S is computed exactly:
+ *
+ * <pre>
+ * E(S) = 1 + min over cells c of (|S without c| / |S|) * E(S without c)
+ * </pre>
+ *
+ * where "S without c" are the configurations that do not cover the cell c (the configurations left after a miss at c). Sets of
+ * configurations are encoded as bitsets, and the expected number of shots of every examined set is remembered. If there are too
+ * many configurations, the solver gives up. If the search examines too many sets, the target is the cell covered in the most
+ * configurations (the cell most likely to contain a ship).
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class EndgameSolver {
+
+	private final int maxConfigurations;
+	private final int maxSearchedStates;
+
+	private final List<int[]> shipsPlacements;
+	private final List<int[][]> shipsPlacementsCells;
+	private final List<Boolean> isSameTypeAsPrevious;
+
+	private final CoordinatesMap cellsIndexes;
+	private final List<Integer> cellsCoordinates;
+	private final List<BitSet> cellsConfigurations;
+	private int nConfigurations;
+
+	private final Map<BitSet, Double> expectedShotsByState;
+	private int nSearchedStates;
+	private boolean isSearchAborted;
+
+	/**
+	 * Constructor. Enumerates the configurations of the hidden ships tracked by the index.
+	 *
+	 * @param placementIndex
+	 *            Placement index that is up to date with the grid.
+	 * @param maxConfigurations
+	 *            Maximal number of configurations that are enumerated.
+	 * @param maxSearchedStates
+	 *            Maximal number of times a set of configurations is examined by the search.
+	 */
+	public EndgameSolver(PlacementIndex placementIndex, int maxConfigurations, int maxSearchedStates) {
+
+		this.maxConfigurations = maxConfigurations;
+		this.maxSearchedStates = maxSearchedStates;
+
+		shipsPlacements = new ArrayList<>();
+		shipsPlacementsCells = new ArrayList<>();
+		isSameTypeAsPrevious = new ArrayList<>();
+		cellsIndexes = new CoordinatesMap();
+		cellsCoordinates = new ArrayList<>();
+		cellsConfigurations = new ArrayList<>();
+		expectedShotsByState = new HashMap<>();
+
+		for (int t = 0; t < placementIndex.getTypesCount(); t++) {
+			int[] placements = placementIndex.getPlacementsOfType(t);
+			int[][] placementsCells = getPlacementsCells(placements, placementIndex.getStructureMaskOfType(t));
+
+			for (int i = 0; i < placementIndex.getHiddenShipsCountOfType(t); i++) {
+				shipsPlacements.add(placements);
+				shipsPlacementsCells.add(placementsCells);
+				isSameTypeAsPrevious.add(i > 0);
+			}
+		}
+		if (!shipsPlacements.isEmpty()) {
+			enumerateConfigurations(0, 0, new boolean[cellsCoordinates.size()], new int[shipsPlacements.size()]);
+		}
+	}
+
+	/**
+	 * Returns the cells covered by every placement, as indexes of the cells that any ship can cover.
+	 *
+	 * @param placements
+	 *            Packed upper left coordinates of the placements.
+	 * @param shipsStructureMask
+	 *            Ship's compiled structure.
+	 * @return Indexes of the covered cells, one array for every placement.
+	 */
+	private int[][] getPlacementsCells(int[] placements, StructureMask shipsStructureMask) {
+
+		int[][] placementsCells = new int[placements.length][shipsStructureMask.getCellsCount()];
+		for (int p = 0; p < placements.length; p++) {
+			int x = Coordinates.getX(placements[p]), y = Coordinates.getY(placements[p]);
+
+			for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+				int coordinates = Coordinates.encode(x + shipsStructureMask.getXOffset(cell), y + shipsStructureMask.getYOffset(cell));
+
+				int cellIndex = cellsIndexes.get(coordinates);
+				if (CoordinatesMap.NO_VALUE == cellIndex) {
+					cellIndex = cellsCoordinates.size();
+					cellsIndexes.put(coordinates, cellIndex);
+					cellsCoordinates.add(coordinates);
+					cellsConfigurations.add(new BitSet());
+				}
+				placementsCells[p][cell] = cellIndex;
+			}
+		}
+		return placementsCells;
+	}
+
+	/**
+	 * Recursive method. Places the ship with the given index at every placement where it does not overlap with the ships placed
+	 * before it, and continues with the next ship. Ships of the same type are interchangeable, so the next ship of the same type
+	 * is only placed at the later placements. Every complete configuration is added to the configurations of the cells it covers.
+	 *
+	 * @param shipIndex
+	 *            Index of the ship that is placed.
+	 * @param firstPlacement
+	 *            Index of the first placement that is tried.
+	 * @param isCovered
+	 *            Cells covered by the ships placed so far. It is restored before returning.
+	 * @param chosenPlacements
+	 *            Indexes of the placements of the ships placed so far.
+	 * @return False if there are too many configurations, true otherwise.
+	 */
+	private boolean enumerateConfigurations(int shipIndex, int firstPlacement, boolean[] isCovered, int[] chosenPlacements) {
+
+		int[][] placementsCells = shipsPlacementsCells.get(shipIndex);
+		boolean isLastShip = shipIndex == shipsPlacements.size() - 1;
+
+		for (int p = firstPlacement; p < placementsCells.length; p++) {
+			if (!isFree(placementsCells[p], isCovered)) {
+				continue;
+			}
+			chosenPlacements[shipIndex] = p;
+
+			if (isLastShip) {
+				if (nConfigurations == maxConfigurations) {
+					nConfigurations++;
+					return false;
+				}
+				addConfiguration(chosenPlacements);
+				continue;
+			}
+
+			setCovered(placementsCells[p], isCovered, true);
+			int nextFirstPlacement = isSameTypeAsPrevious.get(shipIndex + 1) ? p + 1 : 0;
+			boolean isWithinLimit = enumerateConfigurations(shipIndex + 1, nextFirstPlacement, isCovered, chosenPlacements);
+			setCovered(placementsCells[p], isCovered, false);
+
+			if (!isWithinLimit) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isFree(int[] cells, boolean[] isCovered) {
+
+		for (int i = 0; i < cells.length; i++) {
+			if (isCovered[cells[i]]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void setCovered(int[] cells, boolean[] isCovered, boolean value) {
+
+		for (int i = 0; i < cells.length; i++) {
+			isCovered[cells[i]] = value;
+		}
+	}
+
+	/**
+	 * Adds the configuration with the given placements to the configurations of the cells it covers.
+	 *
+	 * @param chosenPlacements
+	 *            Indexes of the placements of all ships.
+	 */
+	private void addConfiguration(int[] chosenPlacements) {
+
+		for (int s = 0; s < chosenPlacements.length; s++) {
+			int[] cells = shipsPlacementsCells.get(s)[chosenPlacements[s]];
+
+			for (int i = 0; i < cells.length; i++) {
+				cellsConfigurations.get(cells[i]).set(nConfigurations);
+			}
+		}
+		nConfigurations++;
+	}
+
+	/**
+	 * Checks if all configurations were enumerated.
+	 *
+	 * @return True if the number of configurations is within the limit, false otherwise.
+	 */
+	public boolean isSolvable() {
+		return nConfigurations <= maxConfigurations;
+	}
+
+	public int getConfigurationsCount() {
+		return nConfigurations;
+	}
+
+	/**
+	 * Returns the cell that minimizes the expected number of shots until the next hit. Of the cells with the same expected
+	 * number of shots, the one more likely to contain a ship is returned.
+	 *
+	 * @return Position of the next target on the grid, or null if there are too many configurations or none at all.
+	 */
+	public Point findTarget() {
+
+		if (!isSolvable() || 0 == nConfigurations) {
+			return null;
+		}
+		removeEquivalentCells();
+
+		BitSet allConfigurations = new BitSet(nConfigurations);
+		allConfigurations.set(0, nConfigurations);
+
+		int[] bestCell = new int[1];
+		getExpectedShots(allConfigurations, nConfigurations, Double.POSITIVE_INFINITY, bestCell);
+		if (isSearchAborted) {
+			bestCell[0] = getMostLikelyCell();
+		}
+		return Coordinates.toPoint(cellsCoordinates.get(bestCell[0]));
+	}
+
+	/**
+	 * Removes the cells that are covered by exactly the same configurations as some cell before them, since firing at any of
+	 * them has the same outcome.
+	 */
+	private void removeEquivalentCells() {
+
+		Map<BitSet, Integer> cellsByConfigurations = new HashMap<>();
+		for (int c = 0; c < cellsCoordinates.size(); c++) {
+			cellsByConfigurations.putIfAbsent(cellsConfigurations.get(c), c);
+		}
+		for (int c = cellsCoordinates.size() - 1; c >= 0; c--) {
+			if (cellsByConfigurations.get(cellsConfigurations.get(c)) != c) {
+				cellsCoordinates.remove(c);
+				cellsConfigurations.remove(c);
+			}
+		}
+	}
+
+	/**
+	 * Returns the minimal expected number of shots until the next hit for the given configurations, or a lower bound of it if
+	 * it is not less than the given limit. Cells are tried from the most likely to contain a ship, so the first cell tried is
+	 * the greedy choice, and every other cell is tried only if it can still be better than the best cell found so far. The
+	 * exact values are remembered.
+	 *
+	 * @param configurations
+	 *            Configurations that agree with all shots so far, not empty.
+	 * @param nConfigurations
+	 *            Number of the configurations.
+	 * @param limit
+	 *            Value above which the exact expected number of shots is not needed.
+	 * @param bestCell
+	 *            Array in which the index of the best cell is stored, or null if it is not needed.
+	 * @return Expected number of shots if it is less than the limit, otherwise a value between the limit and the expected
+	 *         number of shots.
+	 */
+	private double getExpectedShots(BitSet configurations, int nConfigurations, double limit, int[] bestCell) {
+
+		Double expectedShots = expectedShotsByState.get(configurations);
+		if (null != expectedShots && null == bestCell) {
+			return expectedShots;
+		}
+		if (++nSearchedStates > maxSearchedStates) {
+			isSearchAborted = true;
+			return limit;
+		}
+
+		int nCells = cellsCoordinates.size();
+		long[] cellsMisses = new long[nCells];
+		int nCandidates = 0;
+		for (int c = 0; c < nCells; c++) {
+			BitSet coveringConfigurations = (BitSet) configurations.clone();
+			coveringConfigurations.and(cellsConfigurations.get(c));
+
+			int nHits = coveringConfigurations.cardinality();
+			if (0 != nHits) {
+				// number of configurations left after a miss in the high half, cell index in the low half
+				cellsMisses[nCandidates++] = ((long) (nConfigurations - nHits) << Integer.SIZE) | c;
+			}
+		}
+		Arrays.sort(cellsMisses, 0, nCandidates);
+
+		int minMisses = (int) (cellsMisses[0] >>> Integer.SIZE);
+		double lowerBound = getLowerBound((double) (nConfigurations - minMisses) / nConfigurations);
+		if (lowerBound >= limit) {
+			return lowerBound;
+		}
+
+		double minExpectedShots = limit;
+		for (int i = 0; i < nCandidates && !isSearchAborted; i++) {
+			int nMisses = (int) (cellsMisses[i] >>> Integer.SIZE);
+			int c = (int) cellsMisses[i];
+
+			double missProbability = (double) nMisses / nConfigurations;
+			if (1 + missProbability >= minExpectedShots) {
+				break;
+			}
+
+			double cellsExpectedShots = 1;
+			if (0 != nMisses) {
+				BitSet remainingConfigurations = (BitSet) configurations.clone();
+				remainingConfigurations.andNot(cellsConfigurations.get(c));
+
+				double remainingLimit = (minExpectedShots - 1) / missProbability;
+				cellsExpectedShots += missProbability * getExpectedShots(remainingConfigurations, nMisses, remainingLimit, null);
+			}
+			if (cellsExpectedShots < minExpectedShots) {
+				minExpectedShots = cellsExpectedShots;
+				if (null != bestCell) {
+					bestCell[0] = c;
+				}
+			}
+		}
+		if (minExpectedShots < limit && !isSearchAborted) {
+			expectedShotsByState.put(configurations, minExpectedShots);
+		}
+		return minExpectedShots;
+	}
+
+	/**
+	 * Returns the lower bound of the expected number of shots until the next hit, if no cell is covered by more than the given
+	 * ratio of the configurations. No shot hits more than that ratio of the configurations, so after i misses at least
+	 * 1 - i * ratio of them are left, and the expected number of shots is the sum of these ratios over all i.
+	 *
+	 * @param maxHitRatio
+	 *            Ratio of the configurations covered by the most likely cell.
+	 * @return Lower bound of the expected number of shots.
+	 */
+	private static double getLowerBound(double maxHitRatio) {
+
+		double nShots = Math.ceil(1 / maxHitRatio);
+		return nShots - maxHitRatio * nShots * (nShots - 1) / 2;
+	}
+
+	/**
+	 * Returns the cell covered by the most configurations.
+	 *
+	 * @return Index of the cell.
+	 */
+	private int getMostLikelyCell() {
+
+		int mostLikelyCell = 0;
+		for (int c = 1; c < cellsCoordinates.size(); c++) {
+			if (cellsConfigurations.get(c).cardinality() > cellsConfigurations.get(mostLikelyCell).cardinality()) {
+				mostLikelyCell = c;
+			}
+		}
+		return mostLikelyCell;
+	}
+}
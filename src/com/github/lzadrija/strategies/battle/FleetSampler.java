@@ -0,0 +1,222 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.CoordinatesSet;
+import com.github.lzadrija.model.map.StructureMask;
+
+/**
+ * Draws random configurations of the hidden fleet in which no ships overlap, using a Markov chain. The chain starts from a
+ * configuration found by placing the ships one by one at random free placements, and moves one ship at a time to a placement
+ * chosen uniformly at random among all of its placements. A move is accepted if the ship does not overlap with the other ships
+ * at the new placement, and rejected otherwise. Moves are symmetric, so the configurations are uniformly distributed over all
+ * configurations in which the ships do not overlap once the chain has run long enough. This works for dense fleets too, where
+ * configurations of independently placed ships almost always overlap. One configuration is recorded after every sweep (one move
+ * of every ship). Samplers are independent, each one has its own random number generator and its own scratch state, so they can
+ * run in parallel. Sampling stops when the required number of configurations is recorded or when the deadline passes.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+@SuppressWarnings("serial")
+public class FleetSampler extends RecursiveAction {
+
+	private static final int BURN_IN_SWEEPS = 20;
+	private static final int MAX_PLACEMENT_ATTEMPTS = 100;
+	private static final int MAX_RESTARTS = 100;
+
+	private final int[][] shipsPlacements;
+	private final StructureMask[] shipsStructureMasks;
+
+	private final int nSamples;
+	private final long deadline;
+	private final SplittableRandom random;
+
+	private final int[] upperLefts;
+	private final int[] sampledUpperLefts;
+	private int nRecordedSamples;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param shipsPlacements
+	 *            Possible placements of every hidden ship (packed upper left coordinates, see {@link Coordinates}), none of them
+	 *            empty. Ships of the same type can share the array.
+	 * @param shipsStructureMasks
+	 *            Compiled structure of every hidden ship.
+	 * @param nSamples
+	 *            Number of configurations to be recorded.
+	 * @param deadline
+	 *            Value of {@link System#nanoTime()} after which sampling stops.
+	 * @param random
+	 *            Random number generator used only by this sampler.
+	 */
+	public FleetSampler(int[][] shipsPlacements, StructureMask[] shipsStructureMasks, int nSamples, long deadline,
+						SplittableRandom random) {
+
+		this.shipsPlacements = shipsPlacements;
+		this.shipsStructureMasks = shipsStructureMasks;
+		this.nSamples = nSamples;
+		this.deadline = deadline;
+		this.random = random;
+
+		upperLefts = new int[shipsPlacements.length];
+		sampledUpperLefts = new int[nSamples * shipsPlacements.length];
+	}
+
+	@Override
+	protected void compute() {
+
+		int nCells = 0;
+		for (int s = 0; s < shipsStructureMasks.length; s++) {
+			nCells += shipsStructureMasks[s].getCellsCount();
+		}
+		CoordinatesSet coveredCells = new CoordinatesSet(nCells);
+
+		if (!placeFleet(coveredCells)) {
+			return;
+		}
+		for (int sweep = 0; sweep < BURN_IN_SWEEPS && isBeforeDeadline(); sweep++) {
+			moveShips(coveredCells);
+		}
+		while (nRecordedSamples < nSamples && isBeforeDeadline()) {
+			moveShips(coveredCells);
+
+			System.arraycopy(upperLefts, 0, sampledUpperLefts, nRecordedSamples * upperLefts.length, upperLefts.length);
+			nRecordedSamples++;
+		}
+	}
+
+	private boolean isBeforeDeadline() {
+		return System.nanoTime() - deadline < 0;
+	}
+
+	/**
+	 * Finds the first configuration of the chain by placing the ships one by one, each at a random placement that does not overlap
+	 * with the ships placed before it. If some ship cannot be placed, the placement starts over.
+	 *
+	 * @param coveredCells
+	 *            Set of the cells covered by the ships, filled by this method.
+	 * @return True if a configuration is found, false otherwise.
+	 */
+	private boolean placeFleet(CoordinatesSet coveredCells) {
+
+		for (int restart = 0; restart < MAX_RESTARTS && isBeforeDeadline(); restart++) {
+			coveredCells.clear();
+
+			boolean isPlaced = true;
+			for (int s = 0; s < shipsPlacements.length && isPlaced; s++) {
+				isPlaced = false;
+				for (int attempt = 0; attempt < MAX_PLACEMENT_ATTEMPTS && !isPlaced; attempt++) {
+					isPlaced = tryPlacement(s, drawPlacement(s), coveredCells);
+				}
+			}
+			if (isPlaced) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves every ship once to a random placement, if it does not overlap with the other ships there.
+	 *
+	 * @param coveredCells
+	 *            Set of the cells covered by the ships.
+	 */
+	private void moveShips(CoordinatesSet coveredCells) {
+
+		for (int s = 0; s < shipsPlacements.length; s++) {
+			int upperLeft = upperLefts[s];
+			changeCoverage(s, upperLeft, coveredCells, false);
+
+			if (!tryPlacement(s, drawPlacement(s), coveredCells)) {
+				changeCoverage(s, upperLeft, coveredCells, true);
+			}
+		}
+	}
+
+	private int drawPlacement(int shipIndex) {
+		int[] placements = shipsPlacements[shipIndex];
+		return placements[random.nextInt(placements.length)];
+	}
+
+	/**
+	 * Places the ship at the given placement if none of its cells is covered.
+	 *
+	 * @param shipIndex
+	 *            Index of the ship.
+	 * @param upperLeft
+	 *            Packed upper left coordinates of the placement.
+	 * @param coveredCells
+	 *            Set of the cells covered by the other ships, the ship's cells are added if it is placed.
+	 * @return True if the ship is placed, false otherwise.
+	 */
+	private boolean tryPlacement(int shipIndex, int upperLeft, CoordinatesSet coveredCells) {
+
+		int x = Coordinates.getX(upperLeft), y = Coordinates.getY(upperLeft);
+		StructureMask shipsStructureMask = shipsStructureMasks[shipIndex];
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			if (coveredCells.contains(Coordinates.encode(x + shipsStructureMask.getXOffset(cell), y + shipsStructureMask.getYOffset(cell)))) {
+				return false;
+			}
+		}
+		changeCoverage(shipIndex, upperLeft, coveredCells, true);
+		upperLefts[shipIndex] = upperLeft;
+		return true;
+	}
+
+	/**
+	 * Adds the cells of the ship at the given placement to the covered cells, or removes them.
+	 *
+	 * @param shipIndex
+	 *            Index of the ship.
+	 * @param upperLeft
+	 *            Packed upper left coordinates of the placement.
+	 * @param coveredCells
+	 *            Set of the covered cells.
+	 * @param isCovered
+	 *            True if the cells are added, false if they are removed.
+	 */
+	private void changeCoverage(int shipIndex, int upperLeft, CoordinatesSet coveredCells, boolean isCovered) {
+
+		int x = Coordinates.getX(upperLeft), y = Coordinates.getY(upperLeft);
+		StructureMask shipsStructureMask = shipsStructureMasks[shipIndex];
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			int coordinates = Coordinates.encode(x + shipsStructureMask.getXOffset(cell), y + shipsStructureMask.getYOffset(cell));
+
+			if (isCovered) {
+				coveredCells.add(coordinates);
+			} else {
+				coveredCells.remove(coordinates);
+			}
+		}
+	}
+
+	/**
+	 * Adds one to the frequency of every cell covered by a ship in every recorded configuration.
+	 *
+	 * @param frequencies
+	 *            2D array of cell frequencies, as big as the grid.
+	 */
+	public void addFrequencies(int[][] frequencies) {
+
+		for (int n = 0; n < nRecordedSamples; n++) {
+			for (int s = 0; s < shipsPlacements.length; s++) {
+				int upperLeft = sampledUpperLefts[n * shipsPlacements.length + s];
+				int x = Coordinates.getX(upperLeft), y = Coordinates.getY(upperLeft);
+
+				StructureMask shipsStructureMask = shipsStructureMasks[s];
+				for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+					frequencies[y + shipsStructureMask.getYOffset(cell)][x + shipsStructureMask.getXOffset(cell)]++;
+				}
+			}
+		}
+	}
+
+	public int getRecordedSamplesCount() {
+		return nRecordedSamples;
+	}
+}
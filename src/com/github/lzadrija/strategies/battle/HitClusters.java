@@ -0,0 +1,260 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.CoordinatesMap;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.ships.ShipType;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Splits the hits of a hit area into clusters that can be identified independently. Two hits are linked if one ship of the fleet
+ * can cover both of them through its own cells only: for ships whose cells are connected by their sides these are the neighbouring
+ * hits, and for ships with gaps between their cells every offset between two of their cells links the hits. A sunk ship covers
+ * only hits linked to each other, so it lies in one cluster. Hits are kept in a union-find structure indexed by packed coordinates,
+ * so every added hit is merged with the clusters it is linked to in nearly constant time.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class HitClusters {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final int[] linkXOffsets;
+	private final int[] linkYOffsets;
+
+	private final CoordinatesMap hitsIndexes;
+	private final List<Point> hitsPointsList;
+	private int[] parents;
+	private int[] clustersSizes;
+	private int nClusters;
+
+	/**
+	 * Constructor. Links between the hits are computed from the types of all ships in the repository.
+	 *
+	 * @param shipsRepository
+	 *            Ships repository.
+	 */
+	public HitClusters(ShipsRepository shipsRepository) {
+
+		Set<ShipType> shipTypes = new LinkedHashSet<>();
+		Set<Point> linkOffsets = new LinkedHashSet<>();
+		for (int i = 0; i < shipsRepository.getShipsCount(); i++) {
+			if (shipTypes.add(shipsRepository.getShipsType(i))) {
+				addLinkOffsets(shipsRepository.getShipsStructure(i), linkOffsets);
+			}
+		}
+
+		linkXOffsets = new int[linkOffsets.size()];
+		linkYOffsets = new int[linkOffsets.size()];
+		int n = 0;
+		for (Iterator<Point> iterator = linkOffsets.iterator(); iterator.hasNext();) {
+			Point linkOffset = iterator.next();
+
+			linkXOffsets[n] = linkOffset.getX();
+			linkYOffsets[n++] = linkOffset.getY();
+		}
+
+		hitsIndexes = new CoordinatesMap();
+		hitsPointsList = new ArrayList<>();
+		parents = new int[DEFAULT_CAPACITY];
+		clustersSizes = new int[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Adds the offsets that link the cells of the structure. Only one of the offsets (dx, dy) and (-dx, -dy) is added, the one
+	 * pointing right or down.
+	 *
+	 * @param structure
+	 *            Ship's structure.
+	 * @param linkOffsets
+	 *            Set of offsets that link the hits.
+	 */
+	private static void addLinkOffsets(List<Point> structure, Set<Point> linkOffsets) {
+
+		if (isStructureConnected(structure)) {
+			if (structure.size() > 1) {
+				linkOffsets.add(new Point(1, 0));
+				linkOffsets.add(new Point(0, 1));
+			}
+			return;
+		}
+		for (int i = 0; i < structure.size(); i++) {
+			for (int j = i + 1; j < structure.size(); j++) {
+				int xOffset = structure.get(j).getX() - structure.get(i).getX();
+				int yOffset = structure.get(j).getY() - structure.get(i).getY();
+
+				boolean isRightOrDown = xOffset > 0 || (0 == xOffset && yOffset > 0);
+				linkOffsets.add(isRightOrDown ? new Point(xOffset, yOffset) : new Point(-xOffset, -yOffset));
+			}
+		}
+	}
+
+	/**
+	 * Checks if all cells of the structure are connected by their sides.
+	 *
+	 * @param structure
+	 *            Ship's structure.
+	 * @return True if the structure is connected, false otherwise.
+	 */
+	private static boolean isStructureConnected(List<Point> structure) {
+
+		boolean[] isReached = new boolean[structure.size()];
+		int[] queue = new int[structure.size()];
+		int head = 0, tail = 0;
+		isReached[0] = true;
+		queue[tail++] = 0;
+
+		while (head < tail) {
+			Point cell = structure.get(queue[head++]);
+
+			for (int i = 0; i < structure.size(); i++) {
+				Point otherCell = structure.get(i);
+				int distance = Math.abs(otherCell.getX() - cell.getX()) + Math.abs(otherCell.getY() - cell.getY());
+
+				if (!isReached[i] && 1 == distance) {
+					isReached[i] = true;
+					queue[tail++] = i;
+				}
+			}
+		}
+		return tail == structure.size();
+	}
+
+	/**
+	 * Adds the hit and merges it with the clusters of the hits it is linked to.
+	 *
+	 * @param hitPoint
+	 *            Hit on the grid.
+	 * @return True if the hit was added, false if it was already known.
+	 */
+	public boolean add(Point hitPoint) {
+
+		int hitCoordinates = Coordinates.encode(hitPoint);
+		if (hitsIndexes.containsKey(hitCoordinates)) {
+			return false;
+		}
+
+		int index = hitsPointsList.size();
+		if (index == parents.length) {
+			parents = Arrays.copyOf(parents, 2 * index);
+			clustersSizes = Arrays.copyOf(clustersSizes, 2 * index);
+		}
+		hitsIndexes.put(hitCoordinates, index);
+		hitsPointsList.add(hitPoint);
+		parents[index] = index;
+		clustersSizes[index] = 1;
+		nClusters++;
+
+		for (int i = 0; i < linkXOffsets.length; i++) {
+			union(index, getHitIndex(hitPoint.getX() + linkXOffsets[i], hitPoint.getY() + linkYOffsets[i]));
+			union(index, getHitIndex(hitPoint.getX() - linkXOffsets[i], hitPoint.getY() - linkYOffsets[i]));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the index of the hit with the given coordinates.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @param yCoordinate
+	 *            y coordinate.
+	 * @return Index of the hit, or {@link CoordinatesMap#NO_VALUE} if there is no hit with the given coordinates.
+	 */
+	private int getHitIndex(int xCoordinate, int yCoordinate) {
+
+		if (xCoordinate < 0 || xCoordinate > Coordinates.MAX_COORDINATE || yCoordinate < 0 || yCoordinate > Coordinates.MAX_COORDINATE) {
+			return CoordinatesMap.NO_VALUE;
+		}
+		return hitsIndexes.get(Coordinates.encode(xCoordinate, yCoordinate));
+	}
+
+	/**
+	 * Returns the root of the cluster of the hit, halving the path to it on the way.
+	 *
+	 * @param index
+	 *            Index of the hit.
+	 * @return Index of the root hit of the cluster.
+	 */
+	private int find(int index) {
+
+		while (parents[index] != index) {
+			parents[index] = parents[parents[index]];
+			index = parents[index];
+		}
+		return index;
+	}
+
+	/**
+	 * Merges the clusters of the two hits, the smaller cluster is attached to the larger one.
+	 *
+	 * @param index
+	 *            Index of the first hit.
+	 * @param otherIndex
+	 *            Index of the second hit, or {@link CoordinatesMap#NO_VALUE} if there is no second hit.
+	 */
+	private void union(int index, int otherIndex) {
+
+		if (CoordinatesMap.NO_VALUE == otherIndex) {
+			return;
+		}
+		int root = find(index), otherRoot = find(otherIndex);
+		if (root == otherRoot) {
+			return;
+		}
+		if (clustersSizes[root] < clustersSizes[otherRoot]) {
+			int swap = root;
+			root = otherRoot;
+			otherRoot = swap;
+		}
+		parents[otherRoot] = root;
+		clustersSizes[root] += clustersSizes[otherRoot];
+		nClusters--;
+	}
+
+	/**
+	 * Removes all hits.
+	 */
+	public void clear() {
+
+		hitsIndexes.clear();
+		hitsPointsList.clear();
+		nClusters = 0;
+	}
+
+	public int getClustersCount() {
+		return nClusters;
+	}
+
+	/**
+	 * Returns the hits grouped by clusters. Clusters are ordered by their first added hit, and hits of every cluster are in the
+	 * order in which they were added.
+	 *
+	 * @return List of clusters.
+	 */
+	public List<List<Point>> getClusters() {
+
+		List<List<Point>> clusters = new ArrayList<>(nClusters);
+		int[] clustersIndexes = new int[hitsPointsList.size()];
+		Arrays.fill(clustersIndexes, -1);
+
+		for (int i = 0; i < hitsPointsList.size(); i++) {
+			int root = find(i);
+
+			if (-1 == clustersIndexes[root]) {
+				clustersIndexes[root] = clusters.size();
+				clusters.add(new ArrayList<Point>(clustersSizes[root]));
+			}
+			clusters.get(clustersIndexes[root]).add(hitsPointsList.get(i));
+		}
+		return clusters;
+	}
+}
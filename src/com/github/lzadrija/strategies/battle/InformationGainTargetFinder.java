@@ -0,0 +1,166 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Used for finding the next target on the grid when in Localization mode, like {@link ShipLocator}, but by the information the shot
+ * is expected to give. Ship locator fires at the cell through which the most placements of the hidden ships pass, regardless of
+ * how much a miss there would tell. This finder takes the most likely cells as candidates, scores every candidate by the expected
+ * information of the shot (how much each outcome shrinks the space of fleet placements, see {@link CandidatesEvaluation}), and
+ * fires at the candidate with the highest score. Of the candidates with the same score, the one more likely to be a hit is chosen.
+ * Scoring a candidate takes one bit test per cell of every hidden ship's structure, so candidates are split between the threads
+ * of the pool only if there are enough such tests to pay for forking, otherwise they are scored in the current thread. Every
+ * evaluation has its own scratch buffer.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class InformationGainTargetFinder extends ShipLocator {
+
+	/**
+	 * Number of the most likely cells that are scored for every target.
+	 */
+	public static final int DEFAULT_CANDIDATES_COUNT = 16;
+
+	/**
+	 * Number of cells of the hidden ships' structures examined for all candidates together, below which the candidates are scored
+	 * in the current thread.
+	 */
+	public static final long PARALLEL_EVALUATION_THRESHOLD = 1 << 14;
+
+	private final ForkJoinPool pool;
+	private final int nCandidates;
+
+	/**
+	 * Constructor. Candidates are scored in the common pool, the default number of candidates is scored.
+	 */
+	public InformationGainTargetFinder() {
+		this(ForkJoinPool.commonPool(), DEFAULT_CANDIDATES_COUNT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool used for scoring the candidates and for building the placement index, or null if everything must be done in
+	 *            the current thread.
+	 * @param nCandidates
+	 *            Number of the most likely cells that are scored for every target.
+	 * @throws IllegalArgumentException
+	 *             If the number of candidates is not positive.
+	 */
+	public InformationGainTargetFinder(ForkJoinPool pool, int nCandidates) {
+		this(pool, nCandidates, new Random());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool used for scoring the candidates and for building the placement index, or null if everything must be done in
+	 *            the current thread.
+	 * @param nCandidates
+	 *            Number of the most likely cells that are scored for every target.
+	 * @param random
+	 *            Random number generator used for breaking ties between the most likely targets.
+	 * @throws NullPointerException
+	 *             If the random number generator is null.
+	 * @throws IllegalArgumentException
+	 *             If the number of candidates is not positive.
+	 */
+	public InformationGainTargetFinder(ForkJoinPool pool, int nCandidates, Random random) {
+
+		super(pool, DEFAULT_PARALLEL_THRESHOLD, random);
+		if (nCandidates <= 0) {
+			throw new IllegalArgumentException("Number of candidates must be positive: " + nCandidates);
+		}
+		this.pool = pool;
+		this.nCandidates = nCandidates;
+	}
+
+	/**
+	 * Scores the most likely cells and returns the one with the highest expected information.
+	 */
+	@Override
+	protected Point chooseTarget(Grid grid, ShipsRepository shipsRepository, PlacementIndex placementIndex) {
+
+		List<Point> candidates = getTargetPositions(placementIndex.getLikelihoods(), nCandidates);
+		if (candidates.size() <= 1) {
+			return candidates.isEmpty() ? null : candidates.get(0);
+		}
+
+		int[] typesPlacementsCounts = new int[placementIndex.getTypesCount()];
+		long nExaminedCells = 0;
+		for (int t = 0; t < typesPlacementsCounts.length; t++) {
+			typesPlacementsCounts[t] = placementIndex.getPlacementsCountOfType(t);
+			if (0 != placementIndex.getHiddenShipsCountOfType(t)) {
+				nExaminedCells += (long) candidates.size() * placementIndex.getStructureMaskOfType(t).getCellsCount();
+			}
+		}
+		double[] missProbabilities = new double[candidates.size()];
+		double[] scores = new double[candidates.size()];
+		evaluateCandidates(placementIndex, typesPlacementsCounts, candidates, missProbabilities, scores,
+						   nExaminedCells >= PARALLEL_EVALUATION_THRESHOLD);
+
+		int bestCandidate = 0;
+		for (int i = 1; i < candidates.size(); i++) {
+			if (scores[i] > scores[bestCandidate]
+					|| (scores[i] == scores[bestCandidate] && missProbabilities[i] < missProbabilities[bestCandidate])) {
+				bestCandidate = i;
+			}
+		}
+		return candidates.get(bestCandidate);
+	}
+
+	/**
+	 * Splits the candidates into one range for every thread of the pool and scores the ranges. If there is no pool or the work is
+	 * too small to be split, all candidates are scored in the current thread.
+	 *
+	 * @param placementIndex
+	 *            Placement index that is up to date with the grid.
+	 * @param typesPlacementsCounts
+	 *            Number of placements of every ship type in the index.
+	 * @param candidates
+	 *            Candidate targets.
+	 * @param missProbabilities
+	 *            Array in which the probability of a miss at every candidate is stored.
+	 * @param scores
+	 *            Array in which the expected information of every candidate is stored.
+	 * @param isParallel
+	 *            True if the work is large enough to be split between the threads of the pool.
+	 */
+	private void evaluateCandidates(PlacementIndex placementIndex, int[] typesPlacementsCounts, List<Point> candidates,
+									double[] missProbabilities, double[] scores, boolean isParallel) {
+
+		if (null == pool || !isParallel) {
+			new CandidatesEvaluation(placementIndex, typesPlacementsCounts, candidates, 0, candidates.size(), missProbabilities, scores)
+					.invoke();
+			return;
+		}
+
+		int nEvaluations = Math.min(pool.getParallelism(), candidates.size());
+		final List<CandidatesEvaluation> evaluations = new ArrayList<>(nEvaluations);
+		for (int e = 0; e < nEvaluations; e++) {
+			int fromCandidate = e * candidates.size() / nEvaluations;
+			int toCandidate = (e + 1) * candidates.size() / nEvaluations;
+
+			evaluations.add(new CandidatesEvaluation(placementIndex, typesPlacementsCounts, candidates, fromCandidate, toCandidate,
+													 missProbabilities, scores));
+		}
+
+		pool.invoke(ForkJoinTask.adapt(new Runnable() {
+			@Override
+			public void run() {
+				ForkJoinTask.invokeAll(evaluations);
+			}
+		}));
+	}
+}
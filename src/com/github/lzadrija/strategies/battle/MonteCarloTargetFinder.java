@@ -0,0 +1,182 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Used for finding the next target on the grid when in Localization mode, like {@link ShipLocator}, but from the joint positions of
+ * the hidden ships. Ship locator counts the placements of every ship on its own, so it also counts placements that cannot be
+ * completed into a configuration of the whole fleet without overlapping ships. This finder draws random configurations of the
+ * hidden fleet in which no ships overlap and every ship lies over undefined cells only (placements come from the placement index,
+ * so they are consistent with the grid and with the assumed misses, see {@link FleetSampler}), and targets the cell that is covered
+ * by a ship in the most configurations, which is the cell most likely to contain a ship. Localization mode starts only when no
+ * hits are left unexplained (all hits belong to the exposed ships, whose cells are occupied), so the grid is the only evidence
+ * the configurations must agree with.
+ * <p>
+ * The work is split between the threads of the pool, one sampler per thread, each with its own random number generator. Sampling
+ * stops when the sample budget is drawn or when the time budget runs out, whichever comes first. If no configuration is found in
+ * time, the target is chosen from the placement counts.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class MonteCarloTargetFinder extends ShipLocator {
+
+	/**
+	 * Number of configurations drawn for every target, unless the time budget runs out first.
+	 */
+	public static final int DEFAULT_SAMPLE_BUDGET = 10000;
+
+	/**
+	 * Time in milliseconds that sampling may take for every target.
+	 */
+	public static final long DEFAULT_TIME_BUDGET_MILLIS = 50;
+
+	private final ForkJoinPool pool;
+	private final int sampleBudget;
+	private final long timeBudgetNanos;
+
+	/**
+	 * Constructor. Configurations are drawn in the common pool, with the default sample and time budgets.
+	 */
+	public MonteCarloTargetFinder() {
+		this(ForkJoinPool.commonPool(), DEFAULT_SAMPLE_BUDGET, DEFAULT_TIME_BUDGET_MILLIS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool used for drawing configurations and for building the placement index, or null if everything must be done
+	 *            in the current thread.
+	 * @param sampleBudget
+	 *            Maximal number of configurations drawn for every target.
+	 * @param timeBudgetMillis
+	 *            Maximal time in milliseconds that sampling may take for every target.
+	 * @throws IllegalArgumentException
+	 *             If any of the budgets is not positive.
+	 */
+	public MonteCarloTargetFinder(ForkJoinPool pool, int sampleBudget, long timeBudgetMillis) {
+		this(pool, sampleBudget, timeBudgetMillis, new Random());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool used for drawing configurations and for building the placement index, or null if everything must be done
+	 *            in the current thread.
+	 * @param sampleBudget
+	 *            Maximal number of configurations drawn for every target.
+	 * @param timeBudgetMillis
+	 *            Maximal time in milliseconds that sampling may take for every target.
+	 * @param random
+	 *            Random number generator that seeds the generators of the samplers and breaks ties between the most likely
+	 *            targets.
+	 * @throws NullPointerException
+	 *             If the random number generator is null.
+	 * @throws IllegalArgumentException
+	 *             If any of the budgets is not positive.
+	 */
+	public MonteCarloTargetFinder(ForkJoinPool pool, int sampleBudget, long timeBudgetMillis, Random random) {
+
+		super(pool, DEFAULT_PARALLEL_THRESHOLD, random);
+		if (sampleBudget <= 0) {
+			throw new IllegalArgumentException("Sample budget must be positive: " + sampleBudget);
+		}
+		if (timeBudgetMillis <= 0) {
+			throw new IllegalArgumentException("Time budget must be positive: " + timeBudgetMillis);
+		}
+		this.pool = pool;
+		this.sampleBudget = sampleBudget;
+		this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+	}
+
+	/**
+	 * Draws configurations of the hidden fleet and returns the cell covered by a ship in the most of them. Falls back to the
+	 * placement counts if some hidden ship has no placement left or if no configuration is drawn in time.
+	 */
+	@Override
+	protected Point chooseTarget(Grid grid, ShipsRepository shipsRepository, PlacementIndex placementIndex) {
+
+		List<int[]> shipsPlacements = new ArrayList<>();
+		List<StructureMask> shipsStructureMasks = new ArrayList<>();
+		for (int t = 0; t < placementIndex.getTypesCount(); t++) {
+			int nHiddenShips = placementIndex.getHiddenShipsCountOfType(t);
+			if (0 == nHiddenShips) {
+				continue;
+			}
+			int[] placements = placementIndex.getPlacementsOfType(t);
+			if (0 == placements.length) {
+				return super.chooseTarget(grid, shipsRepository, placementIndex);
+			}
+			StructureMask structureMask = placementIndex.getStructureMaskOfType(t);
+			for (int i = 0; i < nHiddenShips; i++) {
+				shipsPlacements.add(placements);
+				shipsStructureMasks.add(structureMask);
+			}
+		}
+		if (shipsPlacements.isEmpty()) {
+			return null;
+		}
+
+		List<FleetSampler> samplers = drawConfigurations(shipsPlacements.toArray(new int[shipsPlacements.size()][]),
+														 shipsStructureMasks.toArray(new StructureMask[shipsStructureMasks.size()]));
+
+		int[][] frequencies = getLikelihoodsBuffer(grid.getHeight(), grid.getWidth());
+		int nSamples = 0;
+		for (int i = 0; i < samplers.size(); i++) {
+			samplers.get(i).addFrequencies(frequencies);
+			nSamples += samplers.get(i).getRecordedSamplesCount();
+		}
+		if (0 == nSamples) {
+			return super.chooseTarget(grid, shipsRepository, placementIndex);
+		}
+		return getTargetPosition(frequencies);
+	}
+
+	/**
+	 * Splits the sample budget between the samplers, one for every thread of the pool, and runs them until they finish or until
+	 * the time budget runs out.
+	 *
+	 * @param shipsPlacements
+	 *            Possible placements of every hidden ship.
+	 * @param shipsStructureMasks
+	 *            Compiled structure of every hidden ship.
+	 * @return Finished samplers.
+	 */
+	private List<FleetSampler> drawConfigurations(int[][] shipsPlacements, StructureMask[] shipsStructureMasks) {
+
+		long deadline = System.nanoTime() + timeBudgetNanos;
+		int nSamplers = (null == pool) ? 1 : Math.min(pool.getParallelism(), sampleBudget);
+
+		final List<FleetSampler> samplers = new ArrayList<>(nSamplers);
+		for (int i = 0; i < nSamplers; i++) {
+			int nSamples = sampleBudget / nSamplers + ((i < sampleBudget % nSamplers) ? 1 : 0);
+
+			samplers.add(new FleetSampler(shipsPlacements, shipsStructureMasks, nSamples, deadline, new SplittableRandom(getRandom().nextLong())));
+		}
+
+		if (null == pool) {
+			samplers.get(0).invoke();
+		} else {
+			pool.invoke(ForkJoinTask.adapt(new Runnable() {
+				@Override
+				public void run() {
+					ForkJoinTask.invokeAll(samplers);
+				}
+			}));
+		}
+		return samplers;
+	}
+}
@@ -0,0 +1,680 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.GridListener;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.ships.ShipType;
+import com.github.lzadrija.repositories.ShipsRepository;
+import com.github.lzadrija.repositories.ShipsRepositoryListener;
+
+/**
+ * Persistent index of all possible placements of the hidden ships on the grid. For every type of the hidden ships, each upper left
+ * coordinate at which a ship of that type can be placed over undefined cells only is stored as one bit, and the likelihood of every
+ * cell (the number of placements of the hidden ships passing through it) is kept up to date. Ships of the same type share their
+ * placements, which are counted once for every hidden ship of the type, so the work does not grow with the number of ships of
+ * one type. The whole grid is swept only once, when the index is built. After that, the
+ * index listens to the grid and to the ships repository: when a cell becomes occupied, only the placements passing through that
+ * cell are removed, and when a ship is exposed, its placements are removed from the likelihoods. A ship that is hidden again makes
+ * the index outdated, since the placements of its type may already be dropped, so the index must be built again. If a fork/join
+ * pool is given and the grid is large enough, the initial sweep is split into row stripes that run in parallel, each stripe with
+ * its own likelihoods buffer shared by all ship types; the buffers are then summed in parallel by bands of rows, so the result
+ * is identical to the sequential sweep.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class PlacementIndex implements GridListener, ShipsRepositoryListener {
+
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = Long.SIZE - 1;
+	private static final int STRIPES_PER_THREAD = 4;
+
+	private final Grid grid;
+	private final ShipsRepository shipsRepository;
+
+	private final int wordsPerRow;
+	private final int[][] likelihoods;
+
+	private final int[] shipsTypeSlots;
+	private final boolean[] isShipCounted;
+	private final int[] typesShipIndexes;
+	private final int[] typesHiddenCounts;
+	private final long[][] typesPlacements;
+
+	private int[] assumedRemovals;
+	private int nAssumedRemovals;
+	private boolean isOutdated;
+
+	/**
+	 * Constructor. Builds the index by sweeping the whole grid with every hidden ship, sequentially. The index is kept up to date
+	 * only after it is attached (see {@link #attach()}).
+	 *
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param nShips
+	 *            Number of ships in the repository.
+	 */
+	public PlacementIndex(Grid grid, ShipsRepository shipsRepository, int nShips) {
+		this(grid, shipsRepository, nShips, null, 0);
+	}
+
+	/**
+	 * Constructor. Builds the index by sweeping the whole grid with every hidden ship. The sweep runs in the given pool if the
+	 * number of examined upper left coordinates reaches the threshold. The index is kept up to date only after it is attached
+	 * (see {@link #attach()}).
+	 *
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param nShips
+	 *            Number of ships in the repository.
+	 * @param pool
+	 *            Pool used for the parallel sweep, or null if the sweep must be sequential.
+	 * @param parallelThreshold
+	 *            Minimal number of upper left coordinates for which the sweep is run in parallel.
+	 */
+	public PlacementIndex(Grid grid, ShipsRepository shipsRepository, int nShips, ForkJoinPool pool, long parallelThreshold) {
+
+		this.grid = grid;
+		this.shipsRepository = shipsRepository;
+
+		wordsPerRow = ((grid.getWidth() - 1) >>> WORD_SHIFT) + 1;
+		likelihoods = new int[grid.getHeight()][grid.getWidth()];
+		assumedRemovals = new int[3 * Long.SIZE];
+
+		List<Integer> hiddenTypesIndexes = shipsRepository.getHiddenShipTypesIndexes();
+		int nTypes = hiddenTypesIndexes.size();
+		typesShipIndexes = new int[nTypes];
+		typesHiddenCounts = new int[nTypes];
+		typesPlacements = new long[nTypes][];
+
+		Map<ShipType, Integer> slotsByType = new HashMap<>();
+		for (int t = 0; t < nTypes; t++) {
+			int i = hiddenTypesIndexes.get(t);
+
+			typesShipIndexes[t] = i;
+			typesHiddenCounts[t] = shipsRepository.getHiddenShipsCountOfType(i);
+			typesPlacements[t] = new long[grid.getHeight() * wordsPerRow];
+			slotsByType.put(shipsRepository.getShipsType(i), t);
+		}
+
+		List<Integer> hiddenShipsIndexes = shipsRepository.getHiddenShipsIndexes();
+		shipsTypeSlots = new int[nShips];
+		isShipCounted = new boolean[nShips];
+		Arrays.fill(shipsTypeSlots, -1);
+		for (Iterator<Integer> iterator = hiddenShipsIndexes.iterator(); iterator.hasNext();) {
+			int i = iterator.next();
+
+			shipsTypeSlots[i] = slotsByType.get(shipsRepository.getShipsType(i));
+			isShipCounted[i] = true;
+		}
+
+		if (null != pool && countUpperLeftCoordinates() >= parallelThreshold) {
+			addAllPlacementsInParallel(pool);
+		} else {
+			addAllPlacements();
+		}
+	}
+
+	/**
+	 * Returns the number of upper left coordinates that the sweep examines for the hidden ship types.
+	 *
+	 * @return Number of upper left coordinates.
+	 */
+	private long countUpperLeftCoordinates() {
+
+		long nCoordinates = 0;
+		for (int t = 0; t < typesShipIndexes.length; t++) {
+			int i = typesShipIndexes[t];
+
+			long nRows = getUpperLeftRowsCount(i);
+			long nColumns = Math.max(0, grid.getWidth() - shipsRepository.getShipsWidth(i) + 1);
+			nCoordinates += nRows * nColumns;
+		}
+		return nCoordinates;
+	}
+
+	/**
+	 * Returns the number of grid rows in which the upper left point of the ship with the given index can be.
+	 *
+	 * @param shipIndex
+	 *            Ships index in the list of ships.
+	 * @return Number of rows.
+	 */
+	private int getUpperLeftRowsCount(int shipIndex) {
+		return Math.max(0, grid.getHeight() - shipsRepository.getShipsHeight(shipIndex) + 1);
+	}
+
+	/**
+	 * Sweeps the grid with the hidden ship types in the current thread, directly into the index's likelihoods.
+	 */
+	private void addAllPlacements() {
+
+		for (int t = 0; t < typesShipIndexes.length; t++) {
+			int i = typesShipIndexes[t];
+
+			PlacementSweep sweep = new PlacementSweep(grid, shipsRepository.getShipsStructureMask(i), 0, getUpperLeftRowsCount(i),
+													  typesPlacements[t], likelihoods, 0, typesHiddenCounts[t]);
+			sweep.invoke();
+		}
+	}
+
+	/**
+	 * Sweeps the grid with the hidden ship types in the given pool. The grid is split into stripes of rows, and every stripe is
+	 * swept with all hidden types, one after another, into its own likelihoods buffer that covers only the rows the stripe can
+	 * reach. When all stripes are swept, the buffers are added to the index's likelihoods in the pool as well, one band of rows per
+	 * task, so no task writes to rows of another.
+	 *
+	 * @param pool
+	 *            Fork/join pool.
+	 */
+	private void addAllPlacementsInParallel(ForkJoinPool pool) {
+
+		int nStripes = pool.getParallelism() * STRIPES_PER_THREAD;
+		int nRows = 0, maxShipsHeight = 1;
+		for (int t = 0; t < typesShipIndexes.length; t++) {
+			int i = typesShipIndexes[t];
+
+			nRows = Math.max(nRows, getUpperLeftRowsCount(i));
+			maxShipsHeight = Math.max(maxShipsHeight, shipsRepository.getShipsHeight(i));
+		}
+
+		final List<ForkJoinTask<?>> sweeps = new ArrayList<>();
+		final List<int[][]> buffers = new ArrayList<>();
+		final List<Integer> buffersRowOffsets = new ArrayList<>();
+		int stripeHeight = Math.max(1, (nRows + nStripes - 1) / nStripes);
+
+		for (int fromRow = 0; fromRow < nRows; fromRow += stripeHeight) {
+			final int stripeFromRow = fromRow;
+			final int stripeToRow = Math.min(nRows, fromRow + stripeHeight);
+			final int[][] buffer = new int[Math.min(grid.getHeight(), stripeToRow + maxShipsHeight - 1) - fromRow][grid.getWidth()];
+
+			buffers.add(buffer);
+			buffersRowOffsets.add(fromRow);
+			sweeps.add(ForkJoinTask.adapt(new Runnable() {
+				@Override
+				public void run() {
+					sweepStripe(stripeFromRow, stripeToRow, buffer);
+				}
+			}));
+		}
+
+		final List<ForkJoinTask<?>> merges = new ArrayList<>();
+		int bandHeight = Math.max(1, (grid.getHeight() + nStripes - 1) / nStripes);
+
+		for (int fromRow = 0; fromRow < grid.getHeight(); fromRow += bandHeight) {
+			final int bandFromRow = fromRow;
+			final int bandToRow = Math.min(grid.getHeight(), fromRow + bandHeight);
+
+			merges.add(ForkJoinTask.adapt(new Runnable() {
+				@Override
+				public void run() {
+					addBuffers(bandFromRow, bandToRow, buffers, buffersRowOffsets);
+				}
+			}));
+		}
+
+		pool.invoke(ForkJoinTask.adapt(new Runnable() {
+			@Override
+			public void run() {
+				ForkJoinTask.invokeAll(sweeps);
+				ForkJoinTask.invokeAll(merges);
+			}
+		}));
+	}
+
+	/**
+	 * Sweeps one stripe of rows with every hidden ship type, in the current thread. Types whose upper left point cannot be in some
+	 * of the stripe's rows sweep only the rows where it can be.
+	 *
+	 * @param fromRow
+	 *            First row of upper left coordinates (inclusive).
+	 * @param toRow
+	 *            Last row of upper left coordinates (exclusive).
+	 * @param buffer
+	 *            Stripe's likelihoods buffer, whose first row is the stripe's first row.
+	 */
+	private void sweepStripe(int fromRow, int toRow, int[][] buffer) {
+
+		for (int t = 0; t < typesShipIndexes.length; t++) {
+			int i = typesShipIndexes[t];
+
+			int typesToRow = Math.min(toRow, getUpperLeftRowsCount(i));
+			if (fromRow < typesToRow) {
+				PlacementSweep sweep = new PlacementSweep(grid, shipsRepository.getShipsStructureMask(i), fromRow, typesToRow,
+														  typesPlacements[t], buffer, fromRow, typesHiddenCounts[t]);
+				sweep.invoke();
+			}
+		}
+	}
+
+	/**
+	 * Adds the parts of the stripes' likelihoods buffers that cover the given band of rows to the index's likelihoods.
+	 *
+	 * @param fromRow
+	 *            First row of the band (inclusive).
+	 * @param toRow
+	 *            Last row of the band (exclusive).
+	 * @param buffers
+	 *            Stripes' likelihoods buffers.
+	 * @param buffersRowOffsets
+	 *            Grid row that is stored in the first row of each buffer.
+	 */
+	private void addBuffers(int fromRow, int toRow, List<int[][]> buffers, List<Integer> buffersRowOffsets) {
+
+		for (int b = 0; b < buffers.size(); b++) {
+			int[][] buffer = buffers.get(b);
+			int rowOffset = buffersRowOffsets.get(b);
+
+			int bufferToRow = Math.min(toRow, rowOffset + buffer.length);
+			for (int j = Math.max(fromRow, rowOffset); j < bufferToRow; j++) {
+				int[] row = buffer[j - rowOffset];
+
+				for (int k = 0; k < row.length; k++) {
+					likelihoods[j][k] += row[k];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Attaches the index to the grid and to the ships repository, as their listener. From then on, the index is kept up to date
+	 * with every change of the grid and of the hidden ships.
+	 */
+	public void attach() {
+		grid.addGridListener(this);
+		shipsRepository.addShipsRepositoryListener(this);
+	}
+
+	/**
+	 * Detaches the index from the grid and from the ships repository. After this, the index is no longer kept up to date.
+	 */
+	public void detach() {
+		grid.removeGridListener(this);
+		shipsRepository.removeShipsRepositoryListener(this);
+	}
+
+	/**
+	 * Checks if this index was built for the given grid and ships repository.
+	 *
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @return True if the index tracks the given grid and repository, false otherwise.
+	 */
+	public boolean isBuiltFor(Grid grid, ShipsRepository shipsRepository) {
+		return this.grid == grid && this.shipsRepository == shipsRepository;
+	}
+
+	/**
+	 * Checks if a ship was hidden again after the index was built, so that the index no longer reflects the hidden ships.
+	 *
+	 * @return True if the index must be built again, false otherwise.
+	 */
+	public boolean isOutdated() {
+		return isOutdated;
+	}
+
+	/**
+	 * Removes all placements of the hidden ships that pass through the newly occupied cell. Only upper left coordinates from which
+	 * some cell of the ship's structure lands on the given cell are examined.
+	 */
+	@Override
+	public void cellOccupied(int xCoordinate, int yCoordinate) {
+		removePlacementsThrough(xCoordinate, yCoordinate, false);
+	}
+
+	/**
+	 * Removes the placements passing through the given cell as if it was occupied, while remembering them so that they can be
+	 * restored with {@link #revertAssumptions()}. Used for computing the next target before the content of the given cell is known.
+	 * Assumptions must be reverted before the grid or the ships repository change.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate of the cell.
+	 * @param yCoordinate
+	 *            y coordinate of the cell.
+	 */
+	public void assumeOccupied(int xCoordinate, int yCoordinate) {
+		removePlacementsThrough(xCoordinate, yCoordinate, true);
+	}
+
+	/**
+	 * Restores all placements removed by {@link #assumeOccupied(int, int)} since the last revert.
+	 */
+	public void revertAssumptions() {
+
+		for (int r = 0; r < nAssumedRemovals; r += 3) {
+			int typeSlot = assumedRemovals[r];
+			int x = assumedRemovals[r + 1];
+			int y = assumedRemovals[r + 2];
+
+			typesPlacements[typeSlot][getWordIndex(x, y)] |= 1L << (x & WORD_MASK);
+			changeLikelihood(x, y, shipsRepository.getShipsStructureMask(typesShipIndexes[typeSlot]), typesHiddenCounts[typeSlot]);
+		}
+		nAssumedRemovals = 0;
+	}
+
+	/**
+	 * Removes the possible placements of the hidden ships that pass through the given cell and decreases the likelihoods of the
+	 * cells they cover.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate of the cell.
+	 * @param yCoordinate
+	 *            y coordinate of the cell.
+	 * @param isAssumption
+	 *            True if removed placements are remembered, so that they can be restored.
+	 */
+	private void removePlacementsThrough(int xCoordinate, int yCoordinate, boolean isAssumption) {
+
+		for (int t = 0; t < typesPlacements.length; t++) {
+			if (null == typesPlacements[t]) {
+				continue;
+			}
+			int i = typesShipIndexes[t];
+			int shipsHeight = shipsRepository.getShipsHeight(i);
+			int shipsWidth = shipsRepository.getShipsWidth(i);
+			StructureMask shipsStructureMask = shipsRepository.getShipsStructureMask(i);
+
+			for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+				int x = xCoordinate - shipsStructureMask.getXOffset(cell);
+				int y = yCoordinate - shipsStructureMask.getYOffset(cell);
+				if (x < 0 || y < 0 || !grid.doesStructureFitInRow(shipsWidth, x) || !grid.doesStructureFitInColumn(shipsHeight, y)) {
+					continue;
+				}
+				if (removePlacement(t, x, y)) {
+					changeLikelihood(x, y, shipsStructureMask, -typesHiddenCounts[t]);
+					if (isAssumption) {
+						rememberAssumedRemoval(t, x, y);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remembers the placement removed by an assumption.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @param xCoordinate
+	 *            x coordinate of the ship's upper left point.
+	 * @param yCoordinate
+	 *            y coordinate of the ship's upper left point.
+	 */
+	private void rememberAssumedRemoval(int typeSlot, int xCoordinate, int yCoordinate) {
+
+		if (nAssumedRemovals + 3 > assumedRemovals.length) {
+			assumedRemovals = Arrays.copyOf(assumedRemovals, 2 * assumedRemovals.length);
+		}
+		assumedRemovals[nAssumedRemovals++] = typeSlot;
+		assumedRemovals[nAssumedRemovals++] = xCoordinate;
+		assumedRemovals[nAssumedRemovals++] = yCoordinate;
+	}
+
+	/**
+	 * Removes the contribution of one ship of the exposed ship's type from the likelihoods. When the last hidden ship of the type is
+	 * exposed, the type's placements are dropped.
+	 */
+	@Override
+	public void shipExposed(int index) {
+
+		if (index >= isShipCounted.length || !isShipCounted[index]) {
+			return;
+		}
+		isShipCounted[index] = false;
+
+		int typeSlot = shipsTypeSlots[index];
+		long[] placements = typesPlacements[typeSlot];
+		if (0 == --typesHiddenCounts[typeSlot]) {
+			typesPlacements[typeSlot] = null;
+		}
+
+		StructureMask shipsStructureMask = shipsRepository.getShipsStructureMask(index);
+		for (int j = 0; j < grid.getHeight(); j++) {
+			for (int w = 0; w < wordsPerRow; w++) {
+				long word = placements[j * wordsPerRow + w];
+				while (0 != word) {
+					int k = (w << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+					changeLikelihood(k, j, shipsStructureMask, -1);
+					word &= word - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks the index as outdated, the placements of the ship's type are not restored.
+	 */
+	@Override
+	public void shipHidden(int index) {
+		isOutdated = true;
+	}
+
+	/**
+	 * Clears the bit of the given placement.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @param xCoordinate
+	 *            x coordinate of the ship's upper left point.
+	 * @param yCoordinate
+	 *            y coordinate of the ship's upper left point.
+	 * @return True if the placement was possible before this call, false otherwise.
+	 */
+	private boolean removePlacement(int typeSlot, int xCoordinate, int yCoordinate) {
+
+		int wordIndex = getWordIndex(xCoordinate, yCoordinate);
+		long bit = 1L << (xCoordinate & WORD_MASK);
+		if (0 == (typesPlacements[typeSlot][wordIndex] & bit)) {
+			return false;
+		}
+		typesPlacements[typeSlot][wordIndex] &= ~bit;
+		return true;
+	}
+
+	/**
+	 * Changes the likelihood of all cells covered by the ship placed at the given upper left coordinates.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate of the ship's upper left point.
+	 * @param yCoordinate
+	 *            y coordinate of the ship's upper left point.
+	 * @param shipsStructureMask
+	 *            Ship's compiled structure.
+	 * @param delta
+	 *            Value added to the likelihood of each covered cell.
+	 */
+	private void changeLikelihood(int xCoordinate, int yCoordinate, StructureMask shipsStructureMask, int delta) {
+
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			likelihoods[yCoordinate + shipsStructureMask.getYOffset(cell)][xCoordinate + shipsStructureMask.getXOffset(cell)] += delta;
+		}
+	}
+
+	/**
+	 * Returns the index of the word that contains the bit of the given upper left coordinates.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate.
+	 * @param yCoordinate
+	 *            y coordinate.
+	 * @return Word index.
+	 */
+	private int getWordIndex(int xCoordinate, int yCoordinate) {
+		return yCoordinate * wordsPerRow + (xCoordinate >>> WORD_SHIFT);
+	}
+
+	/**
+	 * Returns the number of ship types tracked by the index (the types that had hidden ships when the index was built).
+	 *
+	 * @return Number of type slots.
+	 */
+	public int getTypesCount() {
+		return typesPlacements.length;
+	}
+
+	/**
+	 * Returns the number of possible placements of all hidden ship types, without the placements removed by the assumed misses.
+	 * Placements of one type are counted once, regardless of the number of hidden ships of the type.
+	 *
+	 * @return Number of placements.
+	 */
+	public long getPlacementsCount() {
+
+		long nPlacements = 0;
+		for (int t = 0; t < typesPlacements.length; t++) {
+			nPlacements += getPlacementsCountOfType(t);
+		}
+		return nPlacements;
+	}
+
+	/**
+	 * Returns the number of possible placements of the ship type in the given slot, without the placements removed by the assumed
+	 * misses.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @return Number of placements, zero if no ship of the type is hidden.
+	 */
+	public int getPlacementsCountOfType(int typeSlot) {
+
+		long[] placements = typesPlacements[typeSlot];
+		if (null == placements) {
+			return 0;
+		}
+		int nPlacements = 0;
+		for (int w = 0; w < placements.length; w++) {
+			nPlacements += Long.bitCount(placements[w]);
+		}
+		return nPlacements;
+	}
+
+	/**
+	 * Returns the number of possible placements of the ship type in the given slot that pass through the given cell. Only upper
+	 * left coordinates from which some cell of the ship's structure lands on the given cell are examined.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @param xCoordinate
+	 *            x coordinate of the cell.
+	 * @param yCoordinate
+	 *            y coordinate of the cell.
+	 * @return Number of placements through the cell, zero if no ship of the type is hidden.
+	 */
+	public int getPlacementsCountThrough(int typeSlot, int xCoordinate, int yCoordinate) {
+
+		long[] placements = typesPlacements[typeSlot];
+		if (null == placements) {
+			return 0;
+		}
+		int i = typesShipIndexes[typeSlot];
+		int shipsHeight = shipsRepository.getShipsHeight(i);
+		int shipsWidth = shipsRepository.getShipsWidth(i);
+		StructureMask shipsStructureMask = shipsRepository.getShipsStructureMask(i);
+
+		int nPlacements = 0;
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			int x = xCoordinate - shipsStructureMask.getXOffset(cell);
+			int y = yCoordinate - shipsStructureMask.getYOffset(cell);
+			if (x < 0 || y < 0 || !grid.doesStructureFitInRow(shipsWidth, x) || !grid.doesStructureFitInColumn(shipsHeight, y)) {
+				continue;
+			}
+			if (0 != (placements[getWordIndex(x, y)] & (1L << (x & WORD_MASK)))) {
+				nPlacements++;
+			}
+		}
+		return nPlacements;
+	}
+
+	/**
+	 * Returns the number of hidden ships of the type in the given slot.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @return Number of hidden ships of the type, zero once they are all exposed.
+	 */
+	public int getHiddenShipsCountOfType(int typeSlot) {
+		return typesHiddenCounts[typeSlot];
+	}
+
+	/**
+	 * Returns the compiled structure of the ship type in the given slot.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @return Ship's compiled structure.
+	 */
+	public StructureMask getStructureMaskOfType(int typeSlot) {
+		return shipsRepository.getShipsStructureMask(typesShipIndexes[typeSlot]);
+	}
+
+	/**
+	 * Returns the upper left coordinates of all possible placements of the ship type in the given slot, without the placements
+	 * removed by the assumed misses.
+	 *
+	 * @param typeSlot
+	 *            Index of the ship type in the index.
+	 * @return Packed upper left coordinates (see {@link Coordinates}) in row-major order, empty if no ship of the type is hidden.
+	 */
+	public int[] getPlacementsOfType(int typeSlot) {
+
+		long[] placements = typesPlacements[typeSlot];
+		if (null == placements) {
+			return new int[0];
+		}
+
+		int nPlacements = 0;
+		for (int w = 0; w < placements.length; w++) {
+			nPlacements += Long.bitCount(placements[w]);
+		}
+		int[] upperLeftCoordinates = new int[nPlacements];
+		int n = 0;
+		for (int j = 0; j < grid.getHeight(); j++) {
+			for (int w = 0; w < wordsPerRow; w++) {
+				long word = placements[j * wordsPerRow + w];
+				while (0 != word) {
+					upperLeftCoordinates[n++] = Coordinates.encode((w << WORD_SHIFT) + Long.numberOfTrailingZeros(word), j);
+					word &= word - 1;
+				}
+			}
+		}
+		return upperLeftCoordinates;
+	}
+
+	/**
+	 * Returns the likelihood of the cell with the given coordinates.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate of the cell.
+	 * @param yCoordinate
+	 *            y coordinate of the cell.
+	 * @return Number of possible placements of the hidden ships that pass through the cell.
+	 */
+	public int getLikelihood(int xCoordinate, int yCoordinate) {
+		return likelihoods[yCoordinate][xCoordinate];
+	}
+
+	/**
+	 * Returns the likelihoods of the cells. The returned array is owned by the index and is updated in place.
+	 *
+	 * @return 2D array of cell likelihoods.
+	 */
+	public int[][] getLikelihoods() {
+		return likelihoods;
+	}
+}
@@ -0,0 +1,97 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.concurrent.RecursiveAction;
+
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.StructureMask;
+
+/**
+ * Sweeps a stripe of grid rows with one ship type. Every upper left coordinate from the stripe at which the ship can be placed over
+ * undefined cells only is marked in the ship's placements bitset, and the likelihoods of the covered cells are increased in the
+ * given likelihoods buffer. Sweeps of different ships or of different stripes are independent: they write to different words of
+ * the placements bitsets (bitset rows are word aligned), so they can run in parallel as long as each one has its own buffer.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+@SuppressWarnings("serial")
+public class PlacementSweep extends RecursiveAction {
+
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = Long.SIZE - 1;
+
+	private final Grid grid;
+	private final StructureMask shipsStructureMask;
+
+	private final int fromRow, toRow;
+	private final long[] placements;
+	private final int wordsPerRow;
+
+	private final int[][] likelihoods;
+	private final int likelihoodsRowOffset;
+	private final int weight;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsStructureMask
+	 *            Ship's compiled structure.
+	 * @param fromRow
+	 *            First row of upper left coordinates (inclusive).
+	 * @param toRow
+	 *            Last row of upper left coordinates (exclusive).
+	 * @param placements
+	 *            Ship's placements bitset, one word aligned row of bits per grid row.
+	 * @param likelihoods
+	 *            Buffer of cell likelihoods that is increased by this sweep.
+	 * @param likelihoodsRowOffset
+	 *            Grid row that is stored in the first row of the likelihoods buffer.
+	 * @param weight
+	 *            Value added to the likelihood of a cell for every placement through it (the number of hidden ships of the type).
+	 */
+	public PlacementSweep(Grid grid, StructureMask shipsStructureMask, int fromRow, int toRow, long[] placements, int[][] likelihoods,
+						  int likelihoodsRowOffset, int weight) {
+
+		this.grid = grid;
+		this.shipsStructureMask = shipsStructureMask;
+		this.fromRow = fromRow;
+		this.toRow = toRow;
+		this.placements = placements;
+		this.likelihoods = likelihoods;
+		this.likelihoodsRowOffset = likelihoodsRowOffset;
+		this.weight = weight;
+
+		wordsPerRow = ((grid.getWidth() - 1) >>> WORD_SHIFT) + 1;
+	}
+
+	@Override
+	protected void compute() {
+
+		for (int j = fromRow; j < toRow; j++) {
+			for (int k = 0; grid.doesStructureFitInRow(shipsStructureMask.getWidth(), k); k++) {
+
+				if (grid.isGridPortionUndefined(k, j, shipsStructureMask)) {
+					placements[j * wordsPerRow + (k >>> WORD_SHIFT)] |= 1L << (k & WORD_MASK);
+					increaseLikelihood(k, j - likelihoodsRowOffset);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Increases the likelihood of all cells covered by the ship placed at the given upper left coordinates of the buffer.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate of the ship's upper left point.
+	 * @param bufferRow
+	 *            Row of the ship's upper left point in the likelihoods buffer.
+	 */
+	private void increaseLikelihood(int xCoordinate, int bufferRow) {
+
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			likelihoods[bufferRow + shipsStructureMask.getYOffset(cell)][xCoordinate + shipsStructureMask.getXOffset(cell)] += weight;
+		}
+	}
+}
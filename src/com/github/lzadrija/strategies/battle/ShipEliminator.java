@@ -1,142 +1,431 @@
-package com.github.lzadrija.strategies.battle;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-import com.github.lzadrija.model.common.Point;
-import com.github.lzadrija.model.map.Grid;
-import com.github.lzadrija.repositories.ShipsRepository;
-
-/**
- * Used for finding the next target on the grid when in Elimination mode. This class gets the first hit point and produces next targets
- * in order to discover all ships that are contained in this area. A ship can be placed through a hit if it passes only through undefined
- * cells or other known hits. If a ship can be placed through a cell, its probability is increased, and most probable cells around a hit
- * are targeted until no more ships can be positioned trough the hit area. The result is the list of coordinates that is proven to contain
- * part of the ship(s).
- *         
- * @author Lucija Zadrija
- *  
- */
-public class ShipEliminator extends TargetFinder {
-
-	private List<Point> hitsCoordinatesList;
-
-	/**
-	 * Constructor.
-	 * 
-	 * @param firstHit
-	 *            Point were the ship was first hit (discovered).
-	 */
-	public ShipEliminator(Point firstHit) {
-		hitsCoordinatesList = new ArrayList<>();
-		hitsCoordinatesList.add(firstHit);
-	}
-
-	@Override
-	protected Point getNextObjective(Grid grid, ShipsRepository shipsRepository) {
-
-		int[][] gridOccupationLikelihoods = new int[grid.getHeight()][grid.getWidth()];
-		Point targetsPosition = null;
-		int nAvailablePositions = 0;
-
-		for (Iterator<Point> iterator = hitsCoordinatesList.iterator(); iterator.hasNext();) {
-			Point hitPoint = iterator.next();
-
-			// pass through hit coordinate with every undiscovered ship
-			for (Iterator<Integer> iterator2 = shipsRepository.getHiddenShipsIndexes().iterator(); iterator2.hasNext();) {
-				int i = iterator2.next();
-				List<Point> shipsAllUpperLeftPoint = shipsRepository.getShipsAllPossibleUpperLeftCoordinates(i, hitPoint);
-
-				// check if undiscovered ship can pass through hit on grid in every way possible
-				List<Point> shipsStructure = shipsRepository.getShipsStructure(i);
-				for (Iterator<Point> iterator3 = shipsAllUpperLeftPoint.iterator(); iterator3.hasNext();) {
-					Point shipsUpperLeftPoint = iterator3.next();
-
-					boolean isGridAvailable = grid.isGridPortionUndefined(shipsUpperLeftPoint, shipsStructure);
-					if (isGridAvailable) {
-						boolean isLikeliHoodIncreased = increaseGridOccupationLikelihood(shipsUpperLeftPoint, shipsStructure,
-																						 gridOccupationLikelihoods);
-						nAvailablePositions += isLikeliHoodIncreased ? 1 : 0;
-					}
-				}
-			}
-		}
-		if (0 != nAvailablePositions) {
-			targetsPosition = getTargetPosition(gridOccupationLikelihoods);
-		}
-		return targetsPosition;
-	}
-
-	/**
-	 * Increases the likelihood that the ship can be placed over cells on the grid.
-	 * 
-	 * @param shipsUpperLeftPoint
-	 *            Ship's upper left coordinate on the grid.
-	 * @param shipsStructure
-	 *            Ship's structure.
-	 * @param cellLikelihoods
-	 *            2D array of cell likelihoods.
-	 * @return True if ship can be placed over cells on the grid, false otherwise.
-	 */
-	protected boolean increaseGridOccupationLikelihood(Point shipsUpperLeftPoint, List<Point> shipsRelativeCoordinates,
-													   int[][] cellLikelihoods) {
-		boolean isLikeliHoodIncreased = false;
-		for (Iterator<Point> iterator = shipsRelativeCoordinates.iterator(); iterator.hasNext();) {
-			Point relativeCellPosition = iterator.next();
-
-			Point newPoint = shipsUpperLeftPoint.getPointRelativeToThis(relativeCellPosition);
-
-			if (isPointAHit(newPoint)) {
-				continue;
-			}
-			isLikeliHoodIncreased = true;
-			cellLikelihoods[newPoint.getY()][newPoint.getX()]++;
-		}
-		return isLikeliHoodIncreased;
-	}
-
-	/**
-	 * Checks if ship was previously hit at this point.
-	 * 
-	 * @param point
-	 *            Point to check.
-	 * @return True if ship was previously hit at this point, false otherwise.
-	 */
-	private boolean isPointAHit(Point point) {
-
-		for (Iterator<Point> iterator = hitsCoordinatesList.iterator(); iterator.hasNext();) {
-			Point hitPoint = iterator.next();
-
-			if (hitPoint.equals(point)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Adds the position of the cell that is found to be a hit to the hits list.
-	 * 
-	 * @param hitPoint
-	 *            Position of the cell that is found to be a hit.
-	 */
-	public void addHit(Point hitPoint) {
-		hitsCoordinatesList.add(hitPoint);
-	}
-
-	/**
-	 * Checks if next target that passes through hits cannot be computed.
-	 * 
-	 * @param targetPosition
-	 * @return True if all ships at hit area are eliminated, false otherwise.
-	 */
-	public boolean areAllShipsAtThisAreaEliminated(Point targetPosition) {
-
-		return null == targetPosition;
-	}
-
-	public List<Point> getHitsCoordinatesList() {
-		return hitsCoordinatesList;
-	}
-}
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.github.lzadrija.model.common.Coordinates;
+import com.github.lzadrija.model.common.CoordinatesSet;
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.model.map.GridListener;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.ships.ShipType;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Used for finding the next target on the grid when in Elimination mode. This class gets the first hit point and produces next targets
+ * in order to discover all ships that are contained in this area. A ship can be placed through a hit if it passes only through undefined
+ * cells or other known hits. If a ship can be placed through a cell, its probability is increased, and most probable cells around a hit
+ * are targeted until no more ships can be positioned trough the hit area. The result is the list of coordinates that is proven to contain
+ * part of the ship(s). Likelihoods are computed only in the window around the hits that the hidden ships can reach (the bounding
+ * box of the hits expanded by the largest hidden ship), so the cost of the elimination does not depend on the size of the grid.
+ * Candidate placements are kept by ship type and upper left point, so a placement passing through several hits is checked on the
+ * grid and counted only once. While the hit area grows, only placements through the new hits are checked, and placements that
+ * pass through a newly occupied cell of the grid are dropped.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class ShipEliminator extends TargetFinder implements GridListener {
+
+	private List<Point> hitsCoordinatesList;
+	private final CoordinatesSet hitsCoordinatesSet;
+	private int minHitX, maxHitX, minHitY, maxHitY;
+
+	private int windowX, windowY;
+
+	private final Map<ShipType, CandidatePlacements> candidatePlacementsByType;
+	private int nEvaluatedHits;
+	private Grid candidatesGrid;
+
+	/**
+	 * Placements of one ship type through the hits. Upper left points of all examined placements are kept, so that no placement is
+	 * checked on the grid twice, as well as the upper left points of the placements over undefined cells and hits.
+	 */
+	private static class CandidatePlacements {
+
+		private final StructureMask shipsStructureMask;
+		private final CoordinatesSet examinedUpperLefts;
+		private int[] availableUpperLefts;
+		private int nAvailableUpperLefts;
+
+		private CandidatePlacements(StructureMask shipsStructureMask) {
+			this.shipsStructureMask = shipsStructureMask;
+			examinedUpperLefts = new CoordinatesSet();
+			availableUpperLefts = new int[shipsStructureMask.getCellsCount()];
+		}
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param firstHit
+	 *            Point were the ship was first hit (discovered).
+	 */
+	public ShipEliminator(Point firstHit) {
+		this(firstHit, new Random());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param firstHit
+	 *            Point were the ship was first hit (discovered).
+	 * @param random
+	 *            Random number generator used for breaking ties between the most likely targets.
+	 */
+	public ShipEliminator(Point firstHit, Random random) {
+
+		super(random);
+		hitsCoordinatesSet = new CoordinatesSet();
+		candidatePlacementsByType = new HashMap<>();
+		startHitArea(firstHit);
+	}
+
+	/**
+	 * Starts the elimination of a new hit area. Previous hits are forgotten, while the likelihoods buffer is kept, so one eliminator
+	 * can be used for the whole game.
+	 * 
+	 * @param firstHit
+	 *            Point were the ship was first hit (discovered).
+	 */
+	public void reset(Point firstHit) {
+		startHitArea(firstHit);
+	}
+
+	private void startHitArea(Point firstHit) {
+
+		hitsCoordinatesList = new ArrayList<>();
+		hitsCoordinatesSet.clear();
+		minHitX = maxHitX = firstHit.getX();
+		minHitY = maxHitY = firstHit.getY();
+		candidatePlacementsByType.clear();
+		nEvaluatedHits = 0;
+		hitsCoordinatesSet.add(Coordinates.encode(firstHit));
+		hitsCoordinatesList.add(firstHit);
+	}
+
+	@Override
+	protected Point getNextObjective(Grid grid, ShipsRepository shipsRepository) {
+		return computeNextObjective(grid, shipsRepository, Collections.<Point>emptyList());
+	}
+
+	@Override
+	protected Point getNextObjectiveAssumingMisses(Grid grid, ShipsRepository shipsRepository, List<Point> pendingTargets) {
+		return computeNextObjective(grid, shipsRepository, pendingTargets);
+	}
+
+	/**
+	 * Returns up to the given number of the most likely targets around the hits, so that they can be fired at in one batch.
+	 * The targets are computed from the current state only: firing at all of them may cost more shots than firing one by one,
+	 * but it takes only one round-trip.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param maxTargets
+	 *            Maximal number of targets.
+	 * @return List of targets, empty if no hidden ship can be placed through the hits.
+	 */
+	public List<Point> getNextObjectives(Grid grid, ShipsRepository shipsRepository, int maxTargets) {
+
+		int[][] gridOccupationLikelihoods = computeLikelihoods(grid, shipsRepository, Collections.<Point>emptyList());
+
+		if (null == gridOccupationLikelihoods) {
+			return Collections.<Point>emptyList();
+		}
+		List<Point> targetPositions = getTargetPositions(gridOccupationLikelihoods, maxTargets);
+		for (int i = 0; i < targetPositions.size(); i++) {
+			targetPositions.set(i, toGridPoint(targetPositions.get(i)));
+		}
+		return targetPositions;
+	}
+
+	/**
+	 * Computes the next target by placing every hidden ship through every hit in every possible way.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param missedTargets
+	 *            Cells that are treated as occupied even though they are undefined on the grid.
+	 * @return Position of the next target, or null if no hidden ship can be placed through the hits.
+	 */
+	private Point computeNextObjective(Grid grid, ShipsRepository shipsRepository, List<Point> missedTargets) {
+
+		int[][] gridOccupationLikelihoods = computeLikelihoods(grid, shipsRepository, missedTargets);
+
+		Point targetPosition = (null == gridOccupationLikelihoods) ? null : getTargetPosition(gridOccupationLikelihoods);
+
+		return (null == targetPosition) ? null : toGridPoint(targetPosition);
+	}
+
+	/**
+	 * Converts the position in the likelihoods window to the position on the grid.
+	 * 
+	 * @param windowPoint
+	 *            Position in the likelihoods window.
+	 * @return Position on the grid.
+	 */
+	private Point toGridPoint(Point windowPoint) {
+		return new Point(windowPoint.getX() + windowX, windowPoint.getY() + windowY);
+	}
+
+	/**
+	 * Computes the likelihoods of the cells by placing every hidden ship through the hits in every possible way. Only the cells of
+	 * the window around the hits are computed: the likelihood of the cell (x, y) is stored at [y - windowY][x - windowX].
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param missedTargets
+	 *            Cells that are treated as occupied even though they are undefined on the grid.
+	 * @return 2D array of window cell likelihoods, or null if no hidden ship can be placed through the hits.
+	 */
+	private int[][] computeLikelihoods(Grid grid, ShipsRepository shipsRepository, List<Point> missedTargets) {
+
+		List<Integer> hiddenTypesIndexes = shipsRepository.getHiddenShipTypesIndexes();
+		int maxShipsWidth = 1, maxShipsHeight = 1;
+		for (int t = 0; t < hiddenTypesIndexes.size(); t++) {
+			maxShipsWidth = Math.max(maxShipsWidth, shipsRepository.getShipsWidth(hiddenTypesIndexes.get(t)));
+			maxShipsHeight = Math.max(maxShipsHeight, shipsRepository.getShipsHeight(hiddenTypesIndexes.get(t)));
+		}
+		windowX = Math.max(0, minHitX - maxShipsWidth + 1);
+		windowY = Math.max(0, minHitY - maxShipsHeight + 1);
+		int windowWidth = Math.min(grid.getWidth() - 1, maxHitX + maxShipsWidth - 1) - windowX + 1;
+		int windowHeight = Math.min(grid.getHeight() - 1, maxHitY + maxShipsHeight - 1) - windowY + 1;
+
+		int[][] gridOccupationLikelihoods = getLikelihoodsBuffer(windowHeight, windowWidth);
+		int nAvailablePositions = 0;
+		examineNewHits(grid, shipsRepository, hiddenTypesIndexes);
+
+		// every available placement of the undiscovered ship type is counted once for every hidden ship of the type
+		for (int t = 0; t < hiddenTypesIndexes.size(); t++) {
+			int i = hiddenTypesIndexes.get(t);
+			int nHiddenShips = shipsRepository.getHiddenShipsCountOfType(i);
+
+			CandidatePlacements candidatePlacements = candidatePlacementsByType.get(shipsRepository.getShipsType(i));
+			StructureMask shipsStructureMask = candidatePlacements.shipsStructureMask;
+			for (int p = 0; p < candidatePlacements.nAvailableUpperLefts; p++) {
+				int upperLeftX = Coordinates.getX(candidatePlacements.availableUpperLefts[p]);
+				int upperLeftY = Coordinates.getY(candidatePlacements.availableUpperLefts[p]);
+
+				if (!isAnyCellCovered(missedTargets, upperLeftX, upperLeftY, shipsStructureMask)) {
+					boolean isLikeliHoodIncreased = increaseGridOccupationLikelihood(upperLeftX, upperLeftY, shipsStructureMask,
+																					 nHiddenShips, gridOccupationLikelihoods);
+					nAvailablePositions += isLikeliHoodIncreased ? 1 : 0;
+				}
+			}
+		}
+		return (0 != nAvailablePositions) ? gridOccupationLikelihoods : null;
+	}
+
+	/**
+	 * Examines the placements of every hidden ship type through the hits that were added since the last call: the hit is put on
+	 * every cell of the ship in turn, and the placement is available if the ship passes only through undefined cells (hits are
+	 * undefined on the grid). Placements that were already examined through another hit are skipped. If the grid is not the one
+	 * the candidates were collected on, the candidates are dropped and the eliminator starts listening to the given grid.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param hiddenTypesIndexes
+	 *            Index of one hidden ship of every hidden type.
+	 */
+	private void examineNewHits(Grid grid, ShipsRepository shipsRepository, List<Integer> hiddenTypesIndexes) {
+
+		if (grid != candidatesGrid) {
+			if (null != candidatesGrid) {
+				candidatesGrid.removeGridListener(this);
+			}
+			grid.addGridListener(this);
+			candidatesGrid = grid;
+			candidatePlacementsByType.clear();
+			nEvaluatedHits = 0;
+		}
+
+		for (int t = 0; t < hiddenTypesIndexes.size(); t++) {
+			int i = hiddenTypesIndexes.get(t);
+			ShipType shipType = shipsRepository.getShipsType(i);
+
+			CandidatePlacements candidatePlacements = candidatePlacementsByType.get(shipType);
+			if (null == candidatePlacements) {
+				candidatePlacements = new CandidatePlacements(shipsRepository.getShipsStructureMask(i));
+				candidatePlacementsByType.put(shipType, candidatePlacements);
+			}
+			for (int h = nEvaluatedHits; h < hitsCoordinatesList.size(); h++) {
+				examinePlacementsThroughHit(grid, hitsCoordinatesList.get(h), candidatePlacements);
+			}
+		}
+		nEvaluatedHits = hitsCoordinatesList.size();
+	}
+
+	/**
+	 * Examines every placement of the ship type through the hit that was not examined before.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param hitPoint
+	 *            Hit on the grid.
+	 * @param candidatePlacements
+	 *            Placements of the ship type.
+	 */
+	private static void examinePlacementsThroughHit(Grid grid, Point hitPoint, CandidatePlacements candidatePlacements) {
+
+		StructureMask shipsStructureMask = candidatePlacements.shipsStructureMask;
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			int upperLeftX = hitPoint.getX() - shipsStructureMask.getXOffset(cell);
+			int upperLeftY = hitPoint.getY() - shipsStructureMask.getYOffset(cell);
+
+			if (upperLeftX < 0 || upperLeftY < 0) {
+				continue;
+			}
+			int upperLeft = Coordinates.encode(upperLeftX, upperLeftY);
+			if (candidatePlacements.examinedUpperLefts.add(upperLeft)
+				&& grid.isGridPortionUndefined(upperLeftX, upperLeftY, shipsStructureMask)) {
+
+				if (candidatePlacements.nAvailableUpperLefts == candidatePlacements.availableUpperLefts.length) {
+					candidatePlacements.availableUpperLefts = Arrays.copyOf(candidatePlacements.availableUpperLefts,
+																			2 * candidatePlacements.nAvailableUpperLefts);
+				}
+				candidatePlacements.availableUpperLefts[candidatePlacements.nAvailableUpperLefts++] = upperLeft;
+			}
+		}
+	}
+
+	/**
+	 * Drops the available placements that pass through the newly occupied cell. They stay examined, so they are never added
+	 * again.
+	 */
+	@Override
+	public void cellOccupied(int xCoordinate, int yCoordinate) {
+
+		for (Iterator<CandidatePlacements> iterator = candidatePlacementsByType.values().iterator(); iterator.hasNext();) {
+			CandidatePlacements candidatePlacements = iterator.next();
+			StructureMask shipsStructureMask = candidatePlacements.shipsStructureMask;
+
+			int nKept = 0;
+			for (int p = 0; p < candidatePlacements.nAvailableUpperLefts; p++) {
+				int upperLeft = candidatePlacements.availableUpperLefts[p];
+
+				if (!shipsStructureMask.containsOffset(xCoordinate - Coordinates.getX(upperLeft),
+													   yCoordinate - Coordinates.getY(upperLeft))) {
+					candidatePlacements.availableUpperLefts[nKept++] = upperLeft;
+				}
+			}
+			candidatePlacements.nAvailableUpperLefts = nKept;
+		}
+	}
+
+	/**
+	 * Increases the likelihood that the ship can be placed over cells on the grid. Known hits are skipped. The ship must be placed
+	 * through a hit, so all of its cells are in the window.
+	 * 
+	 * @param upperLeftX
+	 *            x coordinate of the ship's upper left point on the grid.
+	 * @param upperLeftY
+	 *            y coordinate of the ship's upper left point on the grid.
+	 * @param shipsStructureMask
+	 *            Ship's compiled structure.
+	 * @param weight
+	 *            Value added to the likelihood of every cell (the number of hidden ships of the ship's type).
+	 * @param cellLikelihoods
+	 *            2D array of window cell likelihoods.
+	 * @return True if ship can be placed over cells on the grid, false otherwise.
+	 */
+	protected boolean increaseGridOccupationLikelihood(int upperLeftX, int upperLeftY, StructureMask shipsStructureMask, int weight,
+													   int[][] cellLikelihoods) {
+		boolean isLikeliHoodIncreased = false;
+		for (int cell = 0; cell < shipsStructureMask.getCellsCount(); cell++) {
+			int x = upperLeftX + shipsStructureMask.getXOffset(cell);
+			int y = upperLeftY + shipsStructureMask.getYOffset(cell);
+
+			if (isPointAHit(x, y)) {
+				continue;
+			}
+			isLikeliHoodIncreased = true;
+			cellLikelihoods[y - windowY][x - windowX] += weight;
+		}
+		return isLikeliHoodIncreased;
+	}
+
+	/**
+	 * Checks if the ship placed at the given upper left coordinates covers any of the given cells.
+	 * 
+	 * @param cells
+	 *            Cells on the grid.
+	 * @param upperLeftX
+	 *            x coordinate of the ship's upper left point on the grid.
+	 * @param upperLeftY
+	 *            y coordinate of the ship's upper left point on the grid.
+	 * @param shipsStructureMask
+	 *            Ship's compiled structure.
+	 * @return True if the ship covers some of the cells, false otherwise.
+	 */
+	private boolean isAnyCellCovered(List<Point> cells, int upperLeftX, int upperLeftY, StructureMask shipsStructureMask) {
+
+		for (int i = 0; i < cells.size(); i++) {
+			Point cell = cells.get(i);
+
+			if (shipsStructureMask.containsOffset(cell.getX() - upperLeftX, cell.getY() - upperLeftY)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if ship was previously hit at this point.
+	 * 
+	 * @param xCoordinate
+	 *            x coordinate of the point to check.
+	 * @param yCoordinate
+	 *            y coordinate of the point to check.
+	 * @return True if ship was previously hit at this point, false otherwise.
+	 */
+	private boolean isPointAHit(int xCoordinate, int yCoordinate) {
+		return hitsCoordinatesSet.contains(Coordinates.encode(xCoordinate, yCoordinate));
+	}
+
+	/**
+	 * Adds the position of the cell that is found to be a hit to the hits list.
+	 * 
+	 * @param hitPoint
+	 *            Position of the cell that is found to be a hit.
+	 */
+	public void addHit(Point hitPoint) {
+
+		if (hitsCoordinatesSet.add(Coordinates.encode(hitPoint))) {
+			hitsCoordinatesList.add(hitPoint);
+		}
+		minHitX = Math.min(minHitX, hitPoint.getX());
+		maxHitX = Math.max(maxHitX, hitPoint.getX());
+		minHitY = Math.min(minHitY, hitPoint.getY());
+		maxHitY = Math.max(maxHitY, hitPoint.getY());
+	}
+
+	/**
+	 * Checks if next target that passes through hits cannot be computed.
+	 * 
+	 * @param targetPosition
+	 * @return True if all ships at hit area are eliminated, false otherwise.
+	 */
+	public boolean areAllShipsAtThisAreaEliminated(Point targetPosition) {
+
+		return null == targetPosition;
+	}
+
+	public List<Point> getHitsCoordinatesList() {
+		return hitsCoordinatesList;
+	}
+}
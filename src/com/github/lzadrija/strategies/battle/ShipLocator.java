@@ -1,82 +1,194 @@
-package com.github.lzadrija.strategies.battle;
-
-import java.util.Iterator;
-import java.util.List;
-
-import com.github.lzadrija.model.common.Point;
-import com.github.lzadrija.model.map.Grid;
-import com.github.lzadrija.repositories.ShipsRepository;
-
-/**
- * Used for finding the next target on the grid when in Localization mode. Ship's location in unknown, so the next target must be chosen
- * in a way the highest number of yet undiscovered ships can be placed over it. for each hidden ship and each location on the grid (map) it
- * is checked if this ship can be placed in this position (in a way that it does not collide with other ships, nor it is placed over cells
- * that are known to contain only water). If a ship can be placed over a cell, cell's likelihood is then increased.
- *         
- * @author Lucija Zadrija
- *  
- */
-public class ShipLocator extends TargetFinder {
-
-	private static ShipLocator instance = new ShipLocator();
-
-	public static ShipLocator getInstance() {
-		return instance;
-	}
-
-	@Override
-	protected Point getNextObjective(Grid grid, ShipsRepository shipsRepository) {
-
-		int[][] gridOccupationLikelihoods = new int[grid.getHeight()][grid.getWidth()];
-		Point targetsPosition = null;
-
-		for (Iterator<Integer> iterator = shipsRepository.getHiddenShipsIndexes().iterator(); iterator.hasNext();) {
-			int i = iterator.next();
-			for (int j = 0; j < grid.getHeight(); j++) {
-
-				int shipsHeight = shipsRepository.getShipsHeight(i);
-				if (!grid.doesStructureFitInColumn(shipsHeight, j)) {
-					break;
-				}
-				for (int k = 0; k < grid.getWidth(); k++) {
-
-					int shipsWidth = shipsRepository.getShipsWidth(i);
-					if (!grid.doesStructureFitInRow(shipsWidth, k)) {
-						break;
-					}
-					Point shipsUpperLeftPoint = new Point(k, j);
-					List<Point> shipsStructure = shipsRepository.getShipsStructure(i);
-					boolean isGridAvailable = grid.isGridPortionUndefined(shipsUpperLeftPoint, shipsStructure);
-					if (isGridAvailable) {
-						increaseGridOccupationLikelihood(shipsUpperLeftPoint, shipsStructure, gridOccupationLikelihoods);
-					}
-				}
-			}
-		}
-		targetsPosition = getTargetPosition(gridOccupationLikelihoods);
-		return targetsPosition;
-	}
-
-	/**
-	 * Increases the likelihood that the ship can be placed over cells on the grid.
-	 * 
-	 * @param shipsUpperLeftPoint
-	 *            Ship's upper left coordinate on the grid.
-	 * @param shipsStructure
-	 *            Ship's structure.
-	 * @param cellLikelihoods
-	 *            2D array of cell likelihoods.
-	 */
-	protected void increaseGridOccupationLikelihood(Point shipsUpperLeftPoint, List<Point> shipsStructure, int[][] cellLikelihoods) {
-
-		for (Iterator<Point> iterator = shipsStructure.iterator(); iterator.hasNext();) {
-			Point relativeCellPosition = iterator.next();
-
-			int x = shipsUpperLeftPoint.getX() + relativeCellPosition.getX();
-			int y = shipsUpperLeftPoint.getY() + relativeCellPosition.getY();
-
-			cellLikelihoods[y][x]++;
-		}
-
-	}
-}
+package com.github.lzadrija.strategies.battle;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * Used for finding the next target on the grid when in Localization mode. Ship's location in unknown, so the next target must be chosen
+ * in a way the highest number of yet undiscovered ships can be placed over it. for each hidden ship and each location on the grid (map) it
+ * is checked if this ship can be placed in this position (in a way that it does not collide with other ships, nor it is placed over cells
+ * that are known to contain only water). If a ship can be placed over a cell, cell's likelihood is then increased. The likelihoods are
+ * kept in a placement index that is built once per game and then updated only around the cells that change. On large grids the index
+ * is built in parallel. If an endgame threshold is set, the next target is found by the exact endgame solver instead once fewer
+ * placements remain.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public class ShipLocator extends TargetFinder {
+
+	/**
+	 * Number of upper left coordinates (summed over all hidden ship types) below which the grid is swept sequentially.
+	 */
+	public static final long DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+	private static final int MAX_ENDGAME_CONFIGURATIONS = 4096;
+	private static final int MAX_ENDGAME_SEARCHED_STATES = 5000;
+
+	private final ForkJoinPool pool;
+	private final long parallelThreshold;
+	private long endgameThreshold;
+
+	private PlacementIndex placementIndex;
+
+	/**
+	 * Constructor. The grid is always swept sequentially.
+	 */
+	public ShipLocator() {
+		this(null, 0);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pool
+	 *            Pool used for sweeping the grid in parallel, or null if the grid must be swept sequentially.
+	 * @param parallelThreshold
+	 *            Number of upper left coordinates (summed over all hidden ship types) below which the grid is swept sequentially.
+	 */
+	public ShipLocator(ForkJoinPool pool, long parallelThreshold) {
+		this(pool, parallelThreshold, new Random());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pool
+	 *            Pool used for sweeping the grid in parallel, or null if the grid must be swept sequentially.
+	 * @param parallelThreshold
+	 *            Number of upper left coordinates (summed over all hidden ship types) below which the grid is swept sequentially.
+	 * @param random
+	 *            Random number generator used for breaking ties between the most likely targets.
+	 */
+	public ShipLocator(ForkJoinPool pool, long parallelThreshold, Random random) {
+
+		super(random);
+		this.pool = pool;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	@Override
+	protected Point getNextObjective(Grid grid, ShipsRepository shipsRepository) {
+
+		PlacementIndex index = getPlacementIndex(grid, shipsRepository);
+
+		Point targetsPosition = findTarget(grid, shipsRepository, index);
+		return targetsPosition;
+	}
+
+	/**
+	 * Temporarily removes the placements passing through the pending targets from the placement index, finds the most likely
+	 * target and restores the index.
+	 */
+	@Override
+	protected Point getNextObjectiveAssumingMisses(Grid grid, ShipsRepository shipsRepository, List<Point> pendingTargets) {
+
+		PlacementIndex index = getPlacementIndex(grid, shipsRepository);
+
+		for (Iterator<Point> iterator = pendingTargets.iterator(); iterator.hasNext();) {
+			Point pendingTarget = iterator.next();
+			index.assumeOccupied(pendingTarget.getX(), pendingTarget.getY());
+		}
+		Point targetsPosition = findTarget(grid, shipsRepository, index);
+		index.revertAssumptions();
+
+		return targetsPosition;
+	}
+
+	/**
+	 * The target is redundant if no placement of a hidden ship passes through it.
+	 */
+	@Override
+	protected boolean isTargetRedundant(Grid grid, ShipsRepository shipsRepository, Point target) {
+
+		PlacementIndex index = getPlacementIndex(grid, shipsRepository);
+
+		return 0 == index.getLikelihood(target.getX(), target.getY());
+	}
+
+	/**
+	 * Finds the next target with the exact endgame solver if few placements remain, otherwise (or if the solver finds too many
+	 * configurations of the hidden ships) chooses it with {@link #chooseTarget(Grid, ShipsRepository, PlacementIndex)}.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param placementIndex
+	 *            Placement index that is up to date with the grid, including the assumed misses.
+	 * @return Position of the next target on the grid, or null if no hidden ship can be placed on the grid.
+	 */
+	private Point findTarget(Grid grid, ShipsRepository shipsRepository, PlacementIndex placementIndex) {
+
+		if (placementIndex.getPlacementsCount() < endgameThreshold) {
+			EndgameSolver endgameSolver = new EndgameSolver(placementIndex, MAX_ENDGAME_CONFIGURATIONS, MAX_ENDGAME_SEARCHED_STATES);
+
+			Point targetsPosition = endgameSolver.findTarget();
+			if (null != targetsPosition) {
+				return targetsPosition;
+			}
+		}
+		return chooseTarget(grid, shipsRepository, placementIndex);
+	}
+
+	/**
+	 * Chooses the next target from the placements in the index. The target is the cell through which the highest number of
+	 * placements of the hidden ships pass. Subclasses can choose the target differently, as long as the index is not changed.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param placementIndex
+	 *            Placement index that is up to date with the grid, including the assumed misses.
+	 * @return Position of the next target on the grid, or null if no hidden ship can be placed on the grid.
+	 */
+	protected Point chooseTarget(Grid grid, ShipsRepository shipsRepository, PlacementIndex placementIndex) {
+		return getTargetPosition(placementIndex.getLikelihoods());
+	}
+
+	/**
+	 * Sets the number of placements (summed over all hidden ship types, see {@link PlacementIndex#getPlacementsCount()}) below
+	 * which the next target is found by the exact endgame solver (see {@link EndgameSolver}). The solver is disabled by default.
+	 * 
+	 * @param endgameThreshold
+	 *            Number of placements, 0 disables the endgame solver.
+	 * @throws IllegalArgumentException
+	 *             If the threshold is negative.
+	 */
+	public void setEndgameThreshold(long endgameThreshold) {
+
+		if (endgameThreshold < 0) {
+			throw new IllegalArgumentException("Endgame threshold cannot be negative: " + endgameThreshold);
+		}
+		this.endgameThreshold = endgameThreshold;
+	}
+
+	/**
+	 * Returns the placement index for the given grid and ships repository. The index is built on the first call and rebuilt only
+	 * if a different grid or repository is given, or if the index is outdated because some ship was hidden again.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @return Placement index.
+	 */
+	private PlacementIndex getPlacementIndex(Grid grid, ShipsRepository shipsRepository) {
+
+		if (null == placementIndex || !placementIndex.isBuiltFor(grid, shipsRepository) || placementIndex.isOutdated()) {
+			if (null != placementIndex) {
+				placementIndex.detach();
+			}
+			placementIndex = new PlacementIndex(grid, shipsRepository, shipsRepository.getShipsCount(), pool, parallelThreshold);
+			placementIndex.attach();
+		}
+		return placementIndex;
+	}
+}
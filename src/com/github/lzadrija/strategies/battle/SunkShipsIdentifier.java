@@ -0,0 +1,424 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.StructureMask;
+import com.github.lzadrija.model.ships.Ship;
+import com.github.lzadrija.model.ships.ShipType;
+
+/**
+ * Finds the positions of the given combination of ships on the hit area, so that the ships cover every hit exactly once (exact
+ * cover). Hits are numbered in their natural order and the hit area is encoded as a bitset, where bit i is set if hit i is not
+ * yet covered. Every possible placement of a ship over the hits only is precomputed as a bitset mask. The search always covers
+ * the first uncovered hit: every hit before it is already covered, so for every remaining ship type at most a few placements
+ * through that hit fit over the uncovered hits, and a state is abandoned as soon as no remaining ship fits there. Ships of the
+ * same type are interchangeable, so only the number of the placed ships of every type is a part of the state, and the ships of
+ * one type are placed in the order in which they are given.
+ * <p>
+ * States that are known to lead to no cover are remembered and not searched again. They are kept in a table of fixed size, by
+ * their 64-bit Zobrist keys: every hit and every ship of the combination has a random key, and the key of a state is the XOR of
+ * the keys of its uncovered hits and of its placed ships, updated with every placed ship. A state that falls into an occupied
+ * slot replaces the older one, which may then be searched again, so the memory does not grow with the number of states on
+ * large hit areas.
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public class SunkShipsIdentifier {
+
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = Long.SIZE - 1;
+
+	private static final int FAILED_STATES_BITS = 14;
+	private static final long KEYS_SEED = 0x5DEECE66DL;
+
+	private final List<Point> hitsPointsList;
+	private final int nWords;
+
+	private final int minX, minY;
+	private final int areaWidth, areaHeight;
+	private final int[] hitsIndexes;
+	private final long[] hitsKeys;
+	private final long[] shipsKeys;
+
+	private final Map<ShipType, ShipPlacements> placementsByType;
+	private long[] failedStatesKeys;
+	private int[] failedStatesSearches;
+	private int nSearches;
+
+	private ShipPlacements[] typesPlacements;
+	private int[][] typesShipsIndexes;
+	private int[] typesPlacedCounts;
+	private int[] placementsIndexes;
+
+	/**
+	 * Placements of one ship type over the hits. Placement i is the mask of the covered hits (with the XOR of their keys), and
+	 * its upper left point is computed from the anchor hit. For every hit, the indexes of the placements that cover it are kept
+	 * as well.
+	 */
+	private static class ShipPlacements {
+
+		private final long[][] masks;
+		private final long[] masksKeys;
+		private final int[] anchorHitsIndexes;
+		private final int anchorX;
+		private final int[][] placementsThroughHits;
+
+		private ShipPlacements(long[][] masks, long[] masksKeys, int[] anchorHitsIndexes, int anchorX, int[][] placementsThroughHits) {
+			this.masks = masks;
+			this.masksKeys = masksKeys;
+			this.anchorHitsIndexes = anchorHitsIndexes;
+			this.anchorX = anchorX;
+			this.placementsThroughHits = placementsThroughHits;
+		}
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param hitsPointsList
+	 *            List of points from the grid that contain ship(s).
+	 * @throws IllegalArgumentException
+	 *             If the list is empty.
+	 */
+	public SunkShipsIdentifier(List<Point> hitsPointsList) {
+
+		if (hitsPointsList.isEmpty()) {
+			throw new IllegalArgumentException("Hit area cannot be empty");
+		}
+
+		this.hitsPointsList = new ArrayList<>(hitsPointsList);
+		Collections.sort(this.hitsPointsList);
+		nWords = ((this.hitsPointsList.size() - 1) >>> WORD_SHIFT) + 1;
+
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (Iterator<Point> iterator = this.hitsPointsList.iterator(); iterator.hasNext();) {
+			Point hitPoint = iterator.next();
+
+			minX = Math.min(minX, hitPoint.getX());
+			minY = Math.min(minY, hitPoint.getY());
+			maxX = Math.max(maxX, hitPoint.getX());
+			maxY = Math.max(maxY, hitPoint.getY());
+		}
+		this.minX = minX;
+		this.minY = minY;
+		areaWidth = maxX - minX + 1;
+		areaHeight = maxY - minY + 1;
+
+		hitsIndexes = new int[areaWidth * areaHeight];
+		Arrays.fill(hitsIndexes, -1);
+		for (int i = 0; i < this.hitsPointsList.size(); i++) {
+			Point hitPoint = this.hitsPointsList.get(i);
+
+			hitsIndexes[(hitPoint.getY() - minY) * areaWidth + hitPoint.getX() - minX] = i;
+		}
+
+		// every ship covers at least one hit, so no combination that can cover the area has more ships than hits
+		SplittableRandom random = new SplittableRandom(KEYS_SEED);
+		hitsKeys = new long[this.hitsPointsList.size()];
+		shipsKeys = new long[this.hitsPointsList.size()];
+		for (int i = 0; i < hitsKeys.length; i++) {
+			hitsKeys[i] = random.nextLong();
+			shipsKeys[i] = random.nextLong();
+		}
+
+		placementsByType = new HashMap<>();
+	}
+
+	/**
+	 * Finds the upper left coordinates of the given ships, so that together they cover the hit area exactly.
+	 *
+	 * @param shipsCombination
+	 *            List of ships sorted by size, whose sum of sizes is equal to the size of the hit area.
+	 * @return Upper left coordinates of the ships, in the order of the given ships, or null if the ships do not cover the hit
+	 *         area.
+	 */
+	public List<Point> findShipsUpperLeftPoints(List<Ship> shipsCombination) {
+
+		if (shipsCombination.isEmpty() || shipsCombination.size() > hitsPointsList.size()) {
+			return null;
+		}
+
+		long[] uncoveredHits = new long[nWords];
+		long uncoveredHitsKey = 0;
+		for (int i = 0; i < hitsPointsList.size(); i++) {
+			uncoveredHits[i >>> WORD_SHIFT] |= 1L << (i & WORD_MASK);
+			uncoveredHitsKey ^= hitsKeys[i];
+		}
+		groupShipsByType(shipsCombination);
+		placementsIndexes = new int[shipsCombination.size()];
+
+		// failed states of the previous searches are left in the table, but they belong to a different search number
+		nSearches++;
+		boolean match = coverHits(uncoveredHits, uncoveredHitsKey, shipsCombination.size());
+		if (!match) {
+			return null;
+		}
+
+		List<Point> upperLeftPoints = new ArrayList<>(shipsCombination.size());
+		for (int i = 0; i < shipsCombination.size(); i++) {
+			ShipPlacements placements = getShipPlacements(shipsCombination.get(i));
+
+			Point anchorHit = hitsPointsList.get(placements.anchorHitsIndexes[placementsIndexes[i]]);
+			upperLeftPoints.add(new Point(anchorHit.getX() - placements.anchorX, anchorHit.getY()));
+		}
+		return upperLeftPoints;
+	}
+
+	/**
+	 * Groups the ships of the combination by type, largest type first, and resets the numbers of the placed ships.
+	 *
+	 * @param shipsCombination
+	 *            List of ships sorted by size.
+	 */
+	private void groupShipsByType(List<Ship> shipsCombination) {
+
+		List<ShipType> types = new ArrayList<>();
+		List<List<Integer>> shipsIndexesByType = new ArrayList<>();
+		for (int i = shipsCombination.size() - 1; i >= 0; i--) {
+			ShipType shipsType = shipsCombination.get(i).getType();
+
+			int t = types.indexOf(shipsType);
+			if (-1 == t) {
+				t = types.size();
+				types.add(shipsType);
+				shipsIndexesByType.add(new ArrayList<Integer>());
+			}
+			shipsIndexesByType.get(t).add(i);
+		}
+
+		typesPlacements = new ShipPlacements[types.size()];
+		typesShipsIndexes = new int[types.size()][];
+		typesPlacedCounts = new int[types.size()];
+		for (int t = 0; t < types.size(); t++) {
+			List<Integer> shipsIndexes = shipsIndexesByType.get(t);
+
+			typesPlacements[t] = getShipPlacements(shipsCombination.get(shipsIndexes.get(0)));
+			typesShipsIndexes[t] = new int[shipsIndexes.size()];
+			for (int j = 0; j < shipsIndexes.size(); j++) {
+				typesShipsIndexes[t][shipsIndexes.size() - 1 - j] = shipsIndexes.get(j);
+			}
+		}
+	}
+
+	/**
+	 * Recursive method. Covers the first uncovered hit with every remaining ship type in every possible way, and continues with
+	 * the next uncovered hit, until all hits are covered. The next ship of a type is always the first of its ships that is not
+	 * placed yet, which skips the covers that differ only in the order of the ships of the same type.
+	 *
+	 * @param uncoveredHits
+	 *            Bitset of the hits that are not covered yet. It is restored before returning.
+	 * @param stateKey
+	 *            Zobrist key of the uncovered hits and of the placed ships.
+	 * @param nRemainingShips
+	 *            Number of ships that are not placed yet.
+	 * @return True if all hits are covered with all ships, false otherwise.
+	 */
+	private boolean coverHits(long[] uncoveredHits, long stateKey, int nRemainingShips) {
+
+		int firstHitIndex = getFirstSetBit(uncoveredHits);
+		if (-1 == firstHitIndex || 0 == nRemainingShips) {
+			return -1 == firstHitIndex && 0 == nRemainingShips;
+		}
+		if (isFailedState(stateKey)) {
+			return false;
+		}
+
+		for (int t = 0; t < typesPlacements.length; t++) {
+			int[] typeShipsIndexes = typesShipsIndexes[t];
+			if (typesPlacedCounts[t] == typeShipsIndexes.length) {
+				continue;
+			}
+			int shipIndex = typeShipsIndexes[typesPlacedCounts[t]];
+
+			ShipPlacements placements = typesPlacements[t];
+			int[] placementsThroughHit = placements.placementsThroughHits[firstHitIndex];
+			for (int j = 0; j < placementsThroughHit.length; j++) {
+				int i = placementsThroughHit[j];
+				long[] mask = placements.masks[i];
+				if (!isSubset(mask, uncoveredHits)) {
+					continue;
+				}
+
+				toggle(uncoveredHits, mask);
+				typesPlacedCounts[t]++;
+				boolean match = coverHits(uncoveredHits, stateKey ^ placements.masksKeys[i] ^ shipsKeys[shipIndex], nRemainingShips - 1);
+				typesPlacedCounts[t]--;
+				toggle(uncoveredHits, mask);
+
+				if (match) {
+					placementsIndexes[shipIndex] = i;
+					return true;
+				}
+			}
+		}
+		addFailedState(stateKey);
+		return false;
+	}
+
+	/**
+	 * Checks if the state with the given key is remembered as failed in the current search.
+	 *
+	 * @param stateKey
+	 *            Zobrist key of the state.
+	 * @return True if the state is known to lead to no cover, false otherwise.
+	 */
+	private boolean isFailedState(long stateKey) {
+
+		if (null == failedStatesKeys) {
+			return false;
+		}
+		int slot = (int) (stateKey >>> (Long.SIZE - FAILED_STATES_BITS));
+		return failedStatesSearches[slot] == nSearches && failedStatesKeys[slot] == stateKey;
+	}
+
+	/**
+	 * Remembers the state with the given key as failed in the current search, replacing the state in its slot.
+	 *
+	 * @param stateKey
+	 *            Zobrist key of the state.
+	 */
+	private void addFailedState(long stateKey) {
+
+		if (null == failedStatesKeys) {
+			failedStatesKeys = new long[1 << FAILED_STATES_BITS];
+			failedStatesSearches = new int[1 << FAILED_STATES_BITS];
+		}
+		int slot = (int) (stateKey >>> (Long.SIZE - FAILED_STATES_BITS));
+		failedStatesKeys[slot] = stateKey;
+		failedStatesSearches[slot] = nSearches;
+	}
+
+	/**
+	 * Returns the placements of the given ship's type over the hits, computed on the first request. The anchor of the ship is
+	 * the leftmost cell of its first row, so every placement is found exactly once by putting the anchor on every hit.
+	 *
+	 * @param ship
+	 *            Ship.
+	 * @return Ship's placements, in the natural order of their upper left points.
+	 */
+	private ShipPlacements getShipPlacements(Ship ship) {
+
+		ShipPlacements placements = placementsByType.get(ship.getType());
+		if (null != placements) {
+			return placements;
+		}
+
+		StructureMask structureMask = ship.getStructureMask();
+		int anchorX = Long.numberOfTrailingZeros(structureMask.getRowMask(0));
+		List<Point> shipsStructure = ship.getStructure();
+
+		List<long[]> masks = new ArrayList<>();
+		List<Integer> anchorHitsIndexes = new ArrayList<>();
+		for (int i = 0; i < hitsPointsList.size(); i++) {
+			Point anchorHit = hitsPointsList.get(i);
+			long[] mask = new long[nWords];
+
+			boolean isPlacementOnHits = true;
+			for (Iterator<Point> iterator = shipsStructure.iterator(); iterator.hasNext() && isPlacementOnHits;) {
+				Point relativePosition = iterator.next();
+
+				int hitIndex = getHitIndex(anchorHit.getX() - anchorX + relativePosition.getX(), anchorHit.getY()
+										   + relativePosition.getY());
+				if (-1 == hitIndex) {
+					isPlacementOnHits = false;
+				} else {
+					mask[hitIndex >>> WORD_SHIFT] |= 1L << (hitIndex & WORD_MASK);
+				}
+			}
+			if (isPlacementOnHits) {
+				masks.add(mask);
+				anchorHitsIndexes.add(i);
+			}
+		}
+
+		int[] anchors = new int[anchorHitsIndexes.size()];
+		long[] masksKeys = new long[anchors.length];
+		int[] nPlacementsThroughHits = new int[hitsPointsList.size()];
+		for (int i = 0; i < anchors.length; i++) {
+			anchors[i] = anchorHitsIndexes.get(i);
+			for (int hitIndex = getFirstSetBit(masks.get(i)); -1 != hitIndex; hitIndex = getNextSetBit(masks.get(i), hitIndex + 1)) {
+				nPlacementsThroughHits[hitIndex]++;
+				masksKeys[i] ^= hitsKeys[hitIndex];
+			}
+		}
+		int[][] placementsThroughHits = new int[hitsPointsList.size()][];
+		for (int hitIndex = 0; hitIndex < placementsThroughHits.length; hitIndex++) {
+			placementsThroughHits[hitIndex] = new int[nPlacementsThroughHits[hitIndex]];
+			nPlacementsThroughHits[hitIndex] = 0;
+		}
+		for (int i = 0; i < anchors.length; i++) {
+			for (int hitIndex = getFirstSetBit(masks.get(i)); -1 != hitIndex; hitIndex = getNextSetBit(masks.get(i), hitIndex + 1)) {
+				placementsThroughHits[hitIndex][nPlacementsThroughHits[hitIndex]++] = i;
+			}
+		}
+		placements = new ShipPlacements(masks.toArray(new long[masks.size()][]), masksKeys, anchors, anchorX, placementsThroughHits);
+		placementsByType.put(ship.getType(), placements);
+
+		return placements;
+	}
+
+	/**
+	 * Returns the index of the hit at the given coordinates.
+	 *
+	 * @param xCoordinate
+	 *            x coordinate on the grid.
+	 * @param yCoordinate
+	 *            y coordinate on the grid.
+	 * @return Index of the hit, or -1 if there is no hit at the given coordinates.
+	 */
+	private int getHitIndex(int xCoordinate, int yCoordinate) {
+
+		int x = xCoordinate - minX, y = yCoordinate - minY;
+		if (x < 0 || x >= areaWidth || y < 0 || y >= areaHeight) {
+			return -1;
+		}
+		return hitsIndexes[y * areaWidth + x];
+	}
+
+	private static boolean isSubset(long[] mask, long[] bits) {
+
+		for (int i = 0; i < mask.length; i++) {
+			if (0 != (mask[i] & ~bits[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void toggle(long[] bits, long[] mask) {
+
+		for (int i = 0; i < mask.length; i++) {
+			bits[i] ^= mask[i];
+		}
+	}
+
+	private static int getFirstSetBit(long[] bits) {
+		return getNextSetBit(bits, 0);
+	}
+
+	private static int getNextSetBit(long[] bits, int fromIndex) {
+
+		int wordIndex = fromIndex >>> WORD_SHIFT;
+		if (wordIndex >= bits.length) {
+			return -1;
+		}
+		long word = bits[wordIndex] & (-1L << (fromIndex & WORD_MASK));
+		while (0 == word) {
+			if (++wordIndex == bits.length) {
+				return -1;
+			}
+			word = bits[wordIndex];
+		}
+		return (wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+	}
+}
@@ -1,104 +1,201 @@
-package com.github.lzadrija.strategies.battle;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
-import com.github.lzadrija.model.common.Point;
-import com.github.lzadrija.model.map.Grid;
-import com.github.lzadrija.repositories.ShipsRepository;
-
-/**
- * This abstract class is used for finding the position of the next target on the grid.
- *         
- * @author Lucija Zadrija
- *  
- */
-public abstract class TargetFinder {
-
-	/**
-	 * Returns the position of the next target on the grid. This target is computed based on the maximum likelihood, the highest 
-	 * number of ships can pass trough this point on the grid.
-	 * 
-	 * @param grid
-	 *            Representation of the (sea) map.
-	 * @param shipsRepository
-	 *            Ships repository.
-	 * @return Position of the next target on the grid.
-	 */
-	protected abstract Point getNextObjective(Grid grid, ShipsRepository shipsRepository);
-
-	/**
-	 * Returns the target that has the maximum likelihood (the highest number of ships can pass trough this point on the grid). 
-	 * If more than one points are most likely to be chosen (have the same maximum likelihood), one of them is selected randomly.
-	 * 
-	 * @param cellLikelihoods
-	 *            2D array of cell likelihoods.
-	 * @return Next target with maximum likelihood, or null if none can be found.
-	 */
-	protected Point getTargetPosition(int[][] cellLikelihoods) {
-
-		Point targetPosition;
-		long maxLikelihood = getMaxLikelihood(cellLikelihoods);
-
-		List<Point> possibleTargets = getMaxLikelihoodPositions(cellLikelihoods, maxLikelihood);
-		targetPosition = (1 == possibleTargets.size()) ? possibleTargets.get(0) : chooseTarget(possibleTargets);
-		return targetPosition;
-	}
-
-	/**
-	 * Returns maximum likelihood of a cell (The cell that contains the biggest number).
-	 * 
-	 * @param cellLikelihoods
-	 *            2D array of cell likelihoods.
-	 * @return Maximum likelihood.
-	 */
-	private long getMaxLikelihood(int[][] cellLikelihoods) {
-		long maxLikelihood = 0;
-
-		for (int i = 0; i < cellLikelihoods.length; i++) {
-			for (int j = 0; j < cellLikelihoods[i].length; j++) {
-				maxLikelihood = (cellLikelihoods[i][j] > maxLikelihood) ? cellLikelihoods[i][j] : maxLikelihood;
-			}
-		}
-		return maxLikelihood;
-	}
-
-	/**
-	 * Returns the array of points from a grid that have maximum likelihood.
-	 * 
-	 * @param cellLikelihoods
-	 *            2D array of cell likelihoods.
-	 * @param maxLikelihood
-	 *            Maximum likelihood.
-	 * @return Array of points from a grid that have maximum likelihood.
-	 */
-	private List<Point> getMaxLikelihoodPositions(int[][] cellLikelihoods, long maxLikelihood) {
-
-		List<Point> positions = new ArrayList<>();
-
-		for (int i = 0; i < cellLikelihoods.length; i++) {
-			for (int j = 0; j < cellLikelihoods[i].length; j++) {
-				if (cellLikelihoods[i][j] == maxLikelihood) {
-					positions.add(new Point(j, i));
-				}
-			}
-		}
-		return positions;
-	}
-
-	/**
-	 * Randomly chooses a target from the list of given points.
-	 * 
-	 * @param possibleTargets
-	 *            Array of points.
-	 * @return Chosen point.
-	 */
-	private Point chooseTarget(List<Point> possibleTargets) {
-		Random random = new Random();
-
-		int randomTargetIndex = random.nextInt(possibleTargets.size());
-
-		return possibleTargets.get(randomTargetIndex);
-	}
-}
+package com.github.lzadrija.strategies.battle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.github.lzadrija.model.common.Point;
+import com.github.lzadrija.model.map.Grid;
+import com.github.lzadrija.repositories.ShipsRepository;
+
+/**
+ * This abstract class is used for finding the position of the next target on the grid.
+ *         
+ * @author Lucija Zadrija
+ *  
+ */
+public abstract class TargetFinder {
+
+	private final Random random;
+	private int[][] likelihoodsBuffer;
+
+	/**
+	 * Default constructor. Ties between the most likely targets are broken using an unseeded random number generator.
+	 */
+	protected TargetFinder() {
+		this(new Random());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param random
+	 *            Random number generator used for breaking ties between the most likely targets.
+	 * @throws NullPointerException
+	 *             If the random number generator is null.
+	 */
+	protected TargetFinder(Random random) {
+
+		if (null == random) {
+			throw new NullPointerException("Random number generator cannot be null");
+		}
+		this.random = random;
+	}
+
+	/**
+	 * Returns the position of the next target on the grid. This target is computed based on the maximum likelihood, the highest 
+	 * number of ships can pass trough this point on the grid.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @return Position of the next target on the grid.
+	 */
+	protected abstract Point getNextObjective(Grid grid, ShipsRepository shipsRepository);
+
+	/**
+	 * Returns the position of the next target on the grid, computed as if the given targets were already known to be misses (as if
+	 * their cells were occupied). Neither the grid nor the state of this target finder are changed, so this can be computed while
+	 * the requests for the given targets are in flight. The returned target is never one of the given targets, unless no other
+	 * target can be found.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param pendingTargets
+	 *            Targets whose content is not yet known.
+	 * @return Position of the next target on the grid if all given targets are misses.
+	 */
+	protected abstract Point getNextObjectiveAssumingMisses(Grid grid, ShipsRepository shipsRepository, List<Point> pendingTargets);
+
+	/**
+	 * Checks if firing at the given target became pointless, because no hidden ship can be placed over it any more.
+	 * 
+	 * @param grid
+	 *            Representation of the (sea) map.
+	 * @param shipsRepository
+	 *            Ships repository.
+	 * @param target
+	 *            Position on the grid.
+	 * @return True if the target cannot contain a ship, false if it can or if it is not known.
+	 */
+	protected boolean isTargetRedundant(Grid grid, ShipsRepository shipsRepository, Point target) {
+		return false;
+	}
+
+	/**
+	 * Returns the target that has the maximum likelihood (the highest number of ships can pass trough this point on the grid). 
+	 * If more than one points are most likely to be chosen (have the same maximum likelihood), one of them is selected randomly.
+	 * The likelihoods are scanned only once: every cell that ties with the current maximum replaces the chosen target with the
+	 * probability 1/n, where n is the number of ties seen so far, so each of the most likely cells is chosen with the same
+	 * probability.
+	 * 
+	 * @param cellLikelihoods
+	 *            2D array of cell likelihoods.
+	 * @return Next target with maximum likelihood, or null if no ship can pass through any cell.
+	 */
+	protected Point getTargetPosition(int[][] cellLikelihoods) {
+
+		int maxLikelihood = 0;
+		int nMaxLikelihoodPositions = 0;
+		int targetX = -1, targetY = -1;
+
+		for (int i = 0; i < cellLikelihoods.length; i++) {
+			int[] rowLikelihoods = cellLikelihoods[i];
+			for (int j = 0; j < rowLikelihoods.length; j++) {
+				int likelihood = rowLikelihoods[j];
+
+				if (likelihood > maxLikelihood) {
+					maxLikelihood = likelihood;
+					nMaxLikelihoodPositions = 1;
+					targetX = j;
+					targetY = i;
+				} else if (likelihood == maxLikelihood) {
+					nMaxLikelihoodPositions++;
+					if (0 == random.nextInt(nMaxLikelihoodPositions)) {
+						targetX = j;
+						targetY = i;
+					}
+				}
+			}
+		}
+		return (0 == maxLikelihood) ? null : new Point(targetX, targetY);
+	}
+
+	/**
+	 * Returns up to the given number of distinct targets with the highest likelihoods, most likely first. Only cells through
+	 * which at least one ship can pass are returned. Ties at the end of the list are broken in favour of the cells scanned first.
+	 * 
+	 * @param cellLikelihoods
+	 *            2D array of cell likelihoods.
+	 * @param maxTargets
+	 *            Maximal number of targets.
+	 * @return List of targets, empty if no cell has positive likelihood.
+	 */
+	protected List<Point> getTargetPositions(int[][] cellLikelihoods, int maxTargets) {
+
+		int[] topLikelihoods = new int[maxTargets];
+		int[] topXs = new int[maxTargets], topYs = new int[maxTargets];
+		int nTop = 0;
+
+		for (int i = 0; i < cellLikelihoods.length; i++) {
+			int[] rowLikelihoods = cellLikelihoods[i];
+			for (int j = 0; j < rowLikelihoods.length; j++) {
+				int likelihood = rowLikelihoods[j];
+
+				if (likelihood <= 0 || (nTop == maxTargets && likelihood <= topLikelihoods[nTop - 1])) {
+					continue;
+				}
+				int k = (nTop == maxTargets) ? nTop - 1 : nTop++;
+				for (; k > 0 && topLikelihoods[k - 1] < likelihood; k--) {
+					topLikelihoods[k] = topLikelihoods[k - 1];
+					topXs[k] = topXs[k - 1];
+					topYs[k] = topYs[k - 1];
+				}
+				topLikelihoods[k] = likelihood;
+				topXs[k] = j;
+				topYs[k] = i;
+			}
+		}
+
+		List<Point> targetPositions = new ArrayList<>(nTop);
+		for (int k = 0; k < nTop; k++) {
+			targetPositions.add(new Point(topXs[k], topYs[k]));
+		}
+		return targetPositions;
+	}
+
+	/**
+	 * Returns the random number generator of this target finder, which subclasses can use for their own random choices.
+	 * 
+	 * @return Random number generator.
+	 */
+	protected Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Returns the buffer for cell likelihoods with all values set to zero. The same buffer is returned on every call as long
+	 * as the dimensions do not change, so it must not be kept after the next call.
+	 * 
+	 * @param height
+	 *            Buffer's height.
+	 * @param width
+	 *            Buffer's width.
+	 * @return 2D array of zeros.
+	 */
+	protected int[][] getLikelihoodsBuffer(int height, int width) {
+
+		if (null == likelihoodsBuffer || likelihoodsBuffer.length != height || likelihoodsBuffer[0].length != width) {
+			likelihoodsBuffer = new int[height][width];
+		} else {
+			for (int i = 0; i < height; i++) {
+				Arrays.fill(likelihoodsBuffer[i], 0);
+			}
+		}
+		return likelihoodsBuffer;
+	}
+}
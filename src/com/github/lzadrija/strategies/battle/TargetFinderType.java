@@ -0,0 +1,49 @@
+package com.github.lzadrija.strategies.battle;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Target finders that can be used in Localization mode. LIKELIHOOD fires at the cell through which the most placements of the
+ * hidden ships pass ({@link ShipLocator}), MONTE_CARLO at the cell covered by a ship in the most of the sampled configurations of
+ * the fleet ({@link MonteCarloTargetFinder}), and INFORMATION_GAIN at the likely cell whose shot is expected to give the most
+ * information ({@link InformationGainTargetFinder}). All of them use the common pool for the parallel work, and all of them can
+ * switch to the exact endgame solver when few placements remain ({@link ShipLocator#setEndgameThreshold(long)}).
+ *
+ * @author Lucija Zadrija
+ *
+ */
+public enum TargetFinderType {
+	LIKELIHOOD, MONTE_CARLO, INFORMATION_GAIN;
+
+	/**
+	 * Creates a new target finder of this type. Target finders keep the state of one game, so every game needs its own.
+	 *
+	 * @param endgameThreshold
+	 *            Number of placements below which the next target is found by the exact endgame solver, 0 disables the solver
+	 *            (see {@link ShipLocator#setEndgameThreshold(long)}).
+	 * @param sampleBudget
+	 *            Maximal number of configurations drawn for every target, used only by {@link #MONTE_CARLO}.
+	 * @param timeBudgetMillis
+	 *            Maximal time in milliseconds that sampling may take for every target, used only by {@link #MONTE_CARLO}.
+	 * @return New target finder.
+	 * @throws IllegalArgumentException
+	 *             If the endgame threshold is negative, or this is {@link #MONTE_CARLO} and any of the budgets is not positive.
+	 */
+	public TargetFinder createTargetFinder(long endgameThreshold, int sampleBudget, long timeBudgetMillis) {
+
+		ShipLocator targetFinder;
+		switch (this) {
+		case MONTE_CARLO:
+			targetFinder = new MonteCarloTargetFinder(ForkJoinPool.commonPool(), sampleBudget, timeBudgetMillis);
+			break;
+		case INFORMATION_GAIN:
+			targetFinder = new InformationGainTargetFinder();
+			break;
+		default:
+			targetFinder = new ShipLocator(ForkJoinPool.commonPool(), ShipLocator.DEFAULT_PARALLEL_THRESHOLD);
+			break;
+		}
+		targetFinder.setEndgameThreshold(endgameThreshold);
+		return targetFinder;
+	}
+}